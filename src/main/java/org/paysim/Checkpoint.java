@@ -0,0 +1,155 @@
+package org.paysim;
+
+import org.paysim.actors.ActorCheckpoint;
+import org.paysim.base.ClientActionProfile;
+import org.paysim.engine.Stepper;
+import org.paysim.parameters.Parameters;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of a {@link PaySimState} taken between two steps, from which the simulation can carry on later
+ * in another JVM exactly as if it had never stopped.
+ *
+ * Only what changes while the simulation runs gets written: the step to carry on from, the profile assignment
+ * counts, the state of the actors (see {@link ActorCheckpoint}), that of the {@link Stepper}, whatever the
+ * PaySimState subclass adds and finally the RNG. Everything else is rebuilt by initializing the simulation again
+ * from the same parameters before reading the checkpoint, which replays the population and its identities draw
+ * for draw. A checkpoint is thus only valid for the parameters it was taken with.
+ */
+final class Checkpoint {
+    private static final int MAGIC = 0x50534350; // "PSCP"
+    private static final int VERSION = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private Checkpoint() {
+    }
+
+    /**
+     * Write a checkpoint of a simulation, replacing any previous one at the same path only once fully written.
+     *
+     * @param state the simulation, between two steps
+     * @param stepper the Stepper driving it
+     * @param nbInitialClients number of clients created when initializing the simulation
+     * @param path where to write
+     * @throws IOException if writing fails
+     */
+    static void write(PaySimState state, Stepper stepper, int nbInitialClients, Path path) throws IOException {
+        final Path target = path.toAbsolutePath();
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeHeader(out, state, nbInitialClients);
+            out.writeLong(state.currentStep);
+
+            Parameters parameters = state.getParameters();
+            for (String action : parameters.actionTypes.getActions()) {
+                for (ClientActionProfile profile : parameters.clientsProfiles.getProfilesFromAction(action)) {
+                    out.writeInt(state.countProfileAssignment.get(profile));
+                }
+            }
+            ActorCheckpoint.write(out, state, nbInitialClients);
+            stepper.writeState(out);
+            state.writeCheckpointState(out);
+            state.random.writeState(out);
+            out.writeInt(MAGIC);
+
+            out.flush();
+            channel.force(false);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restore a simulation from a checkpoint.
+     *
+     * @param state the simulation, with its actors and Stepper just initialized from the same parameters
+     * @param stepper the Stepper driving it
+     * @param nbInitialClients number of clients created when initializing the simulation
+     * @param path where to read from
+     * @throws IOException if reading fails, or the checkpoint doesn't match the simulation
+     */
+    static void read(PaySimState state, Stepper stepper, int nbInitialClients, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            if (in.readInt() != MAGIC) {
+                throw new IOException(String.format("%s isn't a PaySim checkpoint", path));
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("unsupported checkpoint version %d in %s", version, path));
+            }
+            checkHeader(in, state, nbInitialClients, path);
+            state.currentStep = in.readLong();
+
+            Parameters parameters = state.getParameters();
+            for (String action : parameters.actionTypes.getActions()) {
+                for (ClientActionProfile profile : parameters.clientsProfiles.getProfilesFromAction(action)) {
+                    state.countProfileAssignment.put(profile, in.readInt());
+                }
+            }
+            ActorCheckpoint.read(in, state, nbInitialClients);
+            stepper.readState(in);
+            state.readCheckpointState(in);
+            state.random.readState(in);
+            if (in.readInt() != MAGIC) {
+                throw new IOException(String.format("checkpoint %s is corrupted", path));
+            }
+        }
+    }
+
+    /**
+     * Settings the rebuilt population depends on, to catch a checkpoint being restored with other parameters.
+     */
+    private static void writeHeader(DataOutputStream out, PaySimState state, int nbInitialClients)
+            throws IOException {
+        Parameters parameters = state.getParameters();
+        out.writeInt(parameters.seed);
+        out.writeInt(parameters.nbSteps);
+        out.writeBoolean(parameters.continuous);
+        out.writeUTF(parameters.scheduler.name());
+        out.writeInt(parameters.parallelism);
+        out.writeInt(parameters.nbShards);
+        out.writeInt(nbInitialClients);
+        out.writeInt(state.getMerchants().size());
+        out.writeInt(state.getBanks().size());
+        out.writeInt(state.getFraudsters().size());
+    }
+
+    private static void checkHeader(DataInputStream in, PaySimState state, int nbInitialClients, Path path)
+            throws IOException {
+        Parameters parameters = state.getParameters();
+        boolean matches = in.readInt() == parameters.seed;
+        matches &= in.readInt() == parameters.nbSteps;
+        matches &= in.readBoolean() == parameters.continuous;
+        matches &= in.readUTF().equals(parameters.scheduler.name());
+        matches &= in.readInt() == parameters.parallelism;
+        matches &= in.readInt() == parameters.nbShards;
+        matches &= in.readInt() == nbInitialClients;
+        matches &= in.readInt() == state.getMerchants().size();
+        matches &= in.readInt() == state.getBanks().size();
+        matches &= in.readInt() == state.getFraudsters().size();
+        if (!matches) {
+            throw new IOException(String.format("checkpoint %s was taken with other parameters", path));
+        }
+    }
+}
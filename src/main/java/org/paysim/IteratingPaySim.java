@@ -1,52 +1,73 @@
 package org.paysim;
 
 import org.paysim.base.Transaction;
+import org.paysim.base.TransactionRing;
+import org.paysim.base.TransactionView;
 import org.paysim.parameters.Parameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An implementation of the simulation that provides simulation output (i.e. transactions)
  * as a Java Iterator.
  *
  * The core simulation is driven by a worker thread which communicates simulation results
- * via a shared queue (of finite depth). The iterator draws from the queue until it detects
- * the simulation is completed and the queue is drained. (An atomic flag is set then cleared
- * to communicate if the simulation is still running or not.)
+ * via a shared {@link TransactionRing} (of finite depth), publishing them a step at a time. The
+ * iterator draws from the ring until it detects the simulation is completed and the ring is
+ * drained. (An atomic flag is set then cleared to communicate if the simulation is still
+ * running or not.)
  *
- * The queue depth is configurable, so if for some reason you'd like to have the simulation
+ * The ring depth is configurable, so if for some reason you'd like to have the simulation
  * only step incrementally, you can set the depth to 1 and it will block when it tries to
- * add to the queue.
+ * add to the ring.
+ *
+ * Consumers that don't need to keep the transactions can read them with {@link #nextView()}
+ * instead of {@link #next()}, going through the ring's records without allocating anything.
+ * The iterator is meant to be consumed by one thread at a time.
+ *
+ * Transactions can also be taken in bulk, with {@link #nextBatch(int)} and {@link #drainTo(Collection, int)}, or
+ * through a {@link #stream()}, which hands batches over to the other threads of a parallel stream.
+ *
+ * In continuous mode (see {@link Parameters#continuous}) the simulation never completes on its own, it keeps
+ * cycling through the step profiles until {@link #abort()} gets called.
  *
  * For an example of using IteratingPaySim, see the provided main() method.
  */
 public class IteratingPaySim extends PaySimState implements Iterator<Transaction> {
 
     private final Logger logger = LoggerFactory.getLogger(IteratingPaySim.class);
-    private BlockingQueue<Transaction> queue;
+    private final TransactionRing ring;
     private static int QUEUE_DEPTH = 200_000;
+    private static final int BATCH_SIZE = 10_000;
 
     protected static final String DEFAULT_WORKER_NAME = "SimulationWorker";
     protected final String workerName;
     private SimulationWorker worker;
 
     private AtomicBoolean running = new AtomicBoolean();
-    private AtomicInteger stepCounter = new AtomicInteger(0);
+    // Transactions handed to the ring so far, to carry on the global step numbering after a checkpoint
+    private long nbQueued = 0;
 
     public IteratingPaySim(Parameters parameters, int queueDepth, String workerName) {
         super(parameters);
-        this.queue = new ArrayBlockingQueue<>(queueDepth);
+        this.ring = new TransactionRing(queueDepth, getActorDictionary());
         this.workerName = workerName;
         worker = new SimulationWorker(this);
     }
@@ -70,8 +91,12 @@ public class IteratingPaySim extends PaySimState implements Iterator<Transaction
         @Override
         public void run() {
             logger.debug("starting");
-            state.runSimulation();
-            state.setRunning(false);
+            try {
+                state.runSimulation();
+            } finally {
+                ring.publish();
+                state.setRunning(false);
+            }
             logger.debug("finished");
         }
     }
@@ -79,7 +104,6 @@ public class IteratingPaySim extends PaySimState implements Iterator<Transaction
     @Override
     public synchronized void run() {
         if (running.compareAndSet(false, true)) {
-            stepCounter.set(0);
             final Thread t = new Thread(worker, workerName);
             t.start();
             logger.debug(String.format("started worker thread: %s", t.getName()));
@@ -107,25 +131,32 @@ public class IteratingPaySim extends PaySimState implements Iterator<Transaction
 
     @Override
     public boolean hasNext() {
-        return !queue.isEmpty() || running.get();
+        // Everything gets published before the flag is cleared, so check the flag first
+        return running.get() || !ring.isEmpty();
     }
 
     @Override
     public Transaction next() {
-        Transaction tx = null;
+        TransactionView view = nextView();
+        return view == null ? null : view.toTransaction();
+    }
 
-        while (hasNext() && tx == null) {
+    /**
+     * Like {@link #next()}, but without copying the transaction out of the ring.
+     *
+     * @return a view of the next transaction, valid until the next call, or null if the simulation is over
+     */
+    public TransactionView nextView() {
+        TransactionView view = null;
+
+        while (hasNext() && view == null) {
             try {
-                tx = queue.poll(25, TimeUnit.MILLISECONDS);
-                if (tx != null) {
-                    // XXX: in the future, maybe we push the global step counter into the base class
-                    tx.setGlobalStep(stepCounter.incrementAndGet());
-                }
+                view = ring.poll(25, TimeUnit.MILLISECONDS);
             } catch (InterruptedException e) {
                 throw new NoSuchElementException();
             }
         }
-        return tx;
+        return view;
     }
 
     @Override
@@ -150,15 +181,146 @@ public class IteratingPaySim extends PaySimState implements Iterator<Transaction
 
     }
 
+    /**
+     * Like {@link #forEachRemaining(Consumer)}, handing over views of the transactions rather than copies.
+     *
+     * @param action what to do with every transaction, before the view moves on to the next one
+     */
+    public void forEachRemainingView(Consumer<? super TransactionView> action) {
+        Objects.requireNonNull(action);
+        while (hasNext()) {
+            try {
+                TransactionView view = nextView();
+                if (view != null) {
+                    action.accept(view);
+                }
+            } catch (NoSuchElementException nse) {
+                // Interrupted, like forEachRemaining
+            }
+        }
+    }
+
+    /**
+     * Take the transactions published so far, without waiting for more.
+     *
+     * @param destination where to add the transactions
+     * @param max the most transactions to take
+     * @return the number of transactions taken
+     */
+    public int drainTo(Collection<? super Transaction> destination, int max) {
+        Objects.requireNonNull(destination);
+        int count = 0;
+        TransactionView view;
+        while (count < max && (view = ring.poll()) != null) {
+            destination.add(view.toTransaction());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Wait for the next transaction, then take it along with those published after it.
+     *
+     * @param max the most transactions to take
+     * @return between 1 and max transactions, or none if the simulation is over
+     */
+    public List<Transaction> nextBatch(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be positive, got " + max);
+        }
+        List<Transaction> batch = new ArrayList<>(Math.min(max, Math.max(1, ring.size())));
+        Transaction first = next();
+        if (first != null) {
+            batch.add(first);
+            drainTo(batch, max - 1);
+        }
+        return batch;
+    }
+
+    /**
+     * @return a Spliterator over the remaining transactions, splitting off batches of them
+     */
+    public Spliterator<Transaction> spliterator() {
+        return spliterator(BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize the most transactions in a batch split off the Spliterator
+     * @return a Spliterator over the remaining transactions, splitting off batches of them
+     */
+    public Spliterator<Transaction> spliterator(int batchSize) {
+        return new TransactionSpliterator(batchSize);
+    }
+
+    /**
+     * The remaining transactions as a sequential stream, which can be made parallel: threads then work through
+     * batches taken off the simulation, while the thread consuming the stream takes the next one.
+     *
+     * @return a stream of the remaining transactions
+     */
+    public Stream<Transaction> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    private class TransactionSpliterator implements Spliterator<Transaction> {
+        private final int batchSize;
+
+        TransactionSpliterator(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be positive, got " + batchSize);
+            }
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            Objects.requireNonNull(action);
+            Transaction tx = next();
+            if (tx == null) {
+                return false;
+            }
+            action.accept(tx);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Transaction> action) {
+            IteratingPaySim.this.forEachRemaining(action);
+        }
+
+        @Override
+        public Spliterator<Transaction> trySplit() {
+            List<Transaction> batch = nextBatch(batchSize);
+            if (batch.isEmpty()) {
+                return null;
+            }
+            return Spliterators.spliterator(batch.toArray(), ORDERED | NONNULL);
+        }
+
+        // The step profiles' targets for the steps left, give or take the fraud, plus what wasn't consumed yet
+        @Override
+        public long estimateSize() {
+            if (!hasNext()) {
+                return 0;
+            }
+            final long remaining = getRemainingTargetCount();
+            return remaining == Long.MAX_VALUE ? remaining : remaining + ring.size();
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
     @Override
     public boolean onTransactions(List<Transaction> transactions) {
         if (running.get()) {
             for (Transaction tx : transactions) {
-                try {
-                    this.queue.put(tx);
-                } catch (InterruptedException e) {
-                    logger.error("interrupted while adding tx to queue, skipping.", e);
+                if (!ring.add(tx)) {
+                    return false;
                 }
+                nbQueued++;
             }
             return true;
         }
@@ -176,13 +338,24 @@ public class IteratingPaySim extends PaySimState implements Iterator<Transaction
             throw new IllegalStateException(msg);
         }
 
-        // XXX: a sloppy drain implementation...bad idea?
-        // XXX2: yes, bad idea...there's no way to close this queue implementation!
-        queue.clear();
+        // Drops whatever wasn't consumed yet, and lets the simulation go if it's waiting for room
+        ring.close();
+    }
+
+    @Override
+    protected void writeCheckpointState(DataOutputStream out) throws IOException {
+        out.writeLong(nbQueued);
+    }
+
+    @Override
+    protected void readCheckpointState(DataInputStream in) throws IOException {
+        nbQueued = in.readLong();
+        ring.setGlobalStepOffset(nbQueued);
     }
 
     @Override
     public boolean onStep(long stepNum) {
+        ring.publish();
         return running.get();
     }
 }
@@ -2,12 +2,18 @@ package org.paysim;
 
 import org.paysim.base.Transaction;
 import org.paysim.output.Output;
+import org.paysim.output.SinkPipeline;
+import org.paysim.output.StepSink;
 import org.paysim.parameters.Parameters;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.nio.file.Paths;
 import java.util.Date;
 import java.util.List;
 
@@ -22,11 +28,13 @@ public class OriginalPaySim extends PaySimState {
     private static final String[] DEFAULT_ARGS = new String[]{"", "-file", "PaySim.properties", "1"};
 
     public final String simulationName;
-    private int totalTransactionsMade = 0;
-    private int stepParticipated = 0;
+    private final Output output;
+    private final SinkPipeline sinks;
+    private long totalTransactionsMade = 0;
+    private long stepParticipated = 0;
 
     private List<Transaction> transactions = new ArrayList<>();
-    private int currentStep;
+    private long currentStep;
 
     public static void main(String[] args) {
         System.out.println("PAYSIM: Financial Simulator v" + PAYSIM_VERSION);
@@ -35,14 +43,20 @@ public class OriginalPaySim extends PaySimState {
         }
         int nbTimesRepeat = Integer.parseInt(args[3]);
         String propertiesFile = "";
+        String checkpointFile = null;
         for (int x = 0; x < args.length - 1; x++) {
             if (args[x].equals("-file")) {
                 propertiesFile = args[x + 1];
+            } else if (args[x].equals("-resume")) {
+                checkpointFile = args[x + 1];
             }
         }
         Parameters parameters = new Parameters(propertiesFile);
         for (int i = 0; i < nbTimesRepeat; i++) {
             OriginalPaySim p = new OriginalPaySim(parameters);
+            if (checkpointFile != null) {
+                p.resumeFrom(Paths.get(checkpointFile));
+            }
             p.run();
         }
     }
@@ -57,8 +71,32 @@ public class OriginalPaySim extends PaySimState {
         File simulationFolder = new File(parameters.outputPath + simulationName);
         simulationFolder.mkdirs();
 
-        Output.initOutputFilenames(simulationName, parameters.outputPath);
-        Output.writeParameters(parameters);
+        output = new Output(simulationName, parameters.outputPath, parameters.actionTypes);
+        output.writeParameters(parameters);
+
+        // The aggregates have to be written by the time the summary reads them back, see run()
+        sinks = new SinkPipeline(parameters.outputBufferSteps);
+        sinks.register("rawLog", output::incrementalWriteRawLog);
+        if (parameters.saveToDB) {
+            sinks.register("database", (step, transactions) -> Output.writeDatabaseLog(parameters.dbUrl,
+                    parameters.dbUser, parameters.dbPassword, transactions, simulationName));
+        }
+        sinks.register("aggregates", output::incrementalWriteStepAggregate);
+    }
+
+    /**
+     * Add a sink of its own for the transactions of every step, before running the simulation.
+     *
+     * @param name name of the sink
+     * @param sink the sink
+     * @return the stage of the sink in the pipeline, to follow how it keeps up
+     */
+    public SinkPipeline.Stage addSink(String name, StepSink sink) {
+        return sinks.register(name, sink);
+    }
+
+    public List<SinkPipeline.Stage> getSinkStages() {
+        return sinks.getStages();
     }
 
     @Override
@@ -68,11 +106,7 @@ public class OriginalPaySim extends PaySimState {
 
     @Override
     protected boolean onStep(long stepNum) {
-        if (stepNum > Integer.MAX_VALUE) {
-            System.err.println(String.format("Reached MAX_INT number of steps (%d). Aborting.", Integer.MAX_VALUE));
-            return false;
-        }
-        currentStep = (int) stepNum + 1;
+        currentStep = stepNum + 1;
         writeOutputStep();
 
         if (stepNum % 100 == 100 - 1) {
@@ -88,9 +122,17 @@ public class OriginalPaySim extends PaySimState {
         System.out.println("\nStarting PaySim Running for " + parameters.nbSteps + " steps.");
         long startTime = System.currentTimeMillis();
 
-        runSimulation();
+        try {
+            runSimulation();
+        } finally {
+            sinks.close();
+        }
 
         System.out.println("\nFinished running " + currentStep + " steps ");
+        for (SinkPipeline.Stage stage : sinks.getStages()) {
+            System.out.println(" Sink " + stage);
+        }
+        System.out.println(" Action distributions: " + actionDistributions);
         finish();
 
         double total = System.currentTimeMillis() - startTime;
@@ -100,10 +142,23 @@ public class OriginalPaySim extends PaySimState {
         System.out.println();
     }
 
+    @Override
+    protected void writeCheckpointState(DataOutputStream out) throws IOException {
+        out.writeLong(totalTransactionsMade);
+        out.writeLong(stepParticipated);
+    }
+
+    @Override
+    protected void readCheckpointState(DataInputStream in) throws IOException {
+        totalTransactionsMade = in.readLong();
+        stepParticipated = in.readLong();
+        currentStep = getCurrentStep();
+    }
+
     public void finish() {
-        Output.writeFraudsters(fraudsters);
-        Output.writeClientsProfiles(countProfileAssignment, (int) (parameters.nbClients * parameters.multiplier));
-        Output.writeSummarySimulation(this);
+        output.writeFraudsters(fraudsters);
+        output.writeClientsProfiles(countProfileAssignment, (int) (parameters.nbClients * parameters.multiplier));
+        output.writeSummarySimulation(this);
     }
 
     private void resetVariables() {
@@ -118,20 +173,16 @@ public class OriginalPaySim extends PaySimState {
 
         totalTransactionsMade += transactions.size();
 
-        Output.incrementalWriteRawLog(currentStep, transactions);
-        if (parameters.saveToDB) {
-            Output.writeDatabaseLog(parameters.dbUrl, parameters.dbUser, parameters.dbPassword, transactions, simulationName);
-        }
-
-        Output.incrementalWriteStepAggregate(currentStep, transactions);
+        // Every sink gets the same list, the next step adds to a new one
+        sinks.publish(currentStep, transactions);
         resetVariables();
     }
 
-    public int getTotalTransactions() {
+    public long getTotalTransactions() {
         return totalTransactionsMade;
     }
 
-    public int getStepParticipated() {
+    public long getStepParticipated() {
         return stepParticipated;
     }
 
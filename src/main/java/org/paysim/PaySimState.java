@@ -2,25 +2,39 @@ package org.paysim;
 
 import ec.util.MersenneTwisterFast;
 import org.paysim.actors.*;
+import org.paysim.base.ActionDistributionCache;
 import org.paysim.base.ClientActionProfile;
 import org.paysim.base.StepActionProfile;
 import org.paysim.base.Transaction;
+import org.paysim.engine.*;
 import org.paysim.identity.ClientIdentity;
-import org.paysim.identity.IdentityFactory;
-import org.paysim.parameters.ActionTypes;
-import org.paysim.parameters.BalancesClients;
+import org.paysim.identity.IdentityProvider;
 import org.paysim.parameters.Parameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sim.engine.SimState;
-
+import sim.engine.Steppable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public abstract class PaySimState extends SimState {
+public abstract class PaySimState extends SimState implements StepContext {
     public static final double PAYSIM_VERSION = 2.4;
+    // Stream of the identities drawn once the population is in place, when populations are cached
+    private static final int POPULATION_CACHE_STREAM = Integer.MIN_VALUE;
 
     private final Logger logger = LoggerFactory.getLogger(PaySimState.class);
     protected Parameters parameters;
@@ -29,47 +43,215 @@ public abstract class PaySimState extends SimState {
     protected List<Merchant> merchants = new ArrayList<>();
     protected List<SuperActor> fraudsters = new ArrayList<>();
     protected List<Bank> banks = new ArrayList<>();
+    protected final ClientStore clientStore = new ClientStore();
+    protected final ActorDictionary actorDictionary = new ActorDictionary();
+    protected final ActionDistributionCache actionDistributions;
 
     protected Map<ClientActionProfile, Integer> countProfileAssignment = new HashMap<>();
 
-    protected IdentityFactory idFactory;
+    protected IdentityProvider idProvider;
 
     long currentStep = 0;
+    private int nbInitialClients = 0;
+    private Path resumeFrom;
+
+    // Forking: the simulation this one branches off, and what branches of this one carry on from
+    private final PaySimState origin;
+    private long pauseStep = Long.MAX_VALUE;
+    private byte[] forkState;
+    private final AtomicInteger nbBranches = new AtomicInteger(0);
 
     public PaySimState(Parameters parameters) {
         super(parameters.seed);
         this.parameters = parameters;
-        BalancesClients.setRandom(super.random);
-        parameters.clientsProfiles.setRandom(super.random);
+        this.origin = null;
+        this.actionDistributions = new ActionDistributionCache(parameters);
 
-        idFactory = new IdentityFactory(Math.toIntExact(super.seed()));
+        idProvider = parameters.identitySource.create(Math.toIntExact(super.seed()),
+                parameters.permutedCardNumbers);
     }
 
+    /**
+     * Branch off another simulation paused with {@link #pauseBefore(long)}, e.g. to try other fraud probabilities
+     * from the same warmed up state. The branch carries on from the step the other simulation paused at, its actors
+     * sharing what they can with the original ones (see {@link ActorFork}). Any number of branches can be forked
+     * off the same simulation and run at the same time.
+     *
+     * The branch may only change settings read while stepping, such as the fraud probabilities: the population,
+     * the profiles and how the actors are stepped come with the original simulation. Mules opened by the branch
+     * get identities of their own rather than those the original simulation would have drawn.
+     *
+     * @param parameters parameters of the branch
+     * @param origin the simulation to branch off
+     */
+    public PaySimState(Parameters parameters, PaySimState origin) {
+        super(origin.parameters.seed);
+        if (origin.forkState == null) {
+            throw new IllegalStateException("can only branch off a simulation paused between two steps");
+        }
+        Parameters originParameters = origin.parameters;
+        if (parameters.nbSteps != originParameters.nbSteps || parameters.continuous != originParameters.continuous
+                || parameters.multiplier != originParameters.multiplier
+                || parameters.scheduler != originParameters.scheduler
+                || parameters.parallelism != originParameters.parallelism
+                || parameters.nbShards != originParameters.nbShards
+                || !Objects.equals(parameters.transactionsTypes, originParameters.transactionsTypes)
+                || !Objects.equals(parameters.aggregatedTransactions, originParameters.aggregatedTransactions)
+                || !Objects.equals(parameters.clientsProfilesFile, originParameters.clientsProfilesFile)) {
+            throw new IllegalArgumentException("a branch can't change the steps, profiles or scheduling of a simulation");
+        }
+        this.parameters = parameters;
+        this.origin = origin;
+        this.actionDistributions = new ActionDistributionCache(parameters);
+
+        // Negative streams, apart from those of the workers
+        idProvider = parameters.identitySource.create(origin.deriveRNG(-origin.nbBranches.incrementAndGet()).nextInt(),
+                parameters.permutedCardNumbers);
+    }
+
+    @Override
     public abstract boolean onTransactions(List<Transaction> transactions);
 
     protected abstract boolean onStep(long stepNum);
 
     public abstract void run();
 
+    /**
+     * Carry on from a checkpoint written by a previous run with the same parameters, instead of starting from the
+     * first step. Takes effect on the next run.
+     *
+     * @param checkpoint the checkpoint file, null to start from the first step
+     */
+    public void resumeFrom(Path checkpoint) {
+        this.resumeFrom = checkpoint;
+    }
+
+    /**
+     * Make the next run stop before a given step, keeping the state it reached for branches to be forked off it.
+     *
+     * @param step the step to stop before
+     */
+    public void pauseBefore(long step) {
+        this.pauseStep = step;
+    }
+
     protected void runSimulation() {
+        if ((resumeFrom != null || parameters.checkpointInterval > 0 || pauseStep != Long.MAX_VALUE
+                || origin != null) && usesMasonSchedule()) {
+            throw new IllegalStateException("MASON's schedule can't be checkpointed or forked, use another scheduler");
+        }
         currentStep = 0;
         super.start();
-        initCounters();
-        initActors();
+        if (origin != null) {
+            countProfileAssignment.putAll(origin.countProfileAssignment);
+            ActorFork.fork(origin, this);
+            nbInitialClients = origin.nbInitialClients;
+        } else {
+            initCounters();
+            if (parameters.populationCache != null) {
+                initCachedActors();
+            } else {
+                initActors();
+            }
+            scheduleActors();
+            nbInitialClients = clients.size();
+        }
 
-        while ((currentStep = schedule.getSteps()) < parameters.nbSteps) {
-            if (!schedule.step(this))
-                break;
-            if (!onStep(currentStep))
-                break;
-            if (currentStep > Integer.MAX_VALUE) // not supported yet
-                break;
+        Stepper stepper = createStepper();
+        try {
+            if (origin != null) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(origin.forkState));
+                currentStep = in.readLong();
+                stepper.readState(in);
+                random.readState(in);
+            } else if (resumeFrom != null) {
+                logger.info("Resuming from " + resumeFrom);
+                Checkpoint.read(this, stepper, nbInitialClients, resumeFrom);
+            }
+            while ((parameters.continuous || currentStep < parameters.nbSteps) && currentStep < pauseStep) {
+                if (!stepper.step())
+                    break;
+                if (!onStep(currentStep))
+                    break;
+                currentStep++;
+                if (parameters.checkpointInterval > 0 && currentStep % parameters.checkpointInterval == 0) {
+                    Checkpoint.write(this, stepper, nbInitialClients, Paths.get(parameters.checkpointPath));
+                }
+            }
+            if (currentStep == pauseStep) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeLong(currentStep);
+                stepper.writeState(out);
+                random.writeState(out);
+                out.flush();
+                forkState = bytes.toByteArray();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("checkpoint failed at step " + currentStep, e);
+        } finally {
+            stepper.shutdown();
         }
         super.finish();
     }
 
+    /**
+     * Write the state a subclass carries from one step to the next, for a checkpoint. Nothing by default.
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    protected void writeCheckpointState(DataOutputStream out) throws IOException {
+    }
+
+    /**
+     * Restore the state written by {@link #writeCheckpointState(DataOutputStream)}.
+     *
+     * @param in where to read from
+     * @throws IOException if reading fails
+     */
+    protected void readCheckpointState(DataInputStream in) throws IOException {
+    }
+
+    /**
+     * @return the Stepper driving the actors
+     */
+    private Stepper createStepper() {
+        if (parameters.nbShards > 1) {
+            int threads = parameters.parallelism > 1 ? parameters.parallelism : parameters.nbShards;
+            return new ShardedStepper(this, parameters.nbShards, threads);
+        }
+        if (parameters.parallelism > 1) {
+            return new ParallelStepper(this, parameters.parallelism);
+        }
+        if (parameters.scheduler == Scheduler.MASON) {
+            return new MasonStepper(this);
+        }
+        if (parameters.scheduler == Scheduler.SPARSE) {
+            return new SparseStepper(this);
+        }
+        if (parameters.scheduler == Scheduler.ALLOCATED) {
+            return new AllocatingStepper(this);
+        }
+
+        // Same order as the actors get registered with MASON's schedule
+        List<Steppable> actors = new ArrayList<>(fraudsters.size() + clients.size());
+        for (SuperActor fraudster : fraudsters) {
+            actors.add((Steppable) fraudster);
+        }
+        actors.addAll(getInitialClients());
+        return new FlatStepper(this, actors, parameters.scheduler == Scheduler.SHUFFLED);
+    }
+
+    /**
+     * @return true if the actors have to be registered with MASON's schedule
+     */
+    private boolean usesMasonSchedule() {
+        return parameters.parallelism <= 1 && parameters.nbShards <= 1 && parameters.scheduler == Scheduler.MASON;
+    }
+
     private void initCounters() {
-        for (String action : ActionTypes.getActions()) {
+        for (String action : parameters.actionTypes.getActions()) {
             for (ClientActionProfile clientActionProfile : parameters.clientsProfiles.getProfilesFromAction(action)) {
                 countProfileAssignment.put(clientActionProfile, 0);
             }
@@ -81,9 +263,9 @@ public abstract class PaySimState extends SimState {
 
         //Add the banks first since Clients/Mules depend on their existence
         logger.info("NbBanks: " + parameters.nbBanks);
+        IdentityProvider bankIdProvider = getBankIdentityProvider();
         for (int i = 0; i < parameters.nbBanks; i++) {
-            String name = idFactory.nextMerchantName();
-            Bank b = new Bank(this, idFactory.nextBank());
+            Bank b = new Bank(this, bankIdProvider.nextBank());
             banks.add(b);
         }
 
@@ -91,7 +273,7 @@ public abstract class PaySimState extends SimState {
         final int numMerchants = (int) (parameters.nbMerchants * parameters.multiplier);
         logger.info("NbMerchants: " + numMerchants);
         for (int i = 0; i < numMerchants; i++) {
-            merchants.add(new Merchant(this, idFactory.nextMerchant()));
+            merchants.add(new Merchant(this, idProvider.nextMerchant()));
         }
 
         // We take a sample of the merchant population and set some as "high risk"
@@ -109,8 +291,8 @@ public abstract class PaySimState extends SimState {
         //Add the 3rd Party fraudsters
         final int num3rdPartyFraudsters = numFraudsters / 2;
         for (int i = 0; i < num3rdPartyFraudsters; i++) {
-            ClientIdentity identity = idFactory.nextPerson();
-            ThirdPartyFraudster f = new ThirdPartyFraudster(this, idFactory.nextPerson());
+            ClientIdentity identity = idProvider.nextPerson();
+            ThirdPartyFraudster f = new ThirdPartyFraudster(this, idProvider.nextPerson());
 
             // 3rd Party Fraudsters select some "favorites" of the high-risk merchants. A Fraudster will have
             // some probability of targeting clients that used these merchants. The remaining events are random
@@ -119,19 +301,18 @@ public abstract class PaySimState extends SimState {
             f.addFavoredMerchant(highRiskMerchants.get(random.nextInt(highRiskMerchants.size())));
 
             fraudsters.add(f);
-            schedule.scheduleRepeating(f);
         }
 
         //Add the 1st Party fraudsters
         for (int i = 0; i < numFraudsters - num3rdPartyFraudsters; i++) {
-            FirstPartyFraudster f = new FirstPartyFraudster(this, idFactory.nextPerson());
+            FirstPartyFraudster f = new FirstPartyFraudster(this, idProvider.nextPerson());
             fraudsters.add(f);
-            schedule.scheduleRepeating(f);
         }
 
         //Add the clients
         final int numClients = (int) (parameters.nbClients * parameters.multiplier);
         logger.info("NbClients: " + numClients);
+        clientStore.ensureCapacity(clientStore.size() + numClients);
         for (int i = 0; i < numClients; i++) {
             Client c = new Client(this);
             clients.add(c);
@@ -139,18 +320,66 @@ public abstract class PaySimState extends SimState {
 
         // XXX: Disable drug network for now
         //NetworkDrug.createNetwork(this, parameters.typologiesFolder + TypologiesFiles.drugNetworkOne);
+    }
+
+    /**
+     * Load the population from the cache when it holds one for these parameters, otherwise draw it and add it to
+     * the cache. Either way, the identities of the accounts opened from then on come from a stream of their own,
+     * so a run makes the same transactions whether it found its population in the cache or not.
+     */
+    private void initCachedActors() {
+        Path path;
+        try {
+            path = PopulationCache.pathOf(parameters);
+        } catch (IOException e) {
+            throw new UncheckedIOException("can't hash the parameters of the population", e);
+        }
+        if (Files.exists(path)) {
+            logger.info("Loading the population from " + path);
+            try {
+                PopulationCache.read(this, path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("loading the population failed", e);
+            }
+        } else {
+            initActors();
+            try {
+                PopulationCache.write(this, path);
+            } catch (IOException e) {
+                logger.warn("can't cache the population in " + path, e);
+            }
+        }
+        idProvider = parameters.identitySource.create(deriveRNG(POPULATION_CACHE_STREAM).nextInt(),
+                parameters.permutedCardNumbers);
+        ActorPopulation.reserveIdentities(this, idProvider);
+    }
 
-        // Do not write code under this part otherwise clients will not be used in simulation
-        // Schedule clients to act at each step of the simulation
-        for (Client c : clients) {
-            schedule.scheduleRepeating(c);
+    /**
+     * Schedule the actors to act at each step of the simulation, when MASON's schedule drives them (other
+     * Steppers walk the lists themselves).
+     */
+    private void scheduleActors() {
+        if (usesMasonSchedule()) {
+            for (SuperActor fraudster : fraudsters) {
+                schedule.scheduleRepeating((Steppable) fraudster);
+            }
+            for (Client c : clients) {
+                schedule.scheduleRepeating(c);
+            }
         }
     }
 
+    /**
+     * @return the IdentityProvider naming the banks, by default the one shared by all actors
+     */
+    protected IdentityProvider getBankIdentityProvider() {
+        return idProvider;
+    }
+
     public Map<String, ClientActionProfile> pickNextClientProfile() {
         Map<String, ClientActionProfile> profile = new HashMap<>();
-        for (String action : ActionTypes.getActions()) {
-            ClientActionProfile clientActionProfile = parameters.clientsProfiles.pickNextActionProfile(action);
+        for (String action : parameters.actionTypes.getActions()) {
+            ClientActionProfile clientActionProfile = parameters.clientsProfiles.pickNextActionProfile(action, random);
 
             profile.put(action, clientActionProfile);
 
@@ -160,10 +389,26 @@ public abstract class PaySimState extends SimState {
         return profile;
     }
 
+    @Override
     public MersenneTwisterFast getRNG() {
         return super.random;
     }
 
+    /**
+     * Derive an independent RNG stream from the simulation seed, e.g. for a parallel worker.
+     *
+     * @param stream index of the stream, 0 is reserved for the simulation RNG itself
+     * @return a new MersenneTwisterFast
+     */
+    public MersenneTwisterFast deriveRNG(int stream) {
+        return new MersenneTwisterFast(new int[]{(int) seed(), stream});
+    }
+
+    @Override
+    public long getCurrentStep() {
+        return currentStep;
+    }
+
     public String generateId() {
         final String alphabet = "0123456789";
         final int sizeId = 10;
@@ -175,18 +420,32 @@ public abstract class PaySimState extends SimState {
     }
 
     public ClientIdentity generateIdentity() {
-        return idFactory.nextPerson();
+        return idProvider.nextPerson();
     }
 
+    @Override
     public Merchant pickRandomMerchant() {
+        return pickRandomMerchant(random);
+    }
+
+    public Merchant pickRandomMerchant(MersenneTwisterFast random) {
         return merchants.get(random.nextInt(merchants.size()));
     }
 
+    @Override
+    public Merchant getMerchant(int ordinal) {
+        return merchants.get(ordinal);
+    }
+
     public Bank pickRandomBank() {
         return banks.get(random.nextInt(banks.size()));
     }
 
     public Client pickRandomClient(String originatingId) {
+        return pickRandomClient(random, originatingId);
+    }
+
+    public Client pickRandomClient(MersenneTwisterFast random, String originatingId) {
         Client clientDest = null;
 
         String nameDest = originatingId;
@@ -197,18 +456,52 @@ public abstract class PaySimState extends SimState {
         return clientDest;
     }
 
-    // XXX: The next few methods fudge {currentStep} to an int for now,
-    //      manually asserting in runSimulation()
+    @Override
+    public SuperActor pickTransferRecipient(String originatingId) {
+        return pickTransferRecipient(random, originatingId);
+    }
+
+    public SuperActor pickTransferRecipient(MersenneTwisterFast random, String originatingId) {
+        return pickRandomClient(random, originatingId);
+    }
+
+    // In continuous mode, steps past nbSteps go by the profiles of the matching step of an earlier cycle
+    @Override
     public int getStepTargetCount() {
-        return parameters.stepsProfiles.getTargetCount((int) currentStep);
+        return parameters.stepsProfiles.getTargetCount(currentStep);
+    }
+
+    /**
+     * An estimate, read from the step profiles, of the number of transactions the steps left to run will make. It can
+     * be called from other threads while the simulation runs, in which case it may lag by a step.
+     *
+     * @return the target counts of the steps left to run, Long.MAX_VALUE if the simulation runs until aborted
+     */
+    public long getRemainingTargetCount() {
+        final long lastStep = Math.min(parameters.continuous ? Long.MAX_VALUE : parameters.nbSteps, pauseStep);
+        if (lastStep == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        long count = 0;
+        for (long step = currentStep; step < lastStep; step++) {
+            count += parameters.stepsProfiles.getTargetCount(step);
+        }
+        return count;
+    }
+
+    @Override
+    public double[] getStepProbabilities() {
+        return parameters.stepsProfiles.getProbabilitiesPerStep(currentStep);
     }
 
-    public Map<String, Double> getStepProbabilities() {
-        return parameters.stepsProfiles.getProbabilitiesPerStep((int) currentStep);
+    @Override
+    public StepActionProfile getStepAction(int action) {
+        return parameters.stepsProfiles.getActionForStep(currentStep, action);
     }
 
-    public StepActionProfile getStepAction(String action) {
-        return parameters.stepsProfiles.getActionForStep((int) currentStep, action);
+    @Override
+    public void settle(SuperActor destination, Transaction transaction, Client originator, double amount) {
+        destination.settleIncoming(transaction, originator, amount);
     }
 
     public List<Merchant> getMerchants() {
@@ -223,14 +516,42 @@ public abstract class PaySimState extends SimState {
         return banks;
     }
 
+    /**
+     * @return the primitive state of all the clients, indexed by {@link Client#getOrdinal()}
+     */
+    public ClientStore getClientStore() {
+        return clientStore;
+    }
+
+    /**
+     * @return every actor of the simulation, indexed by {@link SuperActor#getActorId()}
+     */
+    public ActorDictionary getActorDictionary() {
+        return actorDictionary;
+    }
+
+    @Override
+    public ActionDistributionCache getActionDistributions() {
+        return actionDistributions;
+    }
+
     public List<Client> getClients() {
         return clients;
     }
 
+    /**
+     * @return the clients created when initializing the simulation, without the accounts fraudsters opened since,
+     * the same for a run and every branch forked off it
+     */
+    public List<Client> getInitialClients() {
+        return clients.subList(0, nbInitialClients);
+    }
+
     public void addClient(Client c) {
         clients.add(c);
     }
 
+    @Override
     public Parameters getParameters() {
         return parameters;
     }
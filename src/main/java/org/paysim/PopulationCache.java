@@ -0,0 +1,150 @@
+package org.paysim;
+
+import org.paysim.actors.ActorPopulation;
+import org.paysim.base.ClientActionProfile;
+import org.paysim.parameters.Parameters;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Binary file of the population a {@link PaySimState} starts out with, so that runs repeating a population skip
+ * generating it, most of which is spent drawing identities from jFairy.
+ *
+ * The file holds the actors as written by {@link ActorPopulation}, the profile assignment counts and the state of
+ * the RNG once the population is drawn. It is named after the seed and a hash of every setting and parameter file
+ * the population depends on, so changing any of them simply misses the cache. Reading maps the file in memory.
+ */
+final class PopulationCache {
+    private static final int MAGIC = 0x50535050; // "PSPP"
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private PopulationCache() {
+    }
+
+    /**
+     * @param parameters the parameters of the simulation, with a population cache directory
+     * @return the cache file of the population drawn from those parameters
+     * @throws IOException if a parameter file can't be read
+     */
+    static Path pathOf(Parameters parameters) throws IOException {
+        return Paths.get(parameters.populationCache,
+                String.format("population-%d-%016x.bin", parameters.seed, keyOf(parameters)));
+    }
+
+    private static long keyOf(Parameters parameters) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        String settings = String.join(",", String.valueOf(VERSION), String.valueOf(parameters.seed),
+                String.valueOf(parameters.multiplier), String.valueOf(parameters.nbClients),
+                String.valueOf(parameters.nbMerchants), String.valueOf(parameters.nbBanks),
+                String.valueOf(parameters.nbFraudsters), String.valueOf(parameters.thirdPartyPercentHighRiskMerchants),
+                parameters.identitySource.name(), String.valueOf(parameters.permutedCardNumbers));
+        digest.update(settings.getBytes(StandardCharsets.UTF_8));
+        for (String file : new String[]{parameters.transactionsTypes, parameters.maxOccurrencesPerClient,
+                parameters.clientsProfilesFile, parameters.initialBalancesDistribution, parameters.overdraftLimits}) {
+            digest.update(Files.readAllBytes(Paths.get(file)));
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    /**
+     * Write the population of a simulation, replacing any previous file at the same path only once fully written.
+     *
+     * @param state the simulation, right after initializing its actors
+     * @param path where to write
+     * @throws IOException if writing fails
+     */
+    static void write(PaySimState state, Path path) throws IOException {
+        final Path target = path.toAbsolutePath();
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            Parameters parameters = state.getParameters();
+            for (String action : parameters.actionTypes.getActions()) {
+                for (ClientActionProfile profile : parameters.clientsProfiles.getProfilesFromAction(action)) {
+                    out.writeInt(state.countProfileAssignment.get(profile));
+                }
+            }
+            ActorPopulation.write(out, state);
+
+            ByteArrayOutputStream random = new ByteArrayOutputStream();
+            state.random.writeState(new DataOutputStream(random));
+            out.writeInt(random.size());
+            random.writeTo(out);
+            out.writeInt(MAGIC);
+
+            out.flush();
+            channel.force(false);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Fill a simulation with the population of a cache file.
+     *
+     * @param state the simulation, without any actor yet
+     * @param path where to read from
+     * @throws IOException if reading fails, or the file is corrupted
+     */
+    static void read(PaySimState state, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC) {
+                throw new IOException(String.format("%s isn't a PaySim population", path));
+            }
+            final int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("unsupported population version %d in %s", version, path));
+            }
+
+            Parameters parameters = state.getParameters();
+            for (String action : parameters.actionTypes.getActions()) {
+                for (ClientActionProfile profile : parameters.clientsProfiles.getProfilesFromAction(action)) {
+                    state.countProfileAssignment.put(profile, in.getInt());
+                }
+            }
+            ActorPopulation.read(in, state);
+
+            byte[] random = new byte[in.getInt()];
+            in.get(random);
+            state.random.readState(new DataInputStream(new ByteArrayInputStream(random)));
+            if (in.getInt() != MAGIC) {
+                throw new IOException(String.format("population %s is corrupted", path));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException(String.format("population %s is truncated", path), e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.paysim.actors;
+
+import org.paysim.PaySimState;
+import org.paysim.base.ClientActionProfile;
+import org.paysim.base.ClientProfile;
+import org.paysim.identity.ClientIdentity;
+import org.paysim.identity.Properties;
+import org.paysim.parameters.Parameters;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Writes and reads the state the actors of a {@link PaySimState} pick up while it runs, for a checkpoint: balances,
+ * the merchants and clients they remember, the victims of 3rd party fraudsters and the mules 1st party fraudsters
+ * open along the way.
+ *
+ * Actors are referred to by their index in the lists of the PaySimState, clients by their ordinal. Reading expects
+ * the actors of the initial population to exist already, as they do once the simulation has been initialized
+ * again from the same parameters; only the mules opened after that get created here.
+ */
+public final class ActorCheckpoint {
+
+    private ActorCheckpoint() {
+    }
+
+    /**
+     * @param out where to write
+     * @param state the simulation, between two steps
+     * @param nbInitialClients number of clients created when initializing the simulation
+     * @throws IOException if writing fails
+     */
+    public static void write(DataOutputStream out, PaySimState state, int nbInitialClients) throws IOException {
+        writeFauxAccounts(out, state, nbInitialClients);
+
+        ClientStore store = state.getClientStore();
+        List<Client> clients = state.getClients();
+        out.writeInt(clients.size());
+        for (Client c : clients) {
+            final int ordinal = c.getOrdinal();
+            out.writeDouble(store.getBalance(ordinal));
+            out.writeDouble(store.getOverdraftLimit(ordinal));
+            out.writeDouble(store.getExpectedAvgTransaction(ordinal));
+            out.writeDouble(store.getBalanceMax(ordinal));
+            out.writeInt(store.getCountTransferTransactions(ordinal));
+
+            MerchantAffinity affinity = c.getMerchantAffinity();
+            final int nbMerchants = affinity == null ? 0 : affinity.size();
+            out.writeInt(nbMerchants);
+            for (int i = 0; i < nbMerchants; i++) {
+                out.writeInt(affinity.getMerchant(i));
+                out.writeInt(affinity.getCount(i));
+            }
+            out.writeInt(nbMerchants == 0 ? 0 : affinity.getCursor());
+            writeRecentClients(out, c);
+        }
+
+        for (SuperActor actor : nonClients(state)) {
+            out.writeDouble(actor.getBalance());
+            writeRecentClients(out, actor);
+            if (actor instanceof ThirdPartyFraudster) {
+                Set<Client> victims = ((ThirdPartyFraudster) actor).getVictims();
+                out.writeInt(victims.size());
+                for (Client victim : victims) {
+                    out.writeInt(victim.getOrdinal());
+                }
+            }
+        }
+    }
+
+    /**
+     * @param in where to read from
+     * @param state the simulation, initialized again from the parameters it was checkpointed with
+     * @param nbInitialClients number of clients created when initializing the simulation
+     * @throws IOException if reading fails
+     */
+    public static void read(DataInputStream in, PaySimState state, int nbInitialClients) throws IOException {
+        if (state.getClients().size() != nbInitialClients) {
+            throw new IllegalStateException("a checkpoint can only be restored right after initializing the actors");
+        }
+        readFauxAccounts(in, state);
+
+        ClientStore store = state.getClientStore();
+        List<Client> clients = state.getClients();
+        Client[] byOrdinal = new Client[store.size()];
+        for (Client c : clients) {
+            byOrdinal[c.getOrdinal()] = c;
+        }
+
+        final int nbClients = in.readInt();
+        if (nbClients != clients.size()) {
+            throw new IOException(String.format("checkpoint holds %d clients, expected %d", nbClients, clients.size()));
+        }
+        final int merchantAffinitySize = state.getParameters().merchantAffinitySize;
+        for (Client c : clients) {
+            final int ordinal = c.getOrdinal();
+            store.setBalance(ordinal, in.readDouble());
+            store.setOverdraftLimit(ordinal, in.readDouble());
+            store.setExpectedAvgTransaction(ordinal, in.readDouble());
+            store.setBalanceMax(ordinal, in.readDouble());
+            store.setCountTransferTransactions(ordinal, in.readInt());
+
+            final int nbMerchants = in.readInt();
+            MerchantAffinity affinity = null;
+            if (nbMerchants > 0) {
+                affinity = new MerchantAffinity(merchantAffinitySize);
+                for (int i = 0; i < nbMerchants; i++) {
+                    affinity.add(in.readInt(), in.readInt());
+                }
+            }
+            final int cursor = in.readInt();
+            if (affinity != null) {
+                affinity.setCursor(cursor);
+            }
+            c.setMerchantAffinity(affinity);
+            c.setRecentClients(readClients(in, byOrdinal));
+        }
+
+        for (SuperActor actor : nonClients(state)) {
+            actor.setBalance(in.readDouble());
+            actor.setRecentClients(readClients(in, byOrdinal));
+            if (actor instanceof ThirdPartyFraudster) {
+                Set<Client> victims = ((ThirdPartyFraudster) actor).getVictims();
+                victims.clear();
+                victims.addAll(readClients(in, byOrdinal));
+            }
+        }
+    }
+
+    private static void writeFauxAccounts(DataOutputStream out, PaySimState state, int nbInitialClients)
+            throws IOException {
+        Parameters parameters = state.getParameters();
+        Map<Bank, Integer> bankIndex = indexOf(state.getBanks());
+        Map<Client, Integer> owners = new IdentityHashMap<>();
+        List<SuperActor> fraudsters = state.getFraudsters();
+        for (int i = 0; i < fraudsters.size(); i++) {
+            if (fraudsters.get(i) instanceof FirstPartyFraudster) {
+                for (Mule m : ((FirstPartyFraudster) fraudsters.get(i)).fauxAccounts) {
+                    owners.put(m, i);
+                }
+            }
+        }
+
+        List<Client> clients = state.getClients();
+        out.writeInt(clients.size() - nbInitialClients);
+        for (Client c : clients.subList(nbInitialClients, clients.size())) {
+            Integer owner = owners.get(c);
+            if (owner == null) {
+                throw new IllegalStateException(String.format(
+                        "can't checkpoint %s, only the faux accounts of 1st party fraudsters may be opened during a run", c));
+            }
+            ClientIdentity identity = c.getClientIdentity();
+            out.writeInt(owner);
+            out.writeInt(bankIndex.get(c.getBank()));
+            out.writeUTF(identity.ssn);
+            out.writeUTF(identity.email);
+            out.writeUTF(identity.phoneNumber);
+
+            ClientProfile profile = c.getClientProfile();
+            for (String action : parameters.actionTypes.getActions()) {
+                out.writeInt(indexOf(parameters.clientsProfiles.getProfilesFromAction(action),
+                        profile.getProfilePerAction(action)));
+                out.writeInt(profile.getTargetCount(action));
+            }
+        }
+    }
+
+    private static void readFauxAccounts(DataInputStream in, PaySimState state) throws IOException {
+        Parameters parameters = state.getParameters();
+        Map<String, List<ClientActionProfile>> profilesPerAction = new HashMap<>();
+        for (String action : parameters.actionTypes.getActions()) {
+            profilesPerAction.put(action, new ArrayList<>(parameters.clientsProfiles.getProfilesFromAction(action)));
+        }
+
+        final int nbFauxAccounts = in.readInt();
+        for (int i = 0; i < nbFauxAccounts; i++) {
+            FirstPartyFraudster owner = (FirstPartyFraudster) state.getFraudsters().get(in.readInt());
+            Bank bank = state.getBanks().get(in.readInt());
+            final String ssn = in.readUTF();
+            final String email = in.readUTF();
+            final String phoneNumber = in.readUTF();
+
+            ClientActionProfile[] actionProfiles = new ClientActionProfile[parameters.actionTypes.size()];
+            int[] targetCounts = new int[parameters.actionTypes.size()];
+            for (int action = 0; action < actionProfiles.length; action++) {
+                actionProfiles[action] = profilesPerAction.get(parameters.actionTypes.getAction(action)).get(in.readInt());
+                targetCounts[action] = in.readInt();
+            }
+
+            // Draw the base identity again to keep the identity factory where the original run left it
+            ClientIdentity identity = state.generateIdentity()
+                    .replaceProperty(Properties.SSN, ssn)
+                    .replaceProperty(Properties.EMAIL, email)
+                    .replaceProperty(Properties.PHONE, phoneNumber);
+            Mule m = new Mule(state, identity, bank, new ClientProfile(actionProfiles, targetCounts, parameters.actionTypes));
+            owner.fauxAccounts.add(m);
+            state.addClient(m);
+        }
+    }
+
+    private static void writeRecentClients(DataOutputStream out, SuperActor actor) throws IOException {
+        List<Client> recentClients = actor.getRecentClients();
+        out.writeInt(recentClients.size());
+        for (Client c : recentClients) {
+            out.writeInt(c.getOrdinal());
+        }
+    }
+
+    private static List<Client> readClients(DataInputStream in, Client[] byOrdinal) throws IOException {
+        final int size = in.readInt();
+        List<Client> clients = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            clients.add(byOrdinal[in.readInt()]);
+        }
+        return clients;
+    }
+
+    private static List<SuperActor> nonClients(PaySimState state) {
+        List<SuperActor> actors = new ArrayList<>();
+        actors.addAll(state.getMerchants());
+        actors.addAll(state.getBanks());
+        actors.addAll(state.getFraudsters());
+        return actors;
+    }
+
+    private static <T> Map<T, Integer> indexOf(List<T> actors) {
+        Map<T, Integer> index = new IdentityHashMap<>(actors.size());
+        for (int i = 0; i < actors.size(); i++) {
+            index.put(actors.get(i), i);
+        }
+        return index;
+    }
+
+    private static <T> int indexOf(Collection<T> items, T item) {
+        int i = 0;
+        for (T candidate : items) {
+            if (candidate == item) {
+                return i;
+            }
+            i++;
+        }
+        throw new IllegalStateException(String.format("%s isn't one of the profiles of the simulation", item));
+    }
+}
@@ -0,0 +1,48 @@
+package org.paysim.actors;
+
+import java.util.Arrays;
+
+/**
+ * Every actor of a simulation, indexed by a dense id handed out as the actors are created. Transactions refer to
+ * their actors by these ids and resolve identities through the dictionary only when asked, so they carry two ints
+ * rather than four strings, and sinks can key their output on the ids.
+ *
+ * Like the ClientStore, actors are only created during the sequential phases of a step, so the dictionary doesn't
+ * synchronize its growth. Readers on other threads, e.g. consumers of the transactions, always see the actors of
+ * the transactions handed to them: the array only grows and is republished on every growth.
+ */
+public class ActorDictionary {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private volatile SuperActor[] actors = new SuperActor[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * @param actor a new actor
+     * @return the id of the actor
+     */
+    int register(SuperActor actor) {
+        SuperActor[] current = actors;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length + (current.length >> 1));
+        }
+        current[size] = actor;
+        actors = current;
+        return size++;
+    }
+
+    /**
+     * @param id the id of an actor, as returned by {@link SuperActor#getActorId()}
+     * @return the actor
+     */
+    public SuperActor get(int id) {
+        return actors[id];
+    }
+
+    /**
+     * @return the number of actors in the dictionary
+     */
+    public int size() {
+        return size;
+    }
+}
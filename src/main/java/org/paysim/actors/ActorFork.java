@@ -0,0 +1,106 @@
+package org.paysim.actors;
+
+import org.paysim.PaySimState;
+import org.paysim.parameters.Parameters;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forks the actors of a simulation stopped between two steps into a branch that carries on from there, e.g. with
+ * other fraud probabilities.
+ *
+ * The branch gets actors of its own, but they share everything that doesn't change anymore with the original ones:
+ * identities, profiles and the fraudsters' stolen identities. The clients' values stay in the original's
+ * {@link ClientStore} arrays until the branch writes to them, and the merchants and clients every actor remembers
+ * are only copied over when the actor first adds to them. The original simulation must not step anymore, but any
+ * number of branches can be forked off it and run at the same time.
+ */
+public final class ActorFork {
+    private final Map<Bank, Bank> banks;
+    private final Map<Merchant, Merchant> merchants;
+    private final Client[] clients;
+
+    private ActorFork(PaySimState origin) {
+        banks = new IdentityHashMap<>(origin.getBanks().size());
+        merchants = new IdentityHashMap<>(origin.getMerchants().size());
+        clients = new Client[origin.getClientStore().size()];
+    }
+
+    /**
+     * Fill an empty branch with forks of the actors of another simulation.
+     *
+     * @param origin the simulation to fork, between two steps
+     * @param branch the branch, without any actor yet
+     */
+    public static void fork(PaySimState origin, PaySimState branch) {
+        if (!branch.getClients().isEmpty()) {
+            throw new IllegalStateException("can only fork actors into an empty simulation");
+        }
+        ActorFork fork = new ActorFork(origin);
+        branch.getClientStore().shareFrom(origin.getClientStore());
+        Parameters parameters = branch.getParameters();
+        if (parameters.parallelism > 1 || parameters.nbShards > 1) {
+            // Lanes and shards would race to copy the arrays on their first writes
+            branch.getClientStore().unshareAll();
+        }
+
+        for (Bank b : origin.getBanks()) {
+            Bank forked = new Bank(branch, b, fork);
+            fork.banks.put(b, forked);
+            branch.getBanks().add(forked);
+        }
+        for (Merchant m : origin.getMerchants()) {
+            Merchant forked = new Merchant(branch, m, fork);
+            fork.merchants.put(m, forked);
+            branch.getMerchants().add(forked);
+        }
+        for (Client c : origin.getClients()) {
+            Client forked;
+            if (c.getClass() == Client.class) {
+                forked = new Client(branch, c, fork);
+            } else if (c.getClass() == Mule.class) {
+                forked = new Mule(branch, (Mule) c, fork);
+            } else {
+                throw new UnsupportedOperationException("can't fork a " + c.getClass().getSimpleName());
+            }
+            fork.clients[c.getOrdinal()] = forked;
+            branch.addClient(forked);
+        }
+        for (SuperActor f : origin.getFraudsters()) {
+            if (f instanceof ThirdPartyFraudster) {
+                branch.getFraudsters().add(new ThirdPartyFraudster(branch, (ThirdPartyFraudster) f, fork));
+            } else if (f instanceof FirstPartyFraudster) {
+                branch.getFraudsters().add(new FirstPartyFraudster(branch, (FirstPartyFraudster) f, fork));
+            } else {
+                throw new UnsupportedOperationException("can't fork a " + f.getClass().getSimpleName());
+            }
+        }
+    }
+
+    Bank bank(Bank origin) {
+        return banks.get(origin);
+    }
+
+    Client client(Client origin) {
+        return clients[origin.getOrdinal()];
+    }
+
+    List<Client> clients(List<Client> origin) {
+        List<Client> forked = new ArrayList<>(origin.size());
+        for (Client c : origin) {
+            forked.add(client(c));
+        }
+        return forked;
+    }
+
+    List<Merchant> merchants(List<Merchant> origin) {
+        List<Merchant> forked = new ArrayList<>(origin.size());
+        for (Merchant m : origin) {
+            forked.add(merchants.get(m));
+        }
+        return forked;
+    }
+}
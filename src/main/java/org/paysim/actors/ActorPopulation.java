@@ -0,0 +1,246 @@
+package org.paysim.actors;
+
+import org.paysim.PaySimState;
+import org.paysim.base.ClientActionProfile;
+import org.paysim.base.ClientProfile;
+import org.paysim.identity.BankIdentity;
+import org.paysim.identity.ClientIdentity;
+import org.paysim.identity.HasClientIdentity;
+import org.paysim.identity.IdentityProvider;
+import org.paysim.identity.MerchantIdentity;
+import org.paysim.parameters.Parameters;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes the actors of a freshly initialized {@link PaySimState}, and rebuilds them later without drawing anything,
+ * for a population cache: identities, banks and profiles of the clients, their balances, overdraft limits and
+ * expected transaction amounts, the high risk merchants and the fraudsters along with their mules and favored
+ * merchants.
+ *
+ * Actors are written in the order they were created in and referred to by their index, clients by their ordinal,
+ * so the rebuilt population has the same ordinals and iterates in the same order as the original one. Reading
+ * goes through a ByteBuffer, usually mapping the cache file.
+ */
+public final class ActorPopulation {
+    private static final byte CLIENT = 0, MULE = 1;
+    private static final byte THIRD_PARTY_FRAUDSTER = 0, FIRST_PARTY_FRAUDSTER = 1;
+
+    private ActorPopulation() {
+    }
+
+    /**
+     * @param out where to write
+     * @param state the simulation, right after initializing its actors
+     * @throws IOException if writing fails
+     */
+    public static void write(DataOutputStream out, PaySimState state) throws IOException {
+        Parameters parameters = state.getParameters();
+
+        List<Bank> banks = state.getBanks();
+        out.writeInt(banks.size());
+        for (Bank b : banks) {
+            writeString(out, b.getId());
+            writeString(out, b.getName());
+        }
+
+        List<Merchant> merchants = state.getMerchants();
+        out.writeInt(merchants.size());
+        for (Merchant m : merchants) {
+            writeString(out, m.getId());
+            writeString(out, m.getName());
+            out.writeBoolean(m.isHighRisk());
+        }
+
+        Map<Bank, Integer> bankIndex = indexOf(banks);
+        ClientStore store = state.getClientStore();
+        List<Client> clients = state.getClients();
+        out.writeInt(clients.size());
+        for (Client c : clients) {
+            if (c.getClass() != Client.class && c.getClass() != Mule.class) {
+                throw new IllegalStateException(String.format("can't cache %s, only clients and mules", c));
+            }
+            out.writeByte(c instanceof Mule ? MULE : CLIENT);
+            writeIdentity(out, c.getClientIdentity());
+            out.writeInt(bankIndex.get(c.getBank()));
+
+            ClientProfile profile = c.getClientProfile();
+            for (String action : parameters.actionTypes.getActions()) {
+                out.writeInt(indexOf(parameters.clientsProfiles.getProfilesFromAction(action),
+                        profile.getProfilePerAction(action)));
+                out.writeInt(profile.getTargetCount(action));
+            }
+            out.writeDouble(store.getBalance(c.getOrdinal()));
+            out.writeDouble(store.getOverdraftLimit(c.getOrdinal()));
+            out.writeDouble(store.getExpectedAvgTransaction(c.getOrdinal()));
+        }
+
+        Map<Merchant, Integer> merchantIndex = indexOf(merchants);
+        List<SuperActor> fraudsters = state.getFraudsters();
+        out.writeInt(fraudsters.size());
+        for (SuperActor actor : fraudsters) {
+            writeIdentity(out, ((HasClientIdentity) actor).getClientIdentity());
+            if (actor instanceof ThirdPartyFraudster) {
+                ThirdPartyFraudster f = (ThirdPartyFraudster) actor;
+                out.writeByte(THIRD_PARTY_FRAUDSTER);
+                out.writeInt(f.getMule().getOrdinal());
+                out.writeInt(f.getFavoredMerchants().size());
+                for (Merchant m : f.getFavoredMerchants()) {
+                    out.writeInt(merchantIndex.get(m));
+                }
+            } else if (actor instanceof FirstPartyFraudster) {
+                FirstPartyFraudster f = (FirstPartyFraudster) actor;
+                out.writeByte(FIRST_PARTY_FRAUDSTER);
+                out.writeInt(f.cashoutMule.getOrdinal());
+                out.writeInt(f.identities.size());
+                for (ClientIdentity identity : f.identities) {
+                    writeIdentity(out, identity);
+                }
+            } else {
+                throw new IllegalStateException(String.format("can't cache fraudster %s", actor));
+            }
+        }
+    }
+
+    /**
+     * @param in where to read from
+     * @param state the simulation, without any actor yet
+     */
+    public static void read(ByteBuffer in, PaySimState state) {
+        if (!state.getClients().isEmpty() || !state.getBanks().isEmpty()) {
+            throw new IllegalStateException("can only read a population into a simulation without actors");
+        }
+        Parameters parameters = state.getParameters();
+
+        final int nbBanks = in.getInt();
+        List<Bank> banks = state.getBanks();
+        for (int i = 0; i < nbBanks; i++) {
+            banks.add(new Bank(state, BankIdentity.restore(readString(in), readString(in))));
+        }
+
+        final int nbMerchants = in.getInt();
+        List<Merchant> merchants = state.getMerchants();
+        for (int i = 0; i < nbMerchants; i++) {
+            merchants.add(new Merchant(state, MerchantIdentity.restore(readString(in), readString(in),
+                    in.get() != 0)));
+        }
+
+        Map<String, List<ClientActionProfile>> profilesPerAction = new HashMap<>();
+        for (String action : parameters.actionTypes.getActions()) {
+            profilesPerAction.put(action, new ArrayList<>(parameters.clientsProfiles.getProfilesFromAction(action)));
+        }
+        final int nbClients = in.getInt();
+        state.getClientStore().ensureCapacity(state.getClientStore().size() + nbClients);
+        for (int i = 0; i < nbClients; i++) {
+            final byte type = in.get();
+            ClientIdentity identity = readIdentity(in);
+            Bank bank = banks.get(in.getInt());
+
+            ClientActionProfile[] actionProfiles = new ClientActionProfile[parameters.actionTypes.size()];
+            int[] targetCounts = new int[parameters.actionTypes.size()];
+            for (int action = 0; action < actionProfiles.length; action++) {
+                actionProfiles[action] = profilesPerAction.get(parameters.actionTypes.getAction(action)).get(in.getInt());
+                targetCounts[action] = in.getInt();
+            }
+            ClientProfile profile = new ClientProfile(actionProfiles, targetCounts, parameters.actionTypes);
+
+            Client c = type == MULE ? new Mule(state, identity, bank, profile)
+                    : new Client(state, identity, bank, profile);
+            c.setBalance(in.getDouble());
+            c.setOverdraftLimit(in.getDouble());
+            state.getClientStore().setExpectedAvgTransaction(c.getOrdinal(), in.getDouble());
+            state.addClient(c);
+        }
+
+        List<Client> clients = state.getClients();
+        final int nbFraudsters = in.getInt();
+        for (int i = 0; i < nbFraudsters; i++) {
+            ClientIdentity identity = readIdentity(in);
+            final byte type = in.get();
+            Mule mule = (Mule) clients.get(in.getInt());
+            if (type == THIRD_PARTY_FRAUDSTER) {
+                ThirdPartyFraudster f = new ThirdPartyFraudster(state, identity, mule);
+                final int nbFavored = in.getInt();
+                for (int j = 0; j < nbFavored; j++) {
+                    f.addFavoredMerchant(merchants.get(in.getInt()));
+                }
+                state.getFraudsters().add(f);
+            } else {
+                final int nbIdentities = in.getInt();
+                List<ClientIdentity> identities = new ArrayList<>(nbIdentities);
+                for (int j = 0; j < nbIdentities; j++) {
+                    identities.add(readIdentity(in));
+                }
+                state.getFraudsters().add(new FirstPartyFraudster(state, identity, identities, mule));
+            }
+        }
+    }
+
+    /**
+     * Keep the credit card numbers of all the people of a population from being drawn again by an IdentityProvider.
+     *
+     * @param state the simulation
+     * @param provider the IdentityProvider
+     */
+    public static void reserveIdentities(PaySimState state, IdentityProvider provider) {
+        for (Client c : state.getClients()) {
+            provider.reserveCreditCard(c.getClientIdentity().id);
+        }
+        for (SuperActor actor : state.getFraudsters()) {
+            provider.reserveCreditCard(((HasClientIdentity) actor).getClientIdentity().id);
+            if (actor instanceof FirstPartyFraudster) {
+                for (ClientIdentity identity : ((FirstPartyFraudster) actor).identities) {
+                    provider.reserveCreditCard(identity.id);
+                }
+            }
+        }
+    }
+
+    private static void writeIdentity(DataOutputStream out, ClientIdentity identity) throws IOException {
+        writeString(out, identity.id);
+        writeString(out, identity.name);
+        writeString(out, identity.email);
+        writeString(out, identity.ssn);
+        writeString(out, identity.phoneNumber);
+    }
+
+    private static ClientIdentity readIdentity(ByteBuffer in) {
+        return ClientIdentity.restore(readString(in), readString(in), readString(in), readString(in),
+                readString(in));
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static <T> Map<T, Integer> indexOf(List<T> actors) {
+        Map<T, Integer> index = new IdentityHashMap<>(actors.size());
+        for (int i = 0; i < actors.size(); i++) {
+            index.put(actors.get(i), i);
+        }
+        return index;
+    }
+
+    private static <T> int indexOf(Collection<T> items, T item) {
+        int i = 0;
+        for (T candidate : items) {
+            if (candidate == item) {
+                return i;
+            }
+            i++;
+        }
+        throw new IllegalStateException(String.format("%s isn't one of the profiles of the simulation", item));
+    }
+}
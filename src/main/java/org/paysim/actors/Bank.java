@@ -15,6 +15,11 @@ public class Bank extends SuperActor {
         this.identity = identity;
     }
 
+    Bank(PaySimState branch, Bank origin, ActorFork fork) {
+        super(branch, origin, fork);
+        this.identity = origin.identity;
+    }
+
     @Override
     public Type getType() {
         return Type.BANK;
@@ -2,18 +2,19 @@ package org.paysim.actors;
 
 import ec.util.MersenneTwisterFast;
 import org.paysim.PaySimState;
+import org.paysim.base.ActionDistributionCache;
+import org.paysim.base.ActionType;
 import org.paysim.base.ClientActionProfile;
 import org.paysim.base.ClientProfile;
-import org.paysim.base.StepActionProfile;
 import org.paysim.base.Transaction;
+import org.paysim.engine.ActivityCalendar;
+import org.paysim.engine.StepContext;
 import org.paysim.identity.ClientIdentity;
 import org.paysim.identity.HasClientIdentity;
 import org.paysim.identity.Identifiable;
 import org.paysim.identity.Identity;
-import org.paysim.parameters.ActionTypes;
-import org.paysim.parameters.BalancesClients;
 import org.paysim.utils.BoundedArrayDeque;
-import org.paysim.utils.RandomCollection;
+import org.paysim.utils.TruncatedNormal;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.util.distribution.Binomial;
@@ -29,38 +30,73 @@ public class Client extends SuperActor implements HasClientIdentity, Identifiabl
             PAYMENT = "PAYMENT", TRANSFER = "TRANSFER", DEPOSIT = "DEPOSIT";
     private final Bank bank;
     private final ClientProfile clientProfile;
-    private final double clientWeight;
-    private double balanceMax = 0;
-    private int countTransferTransactions = 0;
-    private double expectedAvgTransaction = 0;
-    private double initialBalance;
     private final ClientIdentity identity;
-    private final List<Merchant> usedMerchants = new ArrayList<>();
+    private final ClientStore store;
+    private final int ordinal;
+    // null until the Client finds its first merchant, or while a forked Client still goes by the merchants of the
+    // one it was forked from
+    private MerchantAffinity merchantAffinity;
+    private final Client forkedFrom;
 
     Client(PaySimState state, ClientIdentity identity) {
         super(state);
         this.identity = identity;
+        this.store = state.getClientStore();
+        this.ordinal = store.add();
+        this.forkedFrom = null;
 
         this.bank = state.pickRandomBank();
-        this.clientProfile = new ClientProfile(state.pickNextClientProfile(), state.getRNG());
-        this.clientWeight = ((double) clientProfile.getClientTargetCount()) /  state.getParameters().stepsProfiles.getTotalTargetCount();
-        this.initialBalance = BalancesClients.pickNextBalance(state.getRNG());
-        this.balance = initialBalance;
-        this.overdraftLimit = pickOverdraftLimit(state.getRNG());
+        this.clientProfile = new ClientProfile(state.pickNextClientProfile(), parameters.actionTypes,
+                state.getRNG());
+        store.setClientWeight(ordinal, ((double) clientProfile.getClientTargetCount())
+                / state.getParameters().stepsProfiles.getTotalTargetCount());
+        setBalance(parameters.balancesClients.pickNextBalance(state.getRNG()));
+        setOverdraftLimit(pickOverdraftLimit(state.getRNG()));
     }
 
     public Client(PaySimState state) {
         this(state, state.generateIdentity());
     }
 
+    /**
+     * Rebuild a Client from a checkpoint without drawing anything, its balances being restored separately.
+     */
+    Client(PaySimState state, ClientIdentity identity, Bank bank, ClientProfile clientProfile) {
+        super(state);
+        this.identity = identity;
+        this.store = state.getClientStore();
+        this.ordinal = store.add();
+        this.forkedFrom = null;
+
+        this.bank = bank;
+        this.clientProfile = clientProfile;
+        store.setClientWeight(ordinal, ((double) clientProfile.getClientTargetCount())
+                / state.getParameters().stepsProfiles.getTotalTargetCount());
+    }
+
+    /**
+     * Fork a Client of another simulation into a branch, sharing its values in the branch's ClientStore.
+     */
+    Client(PaySimState branch, Client origin, ActorFork fork) {
+        super(branch, origin, fork);
+        this.identity = origin.identity;
+        this.store = branch.getClientStore();
+        this.ordinal = origin.ordinal;
+        this.forkedFrom = origin;
+
+        this.bank = fork.bank(origin.bank);
+        this.clientProfile = origin.clientProfile;
+    }
+
     @Override
     public boolean equals(Object obj) {
-        if (obj instanceof Client) {
-            Client otherClient = (Client) obj;
-            // XXX: naive equality check for now...should push down to ClientIdentity?
-            return this.identity.id == otherClient.identity.id;
-        }
-        return false;
+        // Forks keep the ordinal of the client they branch off
+        return obj instanceof Client && ordinal == ((Client) obj).ordinal;
+    }
+
+    @Override
+    public int hashCode() {
+        return ordinal;
     }
 
     @Override
@@ -88,30 +124,102 @@ public class Client extends SuperActor implements HasClientIdentity, Identifiabl
         return identity.asMap();
     }
 
+    /**
+     * @return index of this Client's values in its ClientStore
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    @Override
+    protected double getBalance() {
+        return store.getBalance(ordinal);
+    }
+
+    @Override
+    void setBalance(double balance) {
+        store.setBalance(ordinal, balance);
+    }
+
+    @Override
+    double getOverdraftLimit() {
+        return store.getOverdraftLimit(ordinal);
+    }
+
+    @Override
+    void setOverdraftLimit(double overdraftLimit) {
+        store.setOverdraftLimit(ordinal, overdraftLimit);
+    }
+
     //-------------------------------------------------------------------------------
     // XXX Most of the below is from the original PaySim codebase
 
     @Override
     public void step(SimState state) {
-        PaySimState paySim = (PaySimState) state;
-        int stepTargetCount = paySim.getStepTargetCount();
+        step((StepContext) state);
+    }
+
+    /**
+     * Perform this Client's transactions for the current step using the given context for randomness,
+     * counterpart selection and settlement.
+     *
+     * @param context the StepContext driving this Client
+     */
+    public void step(StepContext context) {
+        int stepTargetCount = context.getStepTargetCount();
         if (stepTargetCount > 0) {
-            MersenneTwisterFast random = paySim.random;
-            int step = (int) state.schedule.getSteps();
-            Map<String, Double> stepActionProfile = paySim.getStepProbabilities();
+            performTransactions(context, pickCount(context.getRNG(), stepTargetCount));
+        }
+    }
 
-            int count = pickCount(random, stepTargetCount);
+    /**
+     * Perform this Client's transactions for a step it is known to be active in, i.e. making at least one
+     * transaction, as drawn ahead of time by an {@link ActivityCalendar}.
+     *
+     * @param context the StepContext driving this Client
+     */
+    public void stepActive(StepContext context) {
+        int count = ActivityCalendar.pickPositiveCount(context.getRNG(), context.getStepTargetCount(),
+                getClientWeight());
+        performTransactions(context, count);
+    }
 
-            for (int t = 0; t < count; t++) {
-                String action = pickAction(random, stepActionProfile);
-                StepActionProfile stepAmountProfile = paySim.getStepAction(action);
-                double amount = pickAmount(random, action, stepAmountProfile);
+    /**
+     * @return true if this Client transacts on its own following its profile, false if it is driven otherwise and
+     * has to be stepped on every step
+     */
+    public boolean followsProfile() {
+        return true;
+    }
 
-                List<Transaction> transactions = makeTransaction(paySim, step, action, amount);
-                if (!paySim.onTransactions(transactions)) {
-                    // XXX: For now, let's try just returning as a clean way to slowly abort
-                    return;
-                }
+    /**
+     * @return this Client's share of the transactions of every step
+     */
+    public double getClientWeight() {
+        return store.getClientWeight(ordinal);
+    }
+
+    /**
+     * Perform a given number of transactions for the current step, e.g. as allocated by a
+     * {@link org.paysim.engine.CountAllocator}.
+     *
+     * @param context the StepContext driving this Client
+     * @param count number of transactions to make
+     */
+    public void performTransactions(StepContext context, int count) {
+        MersenneTwisterFast random = context.getRNG();
+        long step = context.getCurrentStep();
+        ActionDistributionCache.ActionTable actions = context.getActionDistributions()
+                .getActions(ordinal, clientProfile, step);
+
+        for (int t = 0; t < count; t++) {
+            int action = pickAction(random, actions);
+            double amount = pickAmount(context, random, action, step);
+
+            List<Transaction> transactions = makeTransaction(context, step, action, amount);
+            if (!context.onTransactions(transactions)) {
+                // XXX: For now, let's try just returning as a clean way to slowly abort
+                return;
             }
         }
     }
@@ -120,73 +228,39 @@ public class Client extends SuperActor implements HasClientIdentity, Identifiabl
      * Simulate the "stickiness" of Merchants. Clients tend to patronize the same merchants
      * frequently in real life, so skew towards picking a previous merchant over a net-new one.
      *
-     * @param state reference to the PaySimState instance driving the simulation
+     * @param context reference to the StepContext driving this Client
      * @return the selected Merchant
      */
-    private Merchant pickMerchant(PaySimState state) {
-        if (usedMerchants.size() > 0 &&
-                state.getRNG().nextDouble() < state.getParameters().merchantReuseProbability) {
-            return usedMerchants.get(state.getRNG().nextInt(usedMerchants.size()));
+    private Merchant pickMerchant(StepContext context) {
+        MerchantAffinity affinity = getMerchantAffinity();
+        if (affinity != null && !affinity.isEmpty() &&
+                context.getRNG().nextDouble() < context.getParameters().merchantReuseProbability) {
+            return context.getMerchant(affinity.pick(context.getRNG()));
         } else  { // find a new merchant
-            Merchant m = state.pickRandomMerchant();
-            usedMerchants.add(m);
+            Merchant m = context.pickRandomMerchant();
+            if (merchantAffinity == null) {
+                // Forks only copy the merchants of the Client they branch off once they find one of their own
+                merchantAffinity = affinity == null ? new MerchantAffinity(parameters.merchantAffinitySize)
+                        : new MerchantAffinity(affinity, parameters.merchantAffinitySize);
+            }
+            merchantAffinity.add(m.getOrdinal());
             return m;
         }
     }
 
     private int pickCount(MersenneTwisterFast random, int targetStepCount) {
         // B(n,p): n = targetStepCount & p = clientWeight
-        Binomial transactionNb = new Binomial(targetStepCount, clientWeight, random);
+        Binomial transactionNb = new Binomial(targetStepCount, getClientWeight(), random);
         return transactionNb.nextInt();
     }
 
-    private String pickAction(MersenneTwisterFast random, Map<String, Double> stepActionProb) {
-        Map<String, Double> clientProbabilities = clientProfile.getActionProbability();
-        Map<String, Double> rawProbabilities = new HashMap<>();
-        RandomCollection<String> actionPicker = new RandomCollection<>(random);
-
-        // Pick the compromise between the Step distribution and the Client distribution
-        for (Map.Entry<String, Double> clientEntry : clientProbabilities.entrySet()) {
-            String action = clientEntry.getKey();
-            double clientProbability = clientEntry.getValue();
-            double rawProbability;
-
-            if (stepActionProb.containsKey(action)) {
-                double stepProbability = stepActionProb.get(action);
-
-                rawProbability = (clientProbability + stepProbability) / 2;
-            } else {
-                rawProbability = clientProbability;
-            }
-            rawProbabilities.put(action, rawProbability);
-        }
-
-        // Correct the distribution so the balance of the account do not diverge too much
-        double probInflow = 0;
-        for (Map.Entry<String, Double> rawEntry : rawProbabilities.entrySet()) {
-            String action = rawEntry.getKey();
-            if (isInflow(action)) {
-                probInflow += rawEntry.getValue();
-            }
-        }
+    private int pickAction(MersenneTwisterFast random, ActionDistributionCache.ActionTable actions) {
+        // Correct the compromise between the Step distribution and the Client distribution so the balance of the
+        // account do not diverge too much
+        double probInflow = actions.getProbInflow();
         double probOutflow = 1 - probInflow;
-        double newProbInflow = computeProbWithSpring(probInflow, probOutflow, balance);
-        double newProbOutflow = 1 - newProbInflow;
-
-        for (Map.Entry<String, Double> rawEntry : rawProbabilities.entrySet()) {
-            String action = rawEntry.getKey();
-            double rawProbability = rawEntry.getValue();
-            double finalProbability;
-
-            if (isInflow(action)) {
-                finalProbability = rawProbability * newProbInflow / probInflow;
-            } else {
-                finalProbability = rawProbability * newProbOutflow / probOutflow;
-            }
-            actionPicker.add(finalProbability, action);
-        }
-
-        return actionPicker.next();
+        double newProbInflow = computeProbWithSpring(probInflow, probOutflow, getBalance());
+        return actions.pick(random, newProbInflow);
     }
 
     /**
@@ -194,6 +268,7 @@ public class Client extends SuperActor implements HasClientIdentity, Identifiabl
      *  To avoid this we conceptually add a spring that would be attached to the equilibrium position of the account
      */
     private double computeProbWithSpring(double probUp, double probDown, double currentBalance){
+        double expectedAvgTransaction = store.getExpectedAvgTransaction(ordinal);
         double equilibrium = 40 * expectedAvgTransaction; // Could also be the initial balance in other models
         double correctionStrength = 3 * Math.pow(10, -5); // In a physical model it would be 1 / 2 * kB * T
         double characteristicLengthSpring = equilibrium;
@@ -210,67 +285,50 @@ public class Client extends SuperActor implements HasClientIdentity, Identifiabl
 
     }
 
-    private boolean isInflow(String action){
-        String[] inflowActions = {CASH_IN, DEPOSIT};
-        return Arrays.stream(inflowActions)
-                .anyMatch(action::equals);
+    private double pickAmount(StepContext context, MersenneTwisterFast random, int action, long step) {
+        TruncatedNormal amounts = context.getActionDistributions()
+                .getAmounts(clientProfile.getProfilePerAction(action), action, step);
+        return parameters.amountSampler.sample(amounts, random);
     }
 
-    private double pickAmount(MersenneTwisterFast random, String action, StepActionProfile stepAmountProfile) {
-        ClientActionProfile clientAmountProfile = clientProfile.getProfilePerAction(action);
-
-        double average, std;
-        if (stepAmountProfile != null) {
-            // We take the mean between the two distributions
-            average = (clientAmountProfile.getAvgAmount() + stepAmountProfile.getAvgAmount()) / 2;
-            std = Math.sqrt((Math.pow(clientAmountProfile.getStdAmount(), 2) + Math.pow(stepAmountProfile.getStdAmount(), 2))) / 2;
-        } else {
-            average = clientAmountProfile.getAvgAmount();
-            std = clientAmountProfile.getStdAmount();
-        }
-
-        double amount = -1;
-        while (amount <= 0) {
-            amount = random.nextGaussian() * std + average;
-        }
-
-        return amount;
-    }
-
-    private List<Transaction> makeTransaction(PaySimState state, int step, String action, double amount) {
+    private List<Transaction> makeTransaction(StepContext context, long step, int action, double amount) {
         ArrayList<Transaction> transactions = new ArrayList<>();
+        ActionType type = parameters.actionTypes.getType(action);
+        if (type == null) {
+            throw new UnsupportedOperationException("Action not implemented in Client");
+        }
 
-        switch (action) {
+        switch (type) {
             case CASH_IN:
-                transactions.add(handleCashIn(pickMerchant(state), step, amount));
+                transactions.add(handleCashIn(context, pickMerchant(context), step, amount));
                 break;
             case CASH_OUT:
-                transactions.add(handleCashOut(state, step, amount));
+                transactions.add(handleCashOut(context, step, amount));
                 break;
             case DEBIT:
-                transactions.add(handleDebit(state, step, amount));
+                transactions.add(handleDebit(context, step, amount));
                 break;
             case PAYMENT:
-                transactions.add(handlePayment(pickMerchant(state), step, amount));
+                transactions.add(handlePayment(context, pickMerchant(context), step, amount));
                 break;
             case TRANSFER:
-                Client clientTo = state.pickRandomClient(getId());
+                SuperActor clientTo = context.pickTransferRecipient(getId());
                 double reducedAmount = amount;
                 boolean lastTransferFailed = false;
 
                 // For transfer transaction there is a limit so we have to split big transactions in smaller chunks
                 while (reducedAmount > parameters.transferLimit && !lastTransferFailed) {
-                    Transaction t = handleTransfer(clientTo, step, parameters.transferLimit);
+                    Transaction t = handleTransfer(context, clientTo, step, parameters.transferLimit);
                     transactions.add(t);
                     lastTransferFailed = !t.isSuccessful();
                     reducedAmount -= parameters.transferLimit;
                 }
                 if (reducedAmount > 0 && !lastTransferFailed) {
-                    transactions.add(handleTransfer(clientTo, step, reducedAmount));
+                    transactions.add(handleTransfer(context, clientTo, step, reducedAmount));
                 }
                 break;
             case DEPOSIT:
-                transactions.add(handleDeposit(step, amount));
+                transactions.add(handleDeposit(context, step, amount));
                 break;
             default:
                 throw new UnsupportedOperationException("Action not implemented in Client");
@@ -279,95 +337,69 @@ public class Client extends SuperActor implements HasClientIdentity, Identifiabl
         return transactions;
     }
 
-    protected Transaction handleCashIn(Merchant merchant, int step, double amount) {
+    protected Transaction handleCashIn(StepContext context, Merchant merchant, long step, double amount) {
         double oldBalanceOrig = this.getBalance();
-        double oldBalanceDest = merchant.getBalance();
 
         this.deposit(amount);
 
-        double newBalanceOrig = this.getBalance();
-        double newBalanceDest = merchant.getBalance();
-
-        merchant.rememberClient(this);
-        return new Transaction(step, CASH_IN, amount, this, oldBalanceOrig,
-                newBalanceOrig, merchant, oldBalanceDest, newBalanceDest);
+        Transaction t = new Transaction(step, CASH_IN, amount, this, oldBalanceOrig,
+                this.getBalance(), merchant);
+        context.settle(merchant, t, this, 0);
+        return t;
     }
 
-    protected Transaction handleCashOut(PaySimState state, int step, double amount) {
-        Merchant merchantTo = state.pickRandomMerchant();
+    protected Transaction handleCashOut(StepContext context, long step, double amount) {
+        Merchant merchantTo = context.pickRandomMerchant();
         double oldBalanceOrig = this.getBalance();
-        double oldBalanceDest = merchantTo.getBalance();
 
         boolean isUnauthorizedOverdraft = this.withdraw(amount);
 
-        double newBalanceOrig = this.getBalance();
-        double newBalanceDest = merchantTo.getBalance();
-
-        merchantTo.rememberClient(this);
         Transaction t = new Transaction(step, CASH_OUT, amount, this, oldBalanceOrig,
-                newBalanceOrig, merchantTo, oldBalanceDest, newBalanceDest);
+                this.getBalance(), merchantTo);
+        context.settle(merchantTo, t, this, 0);
 
         t.setUnauthorizedOverdraft(isUnauthorizedOverdraft);
         t.setFraud(this.isFraud());
         return t;
     }
 
-    protected Transaction handleDebit(PaySimState state, int step, double amount) {
+    protected Transaction handleDebit(StepContext context, long step, double amount) {
         double oldBalanceOrig = this.getBalance();
-        double oldBalanceDest = this.bank.getBalance();
 
         boolean isUnauthorizedOverdraft = this.withdraw(amount);
 
-        double newBalanceOrig = this.getBalance();
-        double newBalanceDest = this.bank.getBalance();
-
-        this.bank.rememberClient(this);
         Transaction t = new Transaction(step, DEBIT, amount, this, oldBalanceOrig,
-                newBalanceOrig, this.bank, oldBalanceDest, newBalanceDest);
+                this.getBalance(), this.bank);
+        context.settle(this.bank, t, this, 0);
 
         t.setUnauthorizedOverdraft(isUnauthorizedOverdraft);
         return t;
     }
 
-    protected Transaction handlePayment(Merchant merchant, int step, double amount) {
+    protected Transaction handlePayment(StepContext context, Merchant merchant, long step, double amount) {
         double oldBalanceOrig = this.getBalance();
-        double oldBalanceDest = merchant.getBalance();
 
         boolean isUnauthorizedOverdraft = this.withdraw(amount);
-        if (!isUnauthorizedOverdraft) {
-            merchant.deposit(amount);
-        }
-
-        double newBalanceOrig = this.getBalance();
-        double newBalanceDest = merchant.getBalance();
 
-        merchant.rememberClient(this);
         Transaction t = new Transaction(step, PAYMENT, amount, this, oldBalanceOrig,
-                newBalanceOrig, merchant, oldBalanceDest, newBalanceDest);
+                this.getBalance(), merchant);
+        context.settle(merchant, t, this, isUnauthorizedOverdraft ? 0 : amount);
 
         t.setUnauthorizedOverdraft(isUnauthorizedOverdraft);
         t.setSuccessful(!isUnauthorizedOverdraft);
         return t;
     }
 
-    protected Transaction handleTransfer(Client clientTo, int step, double amount) {
+    protected Transaction handleTransfer(StepContext context, SuperActor clientTo, long step, double amount) {
         double oldBalanceOrig = this.getBalance();
-        double oldBalanceDest = clientTo.getBalance();
-
-        clientTo.rememberClient(this);
 
         if (!isDetectedAsFraud(amount)) {
             boolean isUnauthorizedOverdraft = this.withdraw(amount);
             boolean transferSuccessful = !isUnauthorizedOverdraft;
-            if (transferSuccessful) {
-                clientTo.deposit(amount);
-            }
-
-            double newBalanceOrig = this.getBalance();
-            double newBalanceDest = clientTo.getBalance();
 
             Transaction t = new Transaction(step, TRANSFER, amount, this, oldBalanceOrig,
-                    newBalanceOrig, clientTo, oldBalanceDest, newBalanceDest);
+                    this.getBalance(), clientTo);
+            context.settle(clientTo, t, this, transferSuccessful ? amount : 0);
 
             t.setUnauthorizedOverdraft(isUnauthorizedOverdraft);
             t.setFraud(this.isFraud());
@@ -375,11 +407,9 @@ public class Client extends SuperActor implements HasClientIdentity, Identifiabl
             return t;
 
         } else { // create the transaction but don't move any money as the transaction was detected as fraudulent
-            double newBalanceOrig = this.getBalance();
-            double newBalanceDest = clientTo.getBalance();
-
             Transaction t = new Transaction(step, TRANSFER, amount, this, oldBalanceOrig,
-                    newBalanceOrig, clientTo, oldBalanceDest, newBalanceDest);
+                    this.getBalance(), clientTo);
+            context.settle(clientTo, t, this, 0);
 
             t.setFlaggedFraud(true);
             t.setFraud(this.isFraud());
@@ -388,18 +418,15 @@ public class Client extends SuperActor implements HasClientIdentity, Identifiabl
         }
     }
 
-    protected Transaction handleDeposit(int step, double amount) {
+    protected Transaction handleDeposit(StepContext context, long step, double amount) {
         double oldBalanceOrig = this.getBalance();
-        double oldBalanceDest = this.bank.getBalance();
 
         this.deposit(amount);
 
-        double newBalanceOrig = this.getBalance();
-        double newBalanceDest = this.bank.getBalance();
-
-        this.bank.rememberClient(this);
-        return new Transaction(step, DEPOSIT, amount, this, oldBalanceOrig,
-                newBalanceOrig, this.bank, oldBalanceDest, newBalanceDest);
+        Transaction t = new Transaction(step, DEPOSIT, amount, this, oldBalanceOrig,
+                this.getBalance(), this.bank);
+        context.settle(this.bank, t, this, 0);
+        return t;
     }
 
     private boolean isDetectedAsFraud(double amount) {
@@ -408,31 +435,53 @@ public class Client extends SuperActor implements HasClientIdentity, Identifiabl
                 sure what the point is other than to simulate a crude fraud detection native to the system?
         */
         boolean isFraudulentAccount = false;
-        if (this.countTransferTransactions >= MIN_NB_TRANSFER_FOR_FRAUD) {
-            if (this.balanceMax - this.balance - amount > parameters.transferLimit * 2.5) {
+        final int countTransferTransactions = store.getCountTransferTransactions(ordinal);
+        if (countTransferTransactions >= MIN_NB_TRANSFER_FOR_FRAUD) {
+            if (store.getBalanceMax(ordinal) - getBalance() - amount > parameters.transferLimit * 2.5) {
                 isFraudulentAccount = true;
             }
         } else {
-            this.countTransferTransactions++;
-            this.balanceMax = max(this.balanceMax, this.balance);
+            store.setCountTransferTransactions(ordinal, countTransferTransactions + 1);
+            store.setBalanceMax(ordinal, max(store.getBalanceMax(ordinal), getBalance()));
         }
         return isFraudulentAccount;
     }
 
     private double pickOverdraftLimit(MersenneTwisterFast random){
+        double expectedAvgTransaction = 0;
         double stdTransaction = 0;
 
-        for (String action: ActionTypes.getActions()){
-            double actionProbability = clientProfile.getActionProbability().get(action);
+        double[] actionProbabilities = clientProfile.getActionProbabilities();
+        for (int action = 0; action < actionProbabilities.length; action++){
+            double actionProbability = actionProbabilities[action];
             ClientActionProfile actionProfile = clientProfile.getProfilePerAction(action);
             expectedAvgTransaction += actionProfile.getAvgAmount() * actionProbability;
             stdTransaction += Math.pow(actionProfile.getStdAmount() * actionProbability, 2);
         }
         stdTransaction = Math.sqrt(stdTransaction);
+        store.setExpectedAvgTransaction(ordinal, expectedAvgTransaction);
 
         double randomizedMeanTransaction = random.nextGaussian() * stdTransaction + expectedAvgTransaction;
 
-        return BalancesClients.getOverdraftLimit(randomizedMeanTransaction);
+        return parameters.balancesClients.getOverdraftLimit(randomizedMeanTransaction);
+    }
+
+    Bank getBank() {
+        return bank;
+    }
+
+    /**
+     * @return the merchants this Client goes back to, null if it didn't find any yet
+     */
+    MerchantAffinity getMerchantAffinity() {
+        if (merchantAffinity == null && forkedFrom != null) {
+            return forkedFrom.getMerchantAffinity();
+        }
+        return merchantAffinity;
+    }
+
+    void setMerchantAffinity(MerchantAffinity affinity) {
+        merchantAffinity = affinity;
     }
 
     public ClientProfile getClientProfile() {
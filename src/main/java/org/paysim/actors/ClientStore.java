@@ -0,0 +1,185 @@
+package org.paysim.actors;
+
+import java.util.Arrays;
+
+/**
+ * Numeric state of all the Clients of a simulation, kept in primitive arrays indexed by the Client's ordinal
+ * rather than in fields of every Client. With millions of clients this saves an object header and padding per
+ * value and keeps the values a step loop reads next to each other in memory.
+ *
+ * Clients are only added during the sequential phases of a step (setup and fraudsters), so the store doesn't
+ * synchronize its growth.
+ *
+ * The store of a branch forked off another simulation starts out sharing the arrays of the original store, each
+ * array being copied the first time the branch writes to it. Copying isn't synchronized, so a branch stepped from
+ * several threads has to {@link #unshareAll()} before stepping.
+ */
+public class ClientStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int BALANCE = 1, OVERDRAFT_LIMIT = 1 << 1, CLIENT_WEIGHT = 1 << 2,
+            EXPECTED_AVG_TRANSACTION = 1 << 3, BALANCE_MAX = 1 << 4, COUNT_TRANSFER_TRANSACTIONS = 1 << 5;
+
+    private int size = 0;
+    // Arrays still shared with the store this one was forked from
+    private int sharedArrays = 0;
+    private double[] balance = new double[INITIAL_CAPACITY];
+    private double[] overdraftLimit = new double[INITIAL_CAPACITY];
+    private double[] clientWeight = new double[INITIAL_CAPACITY];
+    private double[] expectedAvgTransaction = new double[INITIAL_CAPACITY];
+    private double[] balanceMax = new double[INITIAL_CAPACITY];
+    private int[] countTransferTransactions = new int[INITIAL_CAPACITY];
+
+    /**
+     * Make room for a number of clients up front, avoiding growing the arrays while they are created.
+     *
+     * @param capacity total number of clients expected
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > balance.length) {
+            balance = Arrays.copyOf(balance, capacity);
+            overdraftLimit = Arrays.copyOf(overdraftLimit, capacity);
+            clientWeight = Arrays.copyOf(clientWeight, capacity);
+            expectedAvgTransaction = Arrays.copyOf(expectedAvgTransaction, capacity);
+            balanceMax = Arrays.copyOf(balanceMax, capacity);
+            countTransferTransactions = Arrays.copyOf(countTransferTransactions, capacity);
+            sharedArrays = 0;
+        }
+    }
+
+    /**
+     * Start out with the values of another store, sharing its arrays until written to. The other store must not
+     * change anymore.
+     *
+     * @param origin the store to share the values of
+     */
+    void shareFrom(ClientStore origin) {
+        size = origin.size;
+        balance = origin.balance;
+        overdraftLimit = origin.overdraftLimit;
+        clientWeight = origin.clientWeight;
+        expectedAvgTransaction = origin.expectedAvgTransaction;
+        balanceMax = origin.balanceMax;
+        countTransferTransactions = origin.countTransferTransactions;
+        sharedArrays = BALANCE | OVERDRAFT_LIMIT | CLIENT_WEIGHT | EXPECTED_AVG_TRANSACTION | BALANCE_MAX
+                | COUNT_TRANSFER_TRANSACTIONS;
+    }
+
+    /**
+     * Copy every array still shared with the store this one was forked from, so that writing to the values no
+     * longer copies anything.
+     */
+    void unshareAll() {
+        if (unshare(BALANCE)) {
+            balance = balance.clone();
+        }
+        if (unshare(OVERDRAFT_LIMIT)) {
+            overdraftLimit = overdraftLimit.clone();
+        }
+        if (unshare(CLIENT_WEIGHT)) {
+            clientWeight = clientWeight.clone();
+        }
+        if (unshare(EXPECTED_AVG_TRANSACTION)) {
+            expectedAvgTransaction = expectedAvgTransaction.clone();
+        }
+        if (unshare(BALANCE_MAX)) {
+            balanceMax = balanceMax.clone();
+        }
+        if (unshare(COUNT_TRANSFER_TRANSACTIONS)) {
+            countTransferTransactions = countTransferTransactions.clone();
+        }
+    }
+
+    /**
+     * @return true if the given array was still shared, in which case the caller has to copy it before writing
+     */
+    private boolean unshare(int array) {
+        if ((sharedArrays & array) == 0) {
+            return false;
+        }
+        sharedArrays &= ~array;
+        return true;
+    }
+
+    /**
+     * @return the ordinal of a new client, its values all set to 0
+     */
+    int add() {
+        if (size == balance.length) {
+            ensureCapacity(Math.max(INITIAL_CAPACITY, size + (size >> 1)));
+        }
+        return size++;
+    }
+
+    /**
+     * @return the number of clients in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    public double getBalance(int ordinal) {
+        return balance[ordinal];
+    }
+
+    void setBalance(int ordinal, double value) {
+        if (unshare(BALANCE)) {
+            balance = balance.clone();
+        }
+        balance[ordinal] = value;
+    }
+
+    public double getOverdraftLimit(int ordinal) {
+        return overdraftLimit[ordinal];
+    }
+
+    void setOverdraftLimit(int ordinal, double value) {
+        if (unshare(OVERDRAFT_LIMIT)) {
+            overdraftLimit = overdraftLimit.clone();
+        }
+        overdraftLimit[ordinal] = value;
+    }
+
+    public double getClientWeight(int ordinal) {
+        return clientWeight[ordinal];
+    }
+
+    void setClientWeight(int ordinal, double value) {
+        if (unshare(CLIENT_WEIGHT)) {
+            clientWeight = clientWeight.clone();
+        }
+        clientWeight[ordinal] = value;
+    }
+
+    public double getExpectedAvgTransaction(int ordinal) {
+        return expectedAvgTransaction[ordinal];
+    }
+
+    void setExpectedAvgTransaction(int ordinal, double value) {
+        if (unshare(EXPECTED_AVG_TRANSACTION)) {
+            expectedAvgTransaction = expectedAvgTransaction.clone();
+        }
+        expectedAvgTransaction[ordinal] = value;
+    }
+
+    public double getBalanceMax(int ordinal) {
+        return balanceMax[ordinal];
+    }
+
+    void setBalanceMax(int ordinal, double value) {
+        if (unshare(BALANCE_MAX)) {
+            balanceMax = balanceMax.clone();
+        }
+        balanceMax[ordinal] = value;
+    }
+
+    public int getCountTransferTransactions(int ordinal) {
+        return countTransferTransactions[ordinal];
+    }
+
+    void setCountTransferTransactions(int ordinal, int value) {
+        if (unshare(COUNT_TRANSFER_TRANSACTIONS)) {
+            countTransferTransactions = countTransferTransactions.clone();
+        }
+        countTransferTransactions[ordinal] = value;
+    }
+}
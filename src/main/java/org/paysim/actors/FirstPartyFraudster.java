@@ -15,6 +15,8 @@ import java.util.stream.Collectors;
  * Hi, I'm Finley...the First Party Fraudster!
  */
 public class FirstPartyFraudster extends SuperActor implements HasClientIdentity, Identifiable, Steppable {
+    // In continuous mode, past this many faux accounts I go back to those I already have instead of opening more
+    private static final int MAX_FAUX_ACCOUNTS = 100;
     private double profit = 0;
 
     protected final Mule cashoutMule;
@@ -40,20 +42,63 @@ public class FirstPartyFraudster extends SuperActor implements HasClientIdentity
         state.addClient(cashoutMule);
     }
 
+    /**
+     * Rebuild a fraudster from a population cache around its cashout mule, already among the clients.
+     */
+    FirstPartyFraudster(PaySimState state, ClientIdentity identity, List<ClientIdentity> identities,
+                        Mule cashoutMule) {
+        super(state);
+        this.identity = identity;
+        fauxAccounts = new ArrayList<>();
+        this.identities = identities;
+        this.cashoutMule = cashoutMule;
+    }
+
+    FirstPartyFraudster(PaySimState branch, FirstPartyFraudster origin, ActorFork fork) {
+        super(branch, origin, fork);
+        this.identity = origin.identity;
+        this.profit = origin.profit;
+        // Only ever drawn from once created
+        identities = origin.identities;
+        fauxAccounts = new ArrayList<>();
+        for (Mule m : origin.fauxAccounts) {
+            fauxAccounts.add((Mule) fork.client(m));
+        }
+        cashoutMule = (Mule) fork.client(origin.cashoutMule);
+    }
+
     protected void commitFraud(PaySimState paysim) {
+        if (parameters.continuous && fauxAccounts.size() >= MAX_FAUX_ACCOUNTS) {
+            reuseFauxAccount(paysim);
+            return;
+        }
         Optional<ClientIdentity> maybeFauxIdentity = composeNewIdentity(paysim);
 
         if (maybeFauxIdentity.isPresent()) {
             Mule m = new Mule(paysim, maybeFauxIdentity.get());
-            final int step = (int) paysim.schedule.getSteps();
+            final long step = paysim.getCurrentStep();
 
-            Transaction drain = m.handleTransfer(cashoutMule, step, m.balance);
+            Transaction drain = m.handleTransfer(paysim, cashoutMule, step, m.getBalance());
             fauxAccounts.add(m);
             paysim.addClient(m);
             paysim.onTransactions(Arrays.asList(drain));
         }
     }
 
+    /**
+     * Fund one of my faux accounts again and drain it into my cashout mule, so the number of accounts doesn't keep
+     * growing over a run that never ends.
+     *
+     * @param paysim the current PaySimState
+     */
+    protected void reuseFauxAccount(PaySimState paysim) {
+        Mule m = fauxAccounts.get(paysim.getRNG().nextInt(fauxAccounts.size()));
+        m.setBalance(parameters.balancesClients.pickNextBalance(paysim.getRNG()));
+
+        Transaction drain = m.handleTransfer(paysim, cashoutMule, paysim.getCurrentStep(), m.getBalance());
+        paysim.onTransactions(Arrays.asList(drain));
+    }
+
     @Override
     public void step(SimState state) {
         PaySimState paysim = (PaySimState) state;
@@ -8,10 +8,33 @@ import java.util.Map;
 
 public class Merchant extends SuperActor {
     private final MerchantIdentity identity;
+    private final int ordinal;
 
+    /**
+     * @param state the simulation, which the Merchant is to be added to next
+     * @param identity identity of the Merchant
+     */
     public Merchant(PaySimState state, MerchantIdentity identity) {
         super(state);
         this.identity = identity;
+        this.ordinal = state.getMerchants().size();
+    }
+
+    Merchant(PaySimState branch, Merchant origin, ActorFork fork) {
+        super(branch, origin, fork);
+        this.identity = origin.identity;
+        this.ordinal = origin.ordinal;
+    }
+
+    /**
+     * @return index of this Merchant in the merchants of its simulation
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public boolean isHighRisk() {
+        return identity.isHighRisk();
     }
 
     public void setHighRisk(boolean isHighRisk) {
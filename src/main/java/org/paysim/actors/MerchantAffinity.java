@@ -0,0 +1,198 @@
+package org.paysim.actors;
+
+import ec.util.MersenneTwisterFast;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The merchants a Client goes back to, as the ordinals of the merchants along with how many times the Client found
+ * each of them.
+ *
+ * Picking a merchant is proportional to how many times it was found, like picking from the list of every merchant
+ * found with repeats, with a single draw searched for in the running sums of the counts. As long as no merchant was
+ * found twice, this is the same draw as picking from such a list.
+ *
+ * At most a given number of merchants are kept: once full, finding another one replaces one of the merchants found
+ * the fewest times, going round them so the ones replaced the longest ago go first. The memory of a Client stays the
+ * same however long the simulation runs.
+ */
+final class MerchantAffinity {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final int maxSize;
+    private int[] merchants;
+    private int[] counts;
+    // Running sums of the counts, up to each merchant included
+    private long[] sums;
+    private int size = 0;
+    // Where to start looking for a merchant to replace, going round so the oldest of the rarest go first
+    private int cursor = 0;
+
+    /**
+     * @param maxSize the most merchants to keep
+     */
+    MerchantAffinity(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive, got " + maxSize);
+        }
+        this.maxSize = maxSize;
+        final int capacity = Math.min(INITIAL_CAPACITY, maxSize);
+        merchants = new int[capacity];
+        counts = new int[capacity];
+        sums = new long[capacity];
+    }
+
+    /**
+     * @param origin the affinity to copy, e.g. of the Client a fork branches off
+     * @param maxSize the most merchants to keep, dropping the ones found the fewest times beyond it
+     */
+    MerchantAffinity(MerchantAffinity origin, int maxSize) {
+        this(maxSize);
+        if (origin.size > maxSize) {
+            // Keep the ones found the most times, in the order they come in
+            Integer[] order = new Integer[origin.size];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt((Integer i) -> origin.counts[i]).reversed());
+            for (int n = 0; n < maxSize; n++) {
+                add(origin.merchants[order[n]], origin.counts[order[n]]);
+            }
+            return;
+        }
+        final int capacity = Math.max(origin.size, merchants.length);
+        merchants = Arrays.copyOf(origin.merchants, capacity);
+        counts = Arrays.copyOf(origin.counts, capacity);
+        sums = Arrays.copyOf(origin.sums, capacity);
+        size = origin.size;
+        cursor = origin.cursor;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param i index of a merchant of this affinity, from 0 to its size excluded
+     * @return the ordinal of the merchant
+     */
+    int getMerchant(int i) {
+        return merchants[i];
+    }
+
+    /**
+     * @param i index of a merchant of this affinity, from 0 to its size excluded
+     * @return how many times the merchant was found
+     */
+    int getCount(int i) {
+        return counts[i];
+    }
+
+    /**
+     * @return where the next replacement starts looking from, for checkpoints
+     */
+    int getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @param cursor where the next replacement starts looking from, as restored from a checkpoint
+     */
+    void setCursor(int cursor) {
+        if (cursor < 0 || (cursor > 0 && cursor >= size)) {
+            throw new IllegalArgumentException(String.format("cursor %d out of %d merchants", cursor, size));
+        }
+        this.cursor = cursor;
+    }
+
+    /**
+     * @param random the RNG to draw from
+     * @return the ordinal of a merchant, picked in proportion to how many times it was found
+     */
+    int pick(MersenneTwisterFast random) {
+        if (size == 0) {
+            throw new IllegalStateException("no merchant to pick from");
+        }
+        final long total = sums[size - 1];
+        final long value = total <= Integer.MAX_VALUE ? random.nextInt((int) total) : random.nextLong(total);
+        // The first merchant whose running sum goes past the value
+        int low = 0, high = size - 1;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (sums[mid] > value) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return merchants[low];
+    }
+
+    /**
+     * Count one more time a merchant was found.
+     *
+     * @param merchant ordinal of the merchant
+     */
+    void add(int merchant) {
+        add(merchant, 1);
+    }
+
+    /**
+     * @param merchant ordinal of the merchant
+     * @param count how many more times the merchant was found, positive
+     */
+    void add(int merchant, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive, got " + count);
+        }
+        for (int i = 0; i < size; i++) {
+            if (merchants[i] == merchant) {
+                // Saturate rather than overflow
+                counts[i] = (int) Math.min((long) counts[i] + count, Integer.MAX_VALUE);
+                updateSums(i);
+                return;
+            }
+        }
+        if (size < maxSize) {
+            if (size == merchants.length) {
+                final int capacity = Math.min(merchants.length * 2, maxSize);
+                merchants = Arrays.copyOf(merchants, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                sums = Arrays.copyOf(sums, capacity);
+            }
+            merchants[size] = merchant;
+            counts[size] = count;
+            size++;
+            updateSums(size - 1);
+            return;
+        }
+
+        int fewest = cursor;
+        for (int n = 1; n < size; n++) {
+            final int i = (cursor + n) % size;
+            if (counts[i] < counts[fewest]) {
+                fewest = i;
+            }
+        }
+        cursor = (fewest + 1) % size;
+        merchants[fewest] = merchant;
+        counts[fewest] = count;
+        updateSums(fewest);
+    }
+
+    /**
+     * @param from index of the first merchant whose count changed
+     */
+    private void updateSums(int from) {
+        long sum = from == 0 ? 0 : sums[from - 1];
+        for (int i = from; i < size; i++) {
+            sum += counts[i];
+            sums[i] = sum;
+        }
+    }
+}
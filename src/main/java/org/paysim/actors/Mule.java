@@ -1,30 +1,46 @@
 package org.paysim.actors;
 
 import org.paysim.PaySimState;
+import org.paysim.base.ClientProfile;
 import org.paysim.base.Transaction;
+import org.paysim.engine.StepContext;
 import org.paysim.identity.ClientIdentity;
-import sim.engine.SimState;
 
 public class Mule extends Client {
 
     @Override
-    public void step(SimState state) {
+    public void step(StepContext context) {
         // XXX: NOP...we override the step() method so Mule actors become brainless Clients controlled by fraudsters
     }
 
+    @Override
+    public boolean followsProfile() {
+        return false;
+    }
+
     public Mule(PaySimState state, ClientIdentity identity) {
         super(state, identity);
         setFraud(true);
-        overdraftLimit = 0;
+        setOverdraftLimit(0);
+    }
+
+    Mule(PaySimState state, ClientIdentity identity, Bank bank, ClientProfile clientProfile) {
+        super(state, identity, bank, clientProfile);
+        setFraud(true);
+        setOverdraftLimit(0);
+    }
+
+    Mule(PaySimState branch, Mule origin, ActorFork fork) {
+        super(branch, origin, fork);
     }
 
-    Transaction fraudulentCashOut(PaySimState state, int step) {
+    Transaction fraudulentCashOut(PaySimState state, long step) {
         double amount = getBalance() > state.getParameters().transferLimit ?
                 state.getParameters().transferLimit : getBalance();
         return fraudulentCashOut(state, step, amount);
     }
 
-    Transaction fraudulentCashOut(PaySimState state, int step, double amount) {
+    Transaction fraudulentCashOut(PaySimState state, long step, double amount) {
         Merchant merchantTo = state.pickRandomMerchant();
         double oldBalanceOrig = this.getBalance();
         double oldBalanceDest = merchantTo.getBalance();
@@ -1,21 +1,35 @@
 package org.paysim.actors;
 
 import org.paysim.PaySimState;
+import org.paysim.base.Transaction;
 import org.paysim.identity.Identifiable;
 import org.paysim.parameters.Parameters;
 import org.paysim.utils.BoundedArrayDeque;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 
 public abstract class SuperActor implements Identifiable {
-    protected final Deque<Client> prevInteractions;
-    protected final Parameters parameters;
+    private static final int NB_REMEMBERED_CLIENTS = 100;
 
+    protected final Parameters parameters;
+    // Where this actor is in the ActorDictionary of its simulation, none for stand-ins
+    private final ActorDictionary dictionary;
+    private final int actorId;
+
+    // Allocated on the first interaction, most clients never get remembered
+    private Deque<Client> prevInteractions;
+    // When forked, the clients remembered are those of the original actor until this one remembers a new one
+    private final SuperActor forkedFrom;
+    final ActorFork fork;
+    private boolean sharesRecentClients;
     private boolean isFraud = false;
-    double balance = 0;
-    double overdraftLimit;
+    private int shard = 0;
+    // Clients keep these in their ClientStore instead
+    private double balance = 0;
+    private double overdraftLimit;
 
     public enum Type {
         BANK,
@@ -26,22 +40,54 @@ public abstract class SuperActor implements Identifiable {
         MULE
     }
 
-    SuperActor(PaySimState state) {
+    protected SuperActor(PaySimState state) {
         parameters = state.getParameters();
-        prevInteractions = new BoundedArrayDeque<>(100);
+        dictionary = state.getActorDictionary();
+        actorId = dictionary.register(this);
+        forkedFrom = null;
+        fork = null;
+    }
+
+    /**
+     * Stand in for an actor that isn't part of this simulation, e.g. one of another partition of a distributed
+     * simulation. Stand-ins are left out of the ActorDictionary.
+     */
+    protected SuperActor(Parameters parameters) {
+        this.parameters = parameters;
+        dictionary = null;
+        actorId = -1;
+        forkedFrom = null;
+        fork = null;
+    }
+
+    /**
+     * Fork an actor of another simulation into a branch, see {@link ActorFork}.
+     */
+    protected SuperActor(PaySimState branch, SuperActor origin, ActorFork fork) {
+        parameters = branch.getParameters();
+        dictionary = branch.getActorDictionary();
+        actorId = dictionary.register(this);
+        forkedFrom = origin;
+        this.fork = fork;
+        sharesRecentClients = true;
+        isFraud = origin.isFraud;
+        shard = origin.shard;
+        balance = origin.balance;
+        overdraftLimit = origin.overdraftLimit;
     }
 
     void deposit(double amount) {
-        balance += amount;
+        setBalance(getBalance() + amount);
     }
 
     boolean withdraw(double amount) {
         boolean unauthorizedOverdraft = false;
 
-        if (balance - amount < overdraftLimit) {
+        double balance = getBalance();
+        if (balance - amount < getOverdraftLimit()) {
             unauthorizedOverdraft = true;
         } else {
-            balance -= amount;
+            setBalance(balance - amount);
         }
 
         return unauthorizedOverdraft;
@@ -59,11 +105,90 @@ public abstract class SuperActor implements Identifiable {
         return balance;
     }
 
+    void setBalance(double balance) {
+        this.balance = balance;
+    }
+
+    double getOverdraftLimit() {
+        return overdraftLimit;
+    }
+
+    void setOverdraftLimit(double overdraftLimit) {
+        this.overdraftLimit = overdraftLimit;
+    }
+
+    /**
+     * @return index of this actor in the ActorDictionary of its simulation, -1 if it only stands in for an actor
+     * of another simulation
+     */
+    public int getActorId() {
+        return actorId;
+    }
+
+    /**
+     * @return the ActorDictionary of the simulation of this actor, null for stand-ins
+     */
+    public ActorDictionary getActorDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return index of the shard that owns this actor when the simulation is sharded, 0 otherwise
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    public void setShard(int shard) {
+        this.shard = shard;
+    }
+
     public void rememberClient(Client client) {
+        if (sharesRecentClients) {
+            setRecentClients(getRecentClients());
+        }
+        if (prevInteractions == null) {
+            prevInteractions = new BoundedArrayDeque<>(NB_REMEMBERED_CLIENTS);
+        }
         prevInteractions.push(client);
     }
 
+    /**
+     * Replace the clients this actor remembers, e.g. when restoring a checkpoint.
+     *
+     * @param clients the clients to remember, most recent first like {@link #getRecentClients()}
+     */
+    void setRecentClients(List<Client> clients) {
+        sharesRecentClients = false;
+        prevInteractions = null;
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            rememberClient(clients.get(i));
+        }
+    }
+
+    /**
+     * Apply the receiving side of a transaction to this actor, recording our balance before and after.
+     *
+     * @param transaction the transaction being settled
+     * @param originator the Client that originated it, null if it lives in another partition
+     * @param amount the amount to credit, 0 if no money actually moves
+     */
+    public void settleIncoming(Transaction transaction, Client originator, double amount) {
+        double oldBalance = getBalance();
+        deposit(amount);
+        if (originator != null) {
+            rememberClient(originator);
+        }
+        transaction.setDestinationBalances(oldBalance, getBalance());
+    }
+
     public List<Client> getRecentClients() {
+        if (sharesRecentClients) {
+            return fork.clients(forkedFrom.getRecentClients());
+        }
+        if (prevInteractions == null) {
+            return Collections.emptyList();
+        }
         return Arrays.asList(prevInteractions.toArray(new Client[prevInteractions.size()]));
     }
 
@@ -16,6 +16,8 @@ import java.util.*;
  * Hi, I'm Theo...the 3rd Party Fraudster. I like to acquire your account creds and steal your cash/credit.
  */
 public class ThirdPartyFraudster extends SuperActor implements HasClientIdentity, Identifiable, Steppable {
+    // In continuous mode, I forget my oldest victims past this many
+    private static final int MAX_VICTIMS = 1000;
     private double profit = 0;
     private final ClientIdentity identity;
     private final Mule mule;
@@ -25,13 +27,34 @@ public class ThirdPartyFraudster extends SuperActor implements HasClientIdentity
     public ThirdPartyFraudster(PaySimState state, ClientIdentity identity) {
         super(state);
         this.identity = identity;
-        victims = new HashSet<>();
-        favoredMerchants = new HashSet<>();
+        // Insertion ordered, as picking by index from a HashSet of actors would depend on their identity hash codes
+        victims = new LinkedHashSet<>();
+        favoredMerchants = new LinkedHashSet<>();
 
         mule = new Mule(state, identity);
         state.addClient(mule);
     }
 
+    /**
+     * Rebuild a fraudster from a population cache around its mule, already among the clients.
+     */
+    ThirdPartyFraudster(PaySimState state, ClientIdentity identity, Mule mule) {
+        super(state);
+        this.identity = identity;
+        victims = new LinkedHashSet<>();
+        favoredMerchants = new LinkedHashSet<>();
+        this.mule = mule;
+    }
+
+    ThirdPartyFraudster(PaySimState branch, ThirdPartyFraudster origin, ActorFork fork) {
+        super(branch, origin, fork);
+        this.identity = origin.identity;
+        this.profit = origin.profit;
+        victims = new LinkedHashSet<>(fork.clients(new ArrayList<>(origin.victims)));
+        favoredMerchants = new LinkedHashSet<>(fork.merchants(new ArrayList<>(origin.favoredMerchants)));
+        mule = (Mule) fork.client(origin.mule);
+    }
+
     /**
      * These are the merchants I've found a way to breach...or maybe in cahoots with.
      * @param m a Merchant in the simulation
@@ -41,6 +64,24 @@ public class ThirdPartyFraudster extends SuperActor implements HasClientIdentity
         return favoredMerchants.add(m);
     }
 
+    /**
+     * @return the merchants I favor, in the order I picked them
+     */
+    Set<Merchant> getFavoredMerchants() {
+        return favoredMerchants;
+    }
+
+    Mule getMule() {
+        return mule;
+    }
+
+    /**
+     * @return the clients I already stole from, in the order I found them
+     */
+    Set<Client> getVictims() {
+        return victims;
+    }
+
     protected double pickTestChargeAmount(PaySimState state, Client victim, String actionType) {
         final double wobble = 1 + (1f / (state.getRNG().nextInt(50) + 1));
         final double avgAmountForAction = victim.getClientProfile().getProfilePerAction(actionType).getAvgAmount();
@@ -98,7 +139,7 @@ public class ThirdPartyFraudster extends SuperActor implements HasClientIdentity
     public void step(SimState state) {
         PaySimState paysim = (PaySimState) state;
         ArrayList<Transaction> transactions = new ArrayList<>();
-        int step = (int) state.schedule.getSteps();
+        long step = paysim.getCurrentStep();
 
         // XXX: Core 3rd Party Fraud Logic
         if (paysim.getRNG().nextDouble() < parameters.thirdPartyFraudProbability) {
@@ -107,13 +148,18 @@ public class ThirdPartyFraudster extends SuperActor implements HasClientIdentity
                 Client c = pickTargetClient(paysim);
                 Merchant m = pickTestMerchant(paysim);
                 final double testChargeAmt = pickTestChargeAmount(paysim, c, Client.PAYMENT);
-                Transaction testCharge = c.handlePayment(m, step, testChargeAmt);
+                Transaction testCharge = c.handlePayment(paysim, m, step, testChargeAmt);
                 testCharge.setFraud(true);
 
                 if (testCharge.isSuccessful()) {
                     victims.add(c);
+                    if (parameters.continuous && victims.size() > MAX_VICTIMS) {
+                        Iterator<Client> oldest = victims.iterator();
+                        oldest.next();
+                        oldest.remove();
+                    }
                     transactions.add(testCharge);
-                    Transaction xfer = c.handleTransfer(mule, step, pickTestChargeAmount(paysim, c, Client.TRANSFER));
+                    Transaction xfer = c.handleTransfer(paysim, mule, step, pickTestChargeAmount(paysim, c, Client.TRANSFER));
                     xfer.setFraud(true);
                     if (xfer.isSuccessful()) {
                         transactions.add(xfer);
@@ -122,7 +168,7 @@ public class ThirdPartyFraudster extends SuperActor implements HasClientIdentity
             } else {
                 // Repeat attack on a victim
                 pickRepeatVictim(paysim).ifPresent(c -> {
-                    Transaction xfer = c.handleTransfer(mule, step, pickTestChargeAmount(paysim, c, Client.TRANSFER));
+                    Transaction xfer = c.handleTransfer(paysim, mule, step, pickTestChargeAmount(paysim, c, Client.TRANSFER));
                     xfer.setFraud(true);
                     if (xfer.isSuccessful()) {
                         transactions.add(xfer);
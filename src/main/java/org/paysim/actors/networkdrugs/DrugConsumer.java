@@ -4,8 +4,8 @@ import ec.util.MersenneTwisterFast;
 import org.paysim.PaySimState;
 import org.paysim.actors.Client;
 import org.paysim.base.Transaction;
+import org.paysim.engine.StepContext;
 import org.paysim.utils.RandomCollection;
-import sim.engine.SimState;
 
 public class DrugConsumer extends Client {
     private DrugDealer dealer;
@@ -20,21 +20,25 @@ public class DrugConsumer extends Client {
     }
 
     @Override
-    public void step(SimState state) {
-        PaySimState paySim = (PaySimState) state;
-        int step = (int) paySim.schedule.getSteps();
+    public boolean followsProfile() {
+        return false;
+    }
+
+    @Override
+    public void step(StepContext context) {
+        long step = context.getCurrentStep();
 
-        super.step(state);
+        super.step(context);
 
-        if (wantsToBuyDrugs(paySim.random)) {
+        if (wantsToBuyDrugs(context.getRNG())) {
             double amount = pickAmount();
 
-            handleTransferDealer(step, amount);
+            handleTransferDealer(context, step, amount);
         }
     }
 
-    private Transaction handleTransferDealer(int step, double amount) {
-        Transaction t = handleTransfer(dealer, step, amount);
+    private Transaction handleTransferDealer(StepContext context, long step, double amount) {
+        Transaction t = handleTransfer(context, dealer, step, amount);
 
         if (t.isSuccessful()) {
             dealer.addMoneyFromDrug(amount);
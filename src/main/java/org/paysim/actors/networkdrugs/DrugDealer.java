@@ -2,7 +2,7 @@ package org.paysim.actors.networkdrugs;
 
 import org.paysim.PaySimState;
 import org.paysim.actors.Client;
-import sim.engine.SimState;
+import org.paysim.engine.StepContext;
 
 public class DrugDealer extends Client {
     private double thresholdForCashOut;
@@ -15,15 +15,19 @@ public class DrugDealer extends Client {
     }
 
     @Override
-    public void step(SimState state) {
-        PaySimState paySim = (PaySimState) state;
-        int step = (int) paySim.schedule.getSteps();
+    public boolean followsProfile() {
+        return false;
+    }
+
+    @Override
+    public void step(StepContext context) {
+        long step = context.getCurrentStep();
 
-        super.step(state);
+        super.step(context);
 
         if (wantsToCashOutProfit()) {
             double amount = pickAmountCashOutProfit();
-            super.handleCashOut(paySim, step, amount);
+            super.handleCashOut(context, step, amount);
             drugMoneyInAccount -= amount;
         }
     }
@@ -0,0 +1,236 @@
+package org.paysim.base;
+
+import ec.util.MersenneTwisterFast;
+import org.paysim.parameters.ActionTypes;
+import org.paysim.parameters.Parameters;
+import org.paysim.parameters.StepsProfiles;
+import org.paysim.utils.TruncatedNormal;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The distributions of the amounts of the clients' actions blended with the ones of the steps, shared by every client
+ * of the same ClientActionProfile within a simulation.
+ *
+ * Clients pick a ClientActionProfile per action among the few the profiles file lists, and the distribution of the
+ * amounts of an action only depends on that profile and on the step. The cache keeps the distribution of the step last
+ * asked for in a slot per line of the profiles file, indexed by {@link ClientActionProfile#getIndex()}, the next step
+ * replacing it: a simulation never goes back to an earlier step, so this bounds the cache without evicting anything
+ * still used. Every simulation has a cache of its own, so simulations sharing their Parameters don't evict each
+ * other's distributions.
+ *
+ * Distributions are looked up from any thread: they are immutable, and threads racing on a new step just compute the
+ * same distribution more than once.
+ *
+ * The probabilities of the actions depend on the target counts drawn for every client, so the cache also keeps an
+ * {@link ActionTable} per client, indexed by the client's ordinal and rebuilt on the first transaction of every step.
+ * A table is only used by the thread stepping its client.
+ */
+public class ActionDistributionCache {
+    private final StepsProfiles stepsProfiles;
+    private final int[] pickOrder;
+    // Per action index
+    private final boolean[] inflow;
+    // Per ClientActionProfile index, the distribution of the step last asked for
+    private final Amounts[] amounts;
+    // Per client ordinal, grown as clients are first looked up
+    private volatile ActionTable[] actionTables = new ActionTable[0];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder actionTableBuilds = new LongAdder();
+
+    /**
+     * The distribution of the amounts of a ClientActionProfile on a given step.
+     */
+    private static final class Amounts {
+        // Probabilities of the step it was computed for, identifying the step among those of the profiles
+        private final double[] stepProbabilities;
+        private final TruncatedNormal distribution;
+
+        private Amounts(double[] stepProbabilities, TruncatedNormal distribution) {
+            this.stepProbabilities = stepProbabilities;
+            this.distribution = distribution;
+        }
+    }
+
+    /**
+     * The probabilities of the actions of a client on a given step, blended with the ones of the step, as running sums
+     * of the inflow and outflow actions in the order clients go through them. Picking an action only scales the two
+     * sums by the spring correction of the client's balance and scans them once.
+     */
+    public static final class ActionTable {
+        private final int[] actions;
+        private final double[] inflowSums, outflowSums;
+        // Position of the last inflow and outflow action with a weight, -1 if none
+        private int lastInflow, lastOutflow;
+        // Probabilities of the step it was built for, identifying the step among those of the profiles
+        private double[] stepProbabilities;
+
+        private ActionTable(int[] actions) {
+            this.actions = actions;
+            this.inflowSums = new double[actions.length];
+            this.outflowSums = new double[actions.length];
+        }
+
+        private void build(double[] stepProbabilities, double[] clientProbabilities, boolean[] inflow) {
+            double inflowSum = 0, outflowSum = 0;
+            lastInflow = -1;
+            lastOutflow = -1;
+            for (int i = 0; i < actions.length; i++) {
+                final int action = actions[i];
+                final double stepProbability = stepProbabilities[action];
+                final double clientProbability = clientProbabilities[action];
+                // We take the mean between the two distributions
+                final double weight = !Double.isNaN(stepProbability)
+                        ? (clientProbability + stepProbability) / 2 : clientProbability;
+                if (weight > 0) {
+                    if (inflow[action]) {
+                        inflowSum += weight;
+                        lastInflow = i;
+                    } else {
+                        outflowSum += weight;
+                        lastOutflow = i;
+                    }
+                }
+                inflowSums[i] = inflowSum;
+                outflowSums[i] = outflowSum;
+            }
+            this.stepProbabilities = stepProbabilities;
+        }
+
+        /**
+         * @return the probability of picking an inflow action, before correcting it
+         */
+        public double getProbInflow() {
+            return actions.length == 0 ? 0 : inflowSums[actions.length - 1];
+        }
+
+        /**
+         * @param random the random number generator to draw from
+         * @param newProbInflow the probability of picking an inflow action, once corrected
+         * @return the index of the picked action
+         */
+        public int pick(MersenneTwisterFast random, double newProbInflow) {
+            final double probInflow = getProbInflow(), probOutflow = 1 - probInflow;
+            final double inflowScale = probInflow > 0 ? newProbInflow / probInflow : 0;
+            final double outflowScale = probOutflow > 0 ? (1 - newProbInflow) / probOutflow : 0;
+            final int last = Math.max(inflowScale > 0 ? lastInflow : -1, outflowScale > 0 ? lastOutflow : -1);
+            if (last < 0) {
+                throw new IllegalStateException("The collection is empty");
+            }
+
+            final double value = random.nextDouble()
+                    * (inflowSums[last] * inflowScale + outflowSums[last] * outflowScale);
+            for (int i = 0; i < last; i++) {
+                if (inflowSums[i] * inflowScale + outflowSums[i] * outflowScale > value) {
+                    return actions[i];
+                }
+            }
+            return actions[last];
+        }
+    }
+
+    public ActionDistributionCache(Parameters parameters) {
+        final ActionTypes actionTypes = parameters.actionTypes;
+        this.stepsProfiles = parameters.stepsProfiles;
+        this.pickOrder = actionTypes.getPickOrder();
+        this.inflow = new boolean[actionTypes.size()];
+        for (int action = 0; action < inflow.length; action++) {
+            ActionType type = actionTypes.getType(action);
+            inflow[action] = type != null && type.isInflow();
+        }
+        this.amounts = new Amounts[parameters.clientsProfiles.size()];
+    }
+
+    /**
+     * @param ordinal ordinal of the client
+     * @param profile the ClientProfile of the client
+     * @param step a step of the simulation
+     * @return the table to pick the client's actions from on the step, only to be used by the thread stepping the
+     * client
+     */
+    public ActionTable getActions(int ordinal, ClientProfile profile, long step) {
+        final double[] stepProbabilities = stepsProfiles.getProbabilitiesPerStep(step);
+        ActionTable[] tables = actionTables;
+        if (ordinal >= tables.length) {
+            tables = grow(ordinal);
+        }
+        ActionTable table = tables[ordinal];
+        if (table == null) {
+            table = new ActionTable(pickOrder);
+            tables[ordinal] = table;
+        }
+        if (table.stepProbabilities != stepProbabilities) {
+            actionTableBuilds.increment();
+            table.build(stepProbabilities, profile.getActionProbabilities(), inflow);
+        }
+        return table;
+    }
+
+    /**
+     * A table stored by another thread while the array is copied may be lost, in which case the client just gets a
+     * new one.
+     */
+    private synchronized ActionTable[] grow(int ordinal) {
+        ActionTable[] tables = actionTables;
+        if (ordinal >= tables.length) {
+            tables = Arrays.copyOf(tables, Math.max(ordinal + 1, tables.length + (tables.length >> 1)));
+            actionTables = tables;
+        }
+        return tables;
+    }
+
+    /**
+     * @param profile the ClientActionProfile a client picked for the action
+     * @param action index of the action
+     * @param step a step of the simulation
+     * @return the distribution of the amounts of the action, between the ones of the client and the step
+     */
+    public TruncatedNormal getAmounts(ClientActionProfile profile, int action, long step) {
+        final double[] stepProbabilities = stepsProfiles.getProbabilitiesPerStep(step);
+        Amounts cached = amounts[profile.getIndex()];
+        if (cached != null && cached.stepProbabilities == stepProbabilities) {
+            hits.increment();
+            return cached.distribution;
+        }
+        misses.increment();
+        cached = new Amounts(stepProbabilities, blend(profile, stepsProfiles.getActionForStep(step, action)));
+        amounts[profile.getIndex()] = cached;
+        return cached.distribution;
+    }
+
+    private static TruncatedNormal blend(ClientActionProfile clientAmountProfile,
+                                         StepActionProfile stepAmountProfile) {
+        if (stepAmountProfile == null) {
+            return new TruncatedNormal(clientAmountProfile.getAvgAmount(), clientAmountProfile.getStdAmount());
+        }
+        // We take the mean between the two distributions
+        return new TruncatedNormal(
+                (clientAmountProfile.getAvgAmount() + stepAmountProfile.getAvgAmount()) / 2,
+                Math.sqrt((Math.pow(clientAmountProfile.getStdAmount(), 2)
+                        + Math.pow(stepAmountProfile.getStdAmount(), 2))) / 2);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of times a client's ActionTable was built for a step
+     */
+    public long getActionTableBuilds() {
+        return actionTableBuilds.sum();
+    }
+
+    @Override
+    public String toString() {
+        final long hits = getHits(), misses = getMisses();
+        return String.format("%d hits, %d misses (%.1f%% hit rate), %d action tables built", hits, misses,
+                hits + misses == 0 ? 0 : 100.0 * hits / (hits + misses), getActionTableBuilds());
+    }
+}
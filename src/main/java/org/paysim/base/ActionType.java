@@ -0,0 +1,40 @@
+package org.paysim.base;
+
+/**
+ * The kinds of transactions clients know how to make. The actions a simulation actually uses are loaded from its
+ * transactionsTypes file, see {@link org.paysim.parameters.ActionTypes}, which maps each of them to its ActionType.
+ */
+public enum ActionType {
+    CASH_IN(true),
+    CASH_OUT(false),
+    DEBIT(false),
+    PAYMENT(false),
+    TRANSFER(false),
+    DEPOSIT(true);
+
+    private final boolean inflow;
+
+    ActionType(boolean inflow) {
+        this.inflow = inflow;
+    }
+
+    /**
+     * @return true if the action brings money into the client's account
+     */
+    public boolean isInflow() {
+        return inflow;
+    }
+
+    /**
+     * @param action name of an action
+     * @return the matching ActionType, null if clients don't know the action
+     */
+    public static ActionType lookup(String action) {
+        for (ActionType type : values()) {
+            if (type.name().equals(action)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
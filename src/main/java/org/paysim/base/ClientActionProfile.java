@@ -4,8 +4,14 @@ public class ClientActionProfile {
     private final String action;
     private final int minCount, maxCount;
     private final double avgAmount, stdAmount;
+    private final int index;
 
-    public ClientActionProfile(String action, int minCount, int maxCount, double avgAmount, double stdAmount) {
+    /**
+     * @param index position of the profile among all the ones of the profiles file
+     */
+    public ClientActionProfile(int index, String action, int minCount, int maxCount, double avgAmount,
+                               double stdAmount) {
+        this.index = index;
         this.action = action;
         this.minCount = minCount;
         this.maxCount = maxCount;
@@ -13,6 +19,14 @@ public class ClientActionProfile {
         this.stdAmount = stdAmount;
     }
 
+    /**
+     * @return the position of the profile among all the ones of the profiles file, from 0 to
+     * {@link org.paysim.parameters.ClientsProfiles#size()} excluded
+     */
+    public int getIndex() {
+        return index;
+    }
+
     public String getAction() {
         return action;
     }
@@ -3,29 +3,50 @@ package org.paysim.base;
 import ec.util.MersenneTwisterFast;
 import org.paysim.parameters.ActionTypes;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class ClientProfile {
-    private Map<String, ClientActionProfile> profile;
-    private Map<String, Double> actionProbability = new HashMap<>();
-    private final Map<String, Integer> targetCount = new HashMap<>();
+    private final ActionTypes actionTypes;
+    // Per action, indexed by the ActionTypes' indexes
+    private final ClientActionProfile[] profiles;
+    private final int[] targetCounts;
+    private final double[] actionProbabilities;
     private int clientTargetCount;
 
-    public ClientProfile(Map<String, ClientActionProfile> profile, MersenneTwisterFast random) {
-        this.profile = profile;
+    public ClientProfile(Map<String, ClientActionProfile> profile, ActionTypes actionTypes, MersenneTwisterFast random) {
+        this.actionTypes = actionTypes;
+        this.profiles = new ClientActionProfile[actionTypes.size()];
+        this.targetCounts = new int[actionTypes.size()];
         this.clientTargetCount = 0;
-        for (String action : ActionTypes.getActions()) {
+        for (int action = 0; action < profiles.length; action++) {
+            profiles[action] = profile.get(actionTypes.getAction(action));
             int targetCountAction = pickTargetCount(action, random);
-            targetCount.put(action, targetCountAction);
+            targetCounts[action] = targetCountAction;
             clientTargetCount += targetCountAction;
         }
-        computeActionProbability();
+        actionProbabilities = computeActionProbabilities();
     }
 
-    private int pickTargetCount(String action, MersenneTwisterFast random) {
-        ClientActionProfile actionProfile = profile.get(action);
+    /**
+     * Rebuild a ClientProfile whose target counts are already known, e.g. from a checkpoint.
+     *
+     * @param profiles the ClientActionProfile per action index
+     * @param targetCounts the target count per action index
+     * @param actionTypes the actions of the simulation
+     */
+    public ClientProfile(ClientActionProfile[] profiles, int[] targetCounts, ActionTypes actionTypes) {
+        this.actionTypes = actionTypes;
+        this.profiles = profiles;
+        this.targetCounts = targetCounts;
+        this.clientTargetCount = 0;
+        for (int targetCount : targetCounts) {
+            clientTargetCount += targetCount;
+        }
+        actionProbabilities = computeActionProbabilities();
+    }
+
+    private int pickTargetCount(int action, MersenneTwisterFast random) {
+        ClientActionProfile actionProfile = profiles[action];
         int targetCountAction;
 
         int rangeSize = actionProfile.getMaxCount() - actionProfile.getMinCount();
@@ -37,7 +58,7 @@ public class ClientProfile {
         }
 
         //TODO: check if this is really mandatory
-        int maxCountAction = ActionTypes.getMaxOccurrenceGivenAction(actionProfile.getAction());
+        int maxCountAction = actionTypes.getMaxOccurrence(action);
         if (targetCountAction > maxCountAction) {
             targetCountAction = maxCountAction;
         }
@@ -45,16 +66,27 @@ public class ClientProfile {
         return targetCountAction;
     }
 
-    private void computeActionProbability() {
-        actionProbability = targetCount.entrySet()
-                .stream().collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        c -> ((double) c.getValue()) / clientTargetCount)
-                );
+    private double[] computeActionProbabilities() {
+        double[] probabilities = new double[targetCounts.length];
+        for (int action = 0; action < probabilities.length; action++) {
+            probabilities[action] = ((double) targetCounts[action]) / clientTargetCount;
+        }
+        return probabilities;
     }
 
-    public Map<String, Double> getActionProbability() {
-        return actionProbability;
+    /**
+     * @return the probability of every action, by index, not to be modified
+     */
+    public double[] getActionProbabilities() {
+        return actionProbabilities;
+    }
+
+    public int getTargetCount(String action) {
+        return targetCounts[actionTypes.indexOf(action)];
+    }
+
+    public int getTargetCount(int action) {
+        return targetCounts[action];
     }
 
     public int getClientTargetCount() {
@@ -62,6 +94,11 @@ public class ClientProfile {
     }
 
     public ClientActionProfile getProfilePerAction(String action) {
-        return profile.get(action);
+        final int index = actionTypes.indexOf(action);
+        return index < 0 ? null : profiles[index];
+    }
+
+    public ClientActionProfile getProfilePerAction(int action) {
+        return profiles[action];
     }
 }
@@ -21,6 +21,14 @@ public class StepActionProfile {
         this.stdAmount = stdAmount;
     }
 
+    public String getAction() {
+        return action;
+    }
+
+    public long getStep() {
+        return step;
+    }
+
     public long getCount() {
         return count;
     }
@@ -1,27 +1,34 @@
 package org.paysim.base;
 
+import org.paysim.actors.ActorDictionary;
 import org.paysim.actors.SuperActor;
 import org.paysim.output.Output;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 
 public class Transaction implements Serializable {
     private static final long serialVersionUID = 1L;
-    private final int step;
-    private int globalStep = -1;
+    private final long step;
+    private long globalStep = -1;
     private final String action;
     private final double amount;
 
-    private final String idOrig;
-    private final String nameOrig;
+    // Resolves the ids of the actors, null once the transaction left the simulation it was made in
+    private transient ActorDictionary actors;
+    // Ids and names of the originator and destination, only once the transaction left its simulation
+    private transient String[] remoteIdentities;
+
+    private final int origActor;
     private final SuperActor.Type typeOrig;
     private final double oldBalanceOrig, newBalanceOrig;
 
-    private final String idDest;
-    private final String nameDest;
-    private final SuperActor.Type typeDest;
-    private final double oldBalanceDest, newBalanceDest;
+    private int destActor;
+    private SuperActor.Type typeDest;
+    private double oldBalanceDest, newBalanceDest;
 
     private boolean isFraud = false;
     private boolean isFlaggedFraud = false;
@@ -32,7 +39,8 @@ public class Transaction implements Serializable {
      * Record pertinent details of a financial transaction, getting values from an originator and a destination.
      *
      * Implemented in such a way as to not purposely keep references to {SuperActor} instances since it's possible
-     * a large quantity of Transactions may be kept in memory/on-heap at a time.
+     * a large quantity of Transactions may be kept in memory/on-heap at a time. Actors are referred to by their id
+     * in the ActorDictionary of the simulation instead, which resolves their ids and names when asked for.
      *
      * @param step
      * @param action
@@ -44,25 +52,53 @@ public class Transaction implements Serializable {
      * @param oldBalanceDest
      * @param newBalanceDest
      */
-    public Transaction(int step, String action, double amount, SuperActor originator, double oldBalanceOrig,
+    public Transaction(long step, String action, double amount, SuperActor originator, double oldBalanceOrig,
                        double newBalanceOrig, SuperActor destination, double oldBalanceDest, double newBalanceDest) {
         this.step = step;
         this.action = action;
         this.amount = amount;
 
-        this.idOrig = originator.getId();
-        this.nameOrig = originator.getName();
+        this.actors = originator.getActorDictionary();
+        this.origActor = originator.getActorId();
         this.typeOrig = originator.getType();
         this.oldBalanceOrig = oldBalanceOrig;
         this.newBalanceOrig = newBalanceOrig;
 
-        this.idDest = destination.getId();
-        this.nameDest = destination.getName();
+        this.destActor = destination.getActorId();
         this.typeDest = destination.getType();
         this.oldBalanceDest = oldBalanceDest;
         this.newBalanceDest = newBalanceDest;
     }
 
+    /**
+     * Record a transaction whose destination side has not been applied yet. The destination balances are
+     * filled in later via {@link #setDestinationBalances(double, double)} once the receiving actor is settled.
+     */
+    public Transaction(long step, String action, double amount, SuperActor originator, double oldBalanceOrig,
+                       double newBalanceOrig, SuperActor destination) {
+        this(step, action, amount, originator, oldBalanceOrig, newBalanceOrig, destination, 0, 0);
+    }
+
+    /**
+     * Rebuild a transaction from its fields, e.g. as copied into a {@link TransactionRing}.
+     */
+    Transaction(long step, String action, double amount, ActorDictionary actors, int origActor,
+                SuperActor.Type typeOrig, double oldBalanceOrig, double newBalanceOrig, int destActor,
+                SuperActor.Type typeDest, double oldBalanceDest, double newBalanceDest) {
+        this.step = step;
+        this.action = action;
+        this.amount = amount;
+        this.actors = actors;
+        this.origActor = origActor;
+        this.typeOrig = typeOrig;
+        this.oldBalanceOrig = oldBalanceOrig;
+        this.newBalanceOrig = newBalanceOrig;
+        this.destActor = destActor;
+        this.typeDest = typeDest;
+        this.oldBalanceDest = oldBalanceDest;
+        this.newBalanceDest = newBalanceDest;
+    }
+
     public boolean isFailedTransaction(){
         return isFlaggedFraud || isUnauthorizedOverdraft;
     }
@@ -87,15 +123,19 @@ public class Transaction implements Serializable {
         return isFraud;
     }
 
-    public int getGlobalStep() {
+    public boolean isUnauthorizedOverdraft() {
+        return isUnauthorizedOverdraft;
+    }
+
+    public long getGlobalStep() {
         return globalStep;
     }
 
-    public void setGlobalStep(int globalStep) {
+    public void setGlobalStep(long globalStep) {
         this.globalStep = globalStep;
     }
 
-    public int getStep() {
+    public long getStep() {
         return step;
     }
 
@@ -107,12 +147,35 @@ public class Transaction implements Serializable {
         return amount;
     }
 
+    /**
+     * @return the id of the originator in the ActorDictionary of the simulation, see {@link #getActors()}
+     */
+    public int getOrigActor() {
+        return origActor;
+    }
+
+    /**
+     * @return the id of the destination in the ActorDictionary of the simulation, -1 if it lives in another
+     * simulation, see {@link #getActors()}
+     */
+    public int getDestActor() {
+        return destActor;
+    }
+
+    /**
+     * @return the ActorDictionary the actor ids refer to, null once the transaction left the simulation it was
+     * made in, e.g. for another partition of a distributed simulation
+     */
+    public ActorDictionary getActors() {
+        return actors;
+    }
+
     public String getIdOrig() {
-        return idOrig;
+        return remoteIdentities != null ? remoteIdentities[0] : actors.get(origActor).getId();
     }
 
     public String getNameOrig() {
-        return nameOrig;
+        return remoteIdentities != null ? remoteIdentities[1] : actors.get(origActor).getName();
     }
 
     public double getOldBalanceOrig() {
@@ -124,11 +187,17 @@ public class Transaction implements Serializable {
     }
 
     public String getIdDest() {
-        return idDest;
+        if (remoteIdentities != null) {
+            return remoteIdentities[2];
+        }
+        return destActor < 0 ? null : actors.get(destActor).getId();
     }
 
     public String getNameDest() {
-        return nameDest;
+        if (remoteIdentities != null) {
+            return remoteIdentities[3];
+        }
+        return destActor < 0 ? null : actors.get(destActor).getName();
     }
 
     public double getOldBalanceDest() {
@@ -139,6 +208,27 @@ public class Transaction implements Serializable {
         return newBalanceDest;
     }
 
+    /**
+     * Fill in the destination of a transaction created against a stand-in, e.g. for a client of another
+     * partition of a distributed simulation.
+     *
+     * @param destination the actor that actually receives the transaction
+     */
+    public void resolveDestination(SuperActor destination) {
+        if (remoteIdentities != null) {
+            remoteIdentities[2] = destination.getId();
+            remoteIdentities[3] = destination.getName();
+        } else {
+            this.destActor = destination.getActorId();
+        }
+        this.typeDest = destination.getType();
+    }
+
+    public void setDestinationBalances(double oldBalanceDest, double newBalanceDest) {
+        this.oldBalanceDest = oldBalanceDest;
+        this.newBalanceDest = newBalanceDest;
+    }
+
     public boolean isSuccessful() {
         return isSuccessful;
     }
@@ -155,6 +245,17 @@ public class Transaction implements Serializable {
         return typeDest;
     }
 
+    // The ActorDictionary stays behind, the ids and names of the actors go along instead
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(new String[]{getIdOrig(), getNameOrig(), getIdDest(), getNameDest()});
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        remoteIdentities = (String[]) in.readObject();
+    }
+
     @Override
     public String toString(){
         ArrayList<String> properties = new ArrayList<>();
@@ -162,10 +263,10 @@ public class Transaction implements Serializable {
         properties.add(String.valueOf(step));
         properties.add(action);
         properties.add(Output.fastFormatDouble(Output.PRECISION_OUTPUT, amount));
-        properties.add(idOrig);
+        properties.add(getIdOrig());
         properties.add(Output.fastFormatDouble(Output.PRECISION_OUTPUT, oldBalanceOrig));
         properties.add(Output.fastFormatDouble(Output.PRECISION_OUTPUT, newBalanceOrig));
-        properties.add(idDest);
+        properties.add(getIdDest());
         properties.add(Output.fastFormatDouble(Output.PRECISION_OUTPUT, oldBalanceDest));
         properties.add(Output.fastFormatDouble(Output.PRECISION_OUTPUT, newBalanceDest));
         properties.add(Output.formatBoolean(isFraud));
@@ -0,0 +1,234 @@
+package org.paysim.base;
+
+import org.paysim.actors.ActorDictionary;
+import org.paysim.actors.SuperActor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded ring of transaction records handed from one producing thread, the simulation, to one consuming thread.
+ *
+ * Records have a fixed layout spread over parallel primitive arrays allocated once, so the ring holds no
+ * Transaction objects: the producer copies every transaction in, actors being kept as their ActorDictionary ids,
+ * and the consumer reads them back through a {@link TransactionView} that moves from one record to the next.
+ *
+ * The producer appends records without the consumer seeing them until {@link #publish()}, usually called once per
+ * step, so the two threads only meet on a shared cursor once per batch. Neither side takes a lock: a side that has
+ * to wait, for records or for room, spins for a little while and then parks.
+ */
+public class TransactionRing {
+    private static final SuperActor.Type[] TYPES = SuperActor.Type.values();
+    static final byte FRAUD = 1, FLAGGED_FRAUD = 1 << 1, UNAUTHORIZED_OVERDRAFT = 1 << 2, SUCCESSFUL = 1 << 3;
+    private static final int SPINS = 100;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final int mask;
+    final ActorDictionary actors;
+    final long[] step;
+    final String[] action;
+    final double[] amount, oldBalanceOrig, newBalanceOrig, oldBalanceDest, newBalanceDest;
+    final int[] origActor, destActor;
+    final byte[] typeOrig, typeDest, flags;
+    // Transactions the ActorDictionary can't resolve, having been made in another simulation
+    final Transaction[] foreign;
+    // Global step of the record before the first one, e.g. when resuming from a checkpoint
+    long globalStepOffset = 0;
+
+    // Records up to published are readable, those before released can be overwritten
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private volatile boolean closed = false;
+
+    // Producer side
+    private long tail = 0;
+    private long releasedCache = 0;
+
+    // Consumer side
+    private long head = 0;
+    private long publishedCache = 0;
+    private final TransactionView view = new TransactionView(this);
+
+    /**
+     * @param capacity the number of records the ring can hold, rounded up to a power of two
+     * @param actors the ActorDictionary of the simulation producing the transactions
+     */
+    public TransactionRing(int capacity, ActorDictionary actors) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30, got " + capacity);
+        }
+        final int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        this.mask = size - 1;
+        this.actors = actors;
+        step = new long[size];
+        action = new String[size];
+        amount = new double[size];
+        oldBalanceOrig = new double[size];
+        newBalanceOrig = new double[size];
+        oldBalanceDest = new double[size];
+        newBalanceDest = new double[size];
+        origActor = new int[size];
+        destActor = new int[size];
+        typeOrig = new byte[size];
+        typeDest = new byte[size];
+        flags = new byte[size];
+        foreign = new Transaction[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    private static int idle(int round) {
+        if (round < SPINS) {
+            // Busy spin, the other side is likely about to move
+        } else if (round < 2 * SPINS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return round + 1;
+    }
+
+    /**
+     * Set the global step of the record before the first one, before publishing anything.
+     *
+     * @param offset the number of transactions made before this ring's first one
+     */
+    public void setGlobalStepOffset(long offset) {
+        this.globalStepOffset = offset - tail;
+    }
+
+    /**
+     * Copy a transaction into the ring, waiting for room if it's full. Waiting publishes the pending records first,
+     * so steps with more transactions than the ring can hold go through in several batches.
+     *
+     * @param tx the transaction, which can be reused or dropped once copied
+     * @return false if the ring got closed, in which case the transaction was dropped
+     */
+    public boolean add(Transaction tx) {
+        if (tail - releasedCache > mask) {
+            releasedCache = released.get();
+            if (tail - releasedCache > mask) {
+                publish();
+                int round = 0;
+                while (tail - (releasedCache = released.get()) > mask) {
+                    if (closed) {
+                        return false;
+                    }
+                    round = idle(round);
+                }
+            }
+        }
+        if (closed) {
+            return false;
+        }
+
+        final int i = (int) tail & mask;
+        final boolean isForeign = tx.getActors() != actors;
+        step[i] = tx.getStep();
+        action[i] = tx.getAction();
+        amount[i] = tx.getAmount();
+        origActor[i] = isForeign ? -1 : tx.getOrigActor();
+        typeOrig[i] = (byte) tx.getOrigType().ordinal();
+        oldBalanceOrig[i] = tx.getOldBalanceOrig();
+        newBalanceOrig[i] = tx.getNewBalanceOrig();
+        destActor[i] = isForeign ? -1 : tx.getDestActor();
+        typeDest[i] = (byte) tx.getDestType().ordinal();
+        oldBalanceDest[i] = tx.getOldBalanceDest();
+        newBalanceDest[i] = tx.getNewBalanceDest();
+        flags[i] = (byte) ((tx.isFraud() ? FRAUD : 0) | (tx.isFlaggedFraud() ? FLAGGED_FRAUD : 0)
+                | (tx.isUnauthorizedOverdraft() ? UNAUTHORIZED_OVERDRAFT : 0) | (tx.isSuccessful() ? SUCCESSFUL : 0));
+        foreign[i] = isForeign ? tx : null;
+        tail++;
+        return true;
+    }
+
+    /**
+     * Make every record added so far visible to the consumer.
+     */
+    public void publish() {
+        if (!closed) {
+            published.lazySet(tail);
+        }
+    }
+
+    /**
+     * Stop accepting records and drop those not consumed yet. A producer waiting for room gives up.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return true if there's no published record left to consume, always once closed
+     */
+    public boolean isEmpty() {
+        return closed || head == published.get();
+    }
+
+    /**
+     * For the consumer only.
+     *
+     * @return the number of published records left to consume
+     */
+    public int size() {
+        return closed ? 0 : (int) (published.get() - head);
+    }
+
+    /**
+     * Move on to the next published record, releasing the one the view was on.
+     *
+     * @return the view, on the next record, or null if none is published yet
+     */
+    public TransactionView poll() {
+        released.lazySet(head);
+        if (closed) {
+            head = published.get();
+            released.lazySet(head);
+            return null;
+        }
+        if (head == publishedCache && head == (publishedCache = published.get())) {
+            return null;
+        }
+        view.moveTo(head++);
+        return view;
+    }
+
+    /**
+     * Move on to the next published record, waiting for one up to a timeout.
+     *
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the view, on the next record, or null if none got published in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public TransactionView poll(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int round = 0;
+        TransactionView next;
+        while ((next = poll()) == null && !closed) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+            round = idle(round);
+        }
+        return next;
+    }
+
+    static SuperActor.Type typeOf(byte ordinal) {
+        return TYPES[ordinal];
+    }
+
+    int slotOf(long sequence) {
+        return (int) sequence & mask;
+    }
+}
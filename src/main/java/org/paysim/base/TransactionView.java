@@ -0,0 +1,149 @@
+package org.paysim.base;
+
+import org.paysim.actors.SuperActor;
+
+/**
+ * A flyweight over the current record of a {@link TransactionRing}, with the getters of a {@link Transaction}.
+ *
+ * The consumer of the ring gets the same view back for every record, so it must copy what it wants to keep,
+ * e.g. with {@link #toTransaction()}, before moving on to the next one.
+ */
+public class TransactionView {
+    private final TransactionRing ring;
+    private long sequence;
+    private int slot;
+
+    TransactionView(TransactionRing ring) {
+        this.ring = ring;
+    }
+
+    void moveTo(long sequence) {
+        this.sequence = sequence;
+        this.slot = ring.slotOf(sequence);
+    }
+
+    public long getGlobalStep() {
+        return ring.globalStepOffset + sequence + 1;
+    }
+
+    public long getStep() {
+        return ring.step[slot];
+    }
+
+    public String getAction() {
+        return ring.action[slot];
+    }
+
+    public double getAmount() {
+        return ring.amount[slot];
+    }
+
+    /**
+     * @return the id of the originator in the ActorDictionary of the simulation, -1 if it lives in another one
+     */
+    public int getOrigActor() {
+        return ring.origActor[slot];
+    }
+
+    public String getIdOrig() {
+        Transaction foreign = ring.foreign[slot];
+        return foreign != null ? foreign.getIdOrig() : ring.actors.get(ring.origActor[slot]).getId();
+    }
+
+    public String getNameOrig() {
+        Transaction foreign = ring.foreign[slot];
+        return foreign != null ? foreign.getNameOrig() : ring.actors.get(ring.origActor[slot]).getName();
+    }
+
+    public SuperActor.Type getOrigType() {
+        return TransactionRing.typeOf(ring.typeOrig[slot]);
+    }
+
+    public double getOldBalanceOrig() {
+        return ring.oldBalanceOrig[slot];
+    }
+
+    public double getNewBalanceOrig() {
+        return ring.newBalanceOrig[slot];
+    }
+
+    /**
+     * @return the id of the destination in the ActorDictionary of the simulation, -1 if it lives in another one
+     */
+    public int getDestActor() {
+        return ring.destActor[slot];
+    }
+
+    public String getIdDest() {
+        Transaction foreign = ring.foreign[slot];
+        if (foreign != null) {
+            return foreign.getIdDest();
+        }
+        final int dest = ring.destActor[slot];
+        return dest < 0 ? null : ring.actors.get(dest).getId();
+    }
+
+    public String getNameDest() {
+        Transaction foreign = ring.foreign[slot];
+        if (foreign != null) {
+            return foreign.getNameDest();
+        }
+        final int dest = ring.destActor[slot];
+        return dest < 0 ? null : ring.actors.get(dest).getName();
+    }
+
+    public SuperActor.Type getDestType() {
+        return TransactionRing.typeOf(ring.typeDest[slot]);
+    }
+
+    public double getOldBalanceDest() {
+        return ring.oldBalanceDest[slot];
+    }
+
+    public double getNewBalanceDest() {
+        return ring.newBalanceDest[slot];
+    }
+
+    public boolean isFraud() {
+        return (ring.flags[slot] & TransactionRing.FRAUD) != 0;
+    }
+
+    public boolean isFlaggedFraud() {
+        return (ring.flags[slot] & TransactionRing.FLAGGED_FRAUD) != 0;
+    }
+
+    public boolean isUnauthorizedOverdraft() {
+        return (ring.flags[slot] & TransactionRing.UNAUTHORIZED_OVERDRAFT) != 0;
+    }
+
+    public boolean isSuccessful() {
+        return (ring.flags[slot] & TransactionRing.SUCCESSFUL) != 0;
+    }
+
+    public boolean isFailedTransaction() {
+        return isFlaggedFraud() || isUnauthorizedOverdraft();
+    }
+
+    /**
+     * @return a Transaction of its own with the values of the current record
+     */
+    public Transaction toTransaction() {
+        Transaction tx = ring.foreign[slot];
+        if (tx == null) {
+            tx = new Transaction(getStep(), getAction(), getAmount(), ring.actors, getOrigActor(), getOrigType(),
+                    getOldBalanceOrig(), getNewBalanceOrig(), getDestActor(), getDestType(), getOldBalanceDest(),
+                    getNewBalanceDest());
+            tx.setFraud(isFraud());
+            tx.setFlaggedFraud(isFlaggedFraud());
+            tx.setUnauthorizedOverdraft(isUnauthorizedOverdraft());
+            tx.setSuccessful(isSuccessful());
+        }
+        tx.setGlobalStep(getGlobalStep());
+        return tx;
+    }
+
+    @Override
+    public String toString() {
+        return toTransaction().toString();
+    }
+}
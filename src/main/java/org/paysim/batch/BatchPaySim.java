@@ -0,0 +1,78 @@
+package org.paysim.batch;
+
+import org.paysim.PaySimState;
+import org.paysim.base.StepActionProfile;
+import org.paysim.base.Transaction;
+import org.paysim.output.Aggregator;
+import org.paysim.output.SummaryBuilder;
+import org.paysim.parameters.Parameters;
+import org.paysim.parameters.StepsProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A simulation that only keeps the aggregates of its transactions, step by step, to compare them with the target
+ * profiles once done, like the summary of {@link org.paysim.OriginalPaySim} but without writing anything to disk.
+ */
+public class BatchPaySim extends PaySimState {
+    private final List<Transaction> stepTransactions = new ArrayList<>();
+    private final List<StepActionProfile> stepAggregates = new ArrayList<>();
+    private long totalTransactions = 0;
+    private Map<String, Map<String, Double>> errorRates;
+
+    public BatchPaySim(Parameters parameters) {
+        super(parameters);
+    }
+
+    /**
+     * Branch off another batch simulation, see {@link PaySimState#PaySimState(Parameters, PaySimState)}. The steps
+     * the other simulation already made count towards the results of the branch.
+     *
+     * @param parameters parameters of the branch
+     * @param origin the simulation to branch off, paused between two steps
+     */
+    public BatchPaySim(Parameters parameters, BatchPaySim origin) {
+        super(parameters, origin);
+        stepAggregates.addAll(origin.stepAggregates);
+        totalTransactions = origin.totalTransactions;
+    }
+
+    @Override
+    public boolean onTransactions(List<Transaction> transactions) {
+        // Not addAll's result, that would stop the simulation on the first empty batch
+        stepTransactions.addAll(transactions);
+        return true;
+    }
+
+    @Override
+    protected boolean onStep(long stepNum) {
+        stepAggregates.addAll(Aggregator.generateStepAggregate(parameters.actionTypes, stepNum, stepTransactions)
+                .values());
+        totalTransactions += stepTransactions.size();
+        stepTransactions.clear();
+        return true;
+    }
+
+    @Override
+    public void run() {
+        runSimulation();
+
+        StepsProfiles simulationStepsProfiles = new StepsProfiles(stepAggregates, parameters.actionTypes,
+                1 / parameters.multiplier, parameters.nbSteps);
+        errorRates = SummaryBuilder.computeErrorRates(parameters.actionTypes, parameters.stepsProfiles,
+                simulationStepsProfiles);
+    }
+
+    public long getTotalTransactions() {
+        return totalTransactions;
+    }
+
+    /**
+     * @return the error rate per action, per estimator, null until the simulation is done
+     */
+    public Map<String, Map<String, Double>> getErrorRates() {
+        return errorRates;
+    }
+}
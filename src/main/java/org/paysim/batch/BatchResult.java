@@ -0,0 +1,74 @@
+package org.paysim.batch;
+
+import org.paysim.output.SummaryBuilder;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of one run of a {@link BatchRunner}.
+ */
+public class BatchResult {
+    private final Map<String, String> overrides;
+    private final long totalTransactions;
+    private final Map<String, Map<String, Double>> errorRates;
+    private final long durationMillis;
+    private final Throwable failure;
+
+    BatchResult(Map<String, String> overrides, long totalTransactions, Map<String, Map<String, Double>> errorRates,
+                long durationMillis) {
+        this.overrides = overrides;
+        this.totalTransactions = totalTransactions;
+        this.errorRates = errorRates;
+        this.durationMillis = durationMillis;
+        this.failure = null;
+    }
+
+    BatchResult(Map<String, String> overrides, Throwable failure, long durationMillis) {
+        this.overrides = overrides;
+        this.totalTransactions = 0;
+        this.errorRates = Collections.emptyMap();
+        this.durationMillis = durationMillis;
+        this.failure = failure;
+    }
+
+    /**
+     * @return the properties this run overrode
+     */
+    public Map<String, String> getOverrides() {
+        return overrides;
+    }
+
+    public long getTotalTransactions() {
+        return totalTransactions;
+    }
+
+    /**
+     * @return the error rate per action, per estimator, empty if the run failed
+     */
+    public Map<String, Map<String, Double>> getErrorRates() {
+        return errorRates;
+    }
+
+    /**
+     * @return the sum of all the error rates, NaN if the run failed
+     */
+    public double getTotalErrorRate() {
+        return isSuccessful() ? SummaryBuilder.totalErrorRate(errorRates) : Double.NaN;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+
+    /**
+     * @return what made the run fail, null if it succeeded
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+}
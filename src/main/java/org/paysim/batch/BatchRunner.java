@@ -0,0 +1,221 @@
+package org.paysim.batch;
+
+import org.paysim.output.Output;
+import org.paysim.parameters.Parameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs a batch of simulations, e.g. a parameter sweep or a set of seeds, on a bounded pool of worker threads and
+ * collects the summary error rates of every run into one table.
+ *
+ * Every run starts from the same base properties with some of them overridden. The tables parsed from the
+ * parameter files are shared read-only by all the runs, unless a run overrides the files or settings they depend on.
+ *
+ * Usage: BatchRunner [properties file] [number of workers] [property=value1,value2,...]...
+ * e.g. BatchRunner PaySim.properties 32 seed=1,2,3,4 multiplier=0.5,1 merchantReuseProbability=0.8,0.9
+ * runs every combination of the given values and prints the results as CSV.
+ *
+ * With {@link #runBranches(long, List)}, the runs all branch off a single simulation run up to a given step rather
+ * than each making the same first steps again.
+ */
+public class BatchRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+
+    private final Properties baseProperties;
+    private final Parameters baseParameters;
+    private final int nbWorkers;
+
+    /**
+     * @param baseProperties the properties shared by all the runs
+     * @param nbWorkers number of simulations running at the same time
+     */
+    public BatchRunner(Properties baseProperties, int nbWorkers) {
+        if (nbWorkers < 1) {
+            throw new IllegalArgumentException("the number of workers must be at least 1");
+        }
+        this.baseProperties = baseProperties;
+        this.baseParameters = new Parameters(baseProperties);
+        this.nbWorkers = nbWorkers;
+    }
+
+    /**
+     * @param axes the values to try for every property, in order
+     * @return every combination of the values, the first property varying the slowest
+     */
+    public static List<Map<String, String>> grid(Map<String, List<String>> axes) {
+        List<Map<String, String>> runs = new ArrayList<>();
+        runs.add(new LinkedHashMap<>());
+        for (Map.Entry<String, List<String>> axis : axes.entrySet()) {
+            List<Map<String, String>> expanded = new ArrayList<>(runs.size() * axis.getValue().size());
+            for (Map<String, String> run : runs) {
+                for (String value : axis.getValue()) {
+                    Map<String, String> overrides = new LinkedHashMap<>(run);
+                    overrides.put(axis.getKey(), value);
+                    expanded.add(overrides);
+                }
+            }
+            runs = expanded;
+        }
+        return runs;
+    }
+
+    /**
+     * Run a simulation per set of overrides, blocking until they are all done. A failing run doesn't stop the
+     * others, its result records the failure instead.
+     *
+     * @param runs the properties to override in every run
+     * @return the result of every run, in the same order
+     * @throws InterruptedException if interrupted while waiting for the runs, which are then cancelled
+     */
+    public List<BatchResult> run(List<Map<String, String>> runs) throws InterruptedException {
+        return run(runs, BatchPaySim::new);
+    }
+
+    /**
+     * Run the base simulation up to a given step, then branch every set of overrides off it and run them on to the
+     * end. Only the settings read while stepping, such as the fraud probabilities, may be overridden.
+     *
+     * @param warmUpSteps number of steps the runs have in common
+     * @param runs the properties to override in every branch
+     * @return the result of every branch, in the same order
+     * @throws InterruptedException if interrupted while waiting for the runs, which are then cancelled
+     */
+    public List<BatchResult> runBranches(long warmUpSteps, List<Map<String, String>> runs)
+            throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        BatchPaySim trunk = new BatchPaySim(baseParameters);
+        trunk.pauseBefore(warmUpSteps);
+        trunk.run();
+        logger.info(String.format("warmed up for %d steps in %d ms", warmUpSteps, System.currentTimeMillis() - start));
+
+        return run(runs, parameters -> new BatchPaySim(parameters, trunk));
+    }
+
+    private List<BatchResult> run(List<Map<String, String>> runs, Function<Parameters, BatchPaySim> simulations)
+            throws InterruptedException {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        ExecutorService pool = Executors.newFixedThreadPool(nbWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "paysim-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>(runs.size());
+            for (Map<String, String> overrides : runs) {
+                futures.add(pool.submit(() -> runOne(overrides, simulations)));
+            }
+
+            List<BatchResult> results = new ArrayList<>(runs.size());
+            for (Future<BatchResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("batch run failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private BatchResult runOne(Map<String, String> overrides, Function<Parameters, BatchPaySim> simulations) {
+        final long start = System.currentTimeMillis();
+        try {
+            Properties props = new Properties();
+            props.putAll(baseProperties);
+            overrides.forEach(props::setProperty);
+
+            BatchPaySim sim = simulations.apply(new Parameters(props, baseParameters));
+            sim.run();
+
+            BatchResult result = new BatchResult(overrides, sim.getTotalTransactions(), sim.getErrorRates(),
+                    System.currentTimeMillis() - start);
+            logger.info(String.format("run %s done in %d ms, total error rate %.4f", overrides,
+                    result.getDurationMillis(), result.getTotalErrorRate()));
+            return result;
+        } catch (RuntimeException e) {
+            logger.error(String.format("run %s failed", overrides), e);
+            return new BatchResult(overrides, e, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Write the results as a CSV table, one line per run: the overridden properties, the number of transactions,
+     * the error rate of every estimator and action, the total error rate, the duration and the failure if any.
+     *
+     * @param results the results of a batch
+     * @param out where to write the table
+     * @throws IOException if writing fails
+     */
+    public static void writeResults(List<BatchResult> results, Appendable out) throws IOException {
+        Set<String> keys = new LinkedHashSet<>();
+        Map<String, Map<String, Double>> errorRatesLayout = Collections.emptyMap();
+        for (BatchResult result : results) {
+            keys.addAll(result.getOverrides().keySet());
+            if (errorRatesLayout.isEmpty()) {
+                errorRatesLayout = result.getErrorRates();
+            }
+        }
+
+        List<String> header = new ArrayList<>(keys);
+        header.add("nbTransactions");
+        for (Map.Entry<String, Map<String, Double>> estimator : errorRatesLayout.entrySet()) {
+            for (String action : estimator.getValue().keySet()) {
+                header.add(estimator.getKey() + " " + action);
+            }
+        }
+        header.add("totalError");
+        header.add("durationMillis");
+        header.add("failure");
+        out.append(String.join(Output.OUTPUT_SEPARATOR, header)).append(Output.EOL_CHAR);
+
+        for (BatchResult result : results) {
+            List<String> line = new ArrayList<>();
+            for (String key : keys) {
+                line.add(result.getOverrides().getOrDefault(key, ""));
+            }
+            line.add(String.valueOf(result.getTotalTransactions()));
+            for (Map.Entry<String, Map<String, Double>> estimator : errorRatesLayout.entrySet()) {
+                Map<String, Double> errorRates = result.getErrorRates().getOrDefault(estimator.getKey(),
+                        Collections.emptyMap());
+                for (String action : estimator.getValue().keySet()) {
+                    line.add(String.valueOf(errorRates.getOrDefault(action, Double.NaN)));
+                }
+            }
+            line.add(String.valueOf(result.getTotalErrorRate()));
+            line.add(String.valueOf(result.getDurationMillis()));
+            line.add(result.isSuccessful() ? "" : String.valueOf(result.getFailure()).replace(Output.OUTPUT_SEPARATOR, ";"));
+            out.append(String.join(Output.OUTPUT_SEPARATOR, line)).append(Output.EOL_CHAR);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: BatchRunner <properties file> <number of workers> [property=value1,value2,...]...");
+            System.exit(1);
+        }
+
+        Map<String, List<String>> axes = new LinkedHashMap<>();
+        for (int i = 2; i < args.length; i++) {
+            String[] axis = args[i].split("=", 2);
+            if (axis.length != 2) {
+                throw new IllegalArgumentException(String.format("expected property=value1,value2,... but got '%s'", args[i]));
+            }
+            axes.put(axis[0], Arrays.asList(axis[1].split(",")));
+        }
+
+        BatchRunner runner = new BatchRunner(Parameters.loadProperties(args[0]), Integer.parseInt(args[1]));
+        List<BatchResult> results = runner.run(grid(axes));
+        writeResults(results, System.out);
+        System.out.flush();
+    }
+}
@@ -0,0 +1,91 @@
+package org.paysim.distributed;
+
+import org.paysim.actors.SuperActor;
+import org.paysim.base.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * A socket exchanging serialized messages between the {@link Coordinator} and a partition.
+ *
+ * Only the classes making up the messages are deserialized, so that whatever connects can't have arbitrary classes
+ * of the classpath instantiated.
+ */
+class Connection implements Closeable {
+    private static final Set<String> MESSAGE_CLASSES = new HashSet<>(Arrays.asList(
+            PartitionAssignment.class.getName(), StepReport.class.getName(), StepReply.class.getName(),
+            Transfer.class.getName(), Transaction.class.getName(), SuperActor.Type.class.getName(),
+            Enum.class.getName(), Properties.class.getName(), Hashtable.class.getName(), ArrayList.class.getName(),
+            String.class.getName(), int[].class.getName(), String[].class.getName()));
+
+    private final Logger logger = LoggerFactory.getLogger(Connection.class);
+
+    private final Socket socket;
+    private final ObjectOutputStream out;
+    private final ObjectInputStream in;
+
+    Connection(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        // The output stream goes first as both ends block until they've read each other's stream header
+        out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.flush();
+        in = new MessageInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    void send(Object message) throws IOException {
+        out.writeObject(message);
+        out.flush();
+        // Don't let the stream hold on to every message it has ever sent
+        out.reset();
+    }
+
+    Object receive() throws IOException, ClassNotFoundException {
+        return in.readObject();
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.warn("error closing connection to " + socket.getRemoteSocketAddress(), e);
+        }
+    }
+
+    private static class MessageInputStream extends ObjectInputStream {
+        MessageInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!MESSAGE_CLASSES.contains(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "not part of the messages between partitions");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("proxies aren't part of the messages between partitions");
+        }
+    }
+}
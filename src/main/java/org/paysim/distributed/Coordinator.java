@@ -0,0 +1,147 @@
+package org.paysim.distributed;
+
+import org.paysim.parameters.Parameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Drives a simulation split across several processes, each running a {@link PartitionedPaySim}.
+ *
+ * The coordinator hands every partition that connects its {@link PartitionAssignment}, then runs the step
+ * barrier: it waits for each partition to report the end of a step along with the transfers it made to clients
+ * of other partitions, and routes those transfers to their destination before letting everyone move on. The
+ * transfers are delivered in partition order, so a distributed run is reproducible for a given seed and number
+ * of partitions. If any partition stops or disconnects, the others are told to stop at the next barrier.
+ *
+ * Connections aren't authenticated, so the coordinator only listens on the loopback interface unless told which
+ * address to listen on.
+ */
+public class Coordinator implements Runnable, Closeable {
+    private final Logger logger = LoggerFactory.getLogger(Coordinator.class);
+
+    private final ServerSocket server;
+    private final List<PartitionAssignment> assignments;
+    private final List<Connection> partitions = new ArrayList<>();
+
+    public Coordinator(Properties props, int nbPartitions, ServerSocket server) {
+        this.server = server;
+        this.assignments = PartitionAssignment.split(props, nbPartitions);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (PartitionAssignment assignment : assignments) {
+                Connection connection = new Connection(server.accept());
+                connection.send(assignment);
+                partitions.add(connection);
+                logger.info(String.format("partition %d of %d connected", assignment.partition + 1,
+                        assignment.getNbPartitions()));
+            }
+            runBarriers();
+        } catch (SocketException e) {
+            logger.info("coordinator closed, stopping.");
+        } catch (IOException | ClassNotFoundException e) {
+            logger.error("coordinator failed, stopping.", e);
+        } finally {
+            close();
+        }
+    }
+
+    private void runBarriers() throws IOException, ClassNotFoundException {
+        final int nbPartitions = partitions.size();
+        int nbConnected = nbPartitions;
+
+        while (nbConnected > 0) {
+            StepReport[] reports = new StepReport[nbPartitions];
+            boolean keepGoing = true;
+            for (int p = 0; p < nbPartitions; p++) {
+                if (partitions.get(p) == null) {
+                    continue;
+                }
+                try {
+                    reports[p] = (StepReport) partitions.get(p).receive();
+                    keepGoing = keepGoing && reports[p].keepGoing;
+                } catch (EOFException e) {
+                    // Partitions hang up once they've run all their steps, or if they had to stop early
+                    partitions.set(p, null).close();
+                    nbConnected--;
+                    keepGoing = false;
+                }
+            }
+            keepGoing = keepGoing && inLockstep(reports);
+
+            for (int q = 0; q < nbPartitions; q++) {
+                if (reports[q] == null) {
+                    continue;
+                }
+                List<Transfer> inbox = new ArrayList<>();
+                for (StepReport report : reports) {
+                    if (report != null) {
+                        inbox.addAll(report.outboxes.get(q));
+                    }
+                }
+                partitions.get(q).send(new StepReply(keepGoing, inbox));
+            }
+        }
+        logger.info("all partitions done");
+    }
+
+    private boolean inLockstep(StepReport[] reports) {
+        long step = -1;
+        for (StepReport report : reports) {
+            if (report == null) {
+                continue;
+            }
+            if (step >= 0 && report.step != step) {
+                logger.error(String.format("partitions out of step (%d vs %d), stopping.", step, report.step));
+                return false;
+            }
+            step = report.step;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            logger.warn("error closing server socket", e);
+        }
+        for (Connection connection : partitions) {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 && args.length != 4) {
+            System.out.println("Usage: Coordinator <properties file> <number of partitions> <port> [<listen address>]");
+            System.exit(1);
+        }
+        Properties props = Parameters.loadProperties(args[0]);
+        final int nbPartitions = Integer.parseInt(args[1]);
+        InetAddress address = args.length == 4 ? InetAddress.getByName(args[3]) : InetAddress.getLoopbackAddress();
+        Coordinator coordinator = new Coordinator(props, nbPartitions,
+                new ServerSocket(Integer.parseInt(args[2]), nbPartitions, address));
+        System.out.println("Waiting for " + args[1] + " partitions on " + address.getHostAddress() + " port "
+                + coordinator.getPort() + "...");
+        coordinator.run();
+    }
+}
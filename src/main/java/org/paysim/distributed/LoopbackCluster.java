@@ -0,0 +1,59 @@
+package org.paysim.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Runs a distributed simulation inside a single process, the coordinator and its partitions talking over the
+ * loopback interface exactly as they would across machines. Handy for testing.
+ */
+public class LoopbackCluster implements Closeable {
+    private final Logger logger = LoggerFactory.getLogger(LoopbackCluster.class);
+
+    private final Coordinator coordinator;
+    private final Thread coordinatorThread;
+    private final List<PartitionedPaySim> partitions = new ArrayList<>();
+
+    public LoopbackCluster(Properties props, int nbPartitions) throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        coordinator = new Coordinator(props, nbPartitions, new ServerSocket(0, nbPartitions, loopback));
+        coordinatorThread = new Thread(coordinator, "Coordinator");
+        coordinatorThread.start();
+
+        try {
+            for (int i = 0; i < nbPartitions; i++) {
+                partitions.add(PartitionedPaySim.connect(loopback.getHostAddress(), coordinator.getPort()));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the partitions, in partition order. Each one still has to be run and drained.
+     */
+    public List<PartitionedPaySim> getPartitions() {
+        return Collections.unmodifiableList(partitions);
+    }
+
+    @Override
+    public void close() {
+        coordinator.close();
+        try {
+            coordinatorThread.join();
+        } catch (InterruptedException e) {
+            logger.warn("interrupted while waiting for the coordinator to stop", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
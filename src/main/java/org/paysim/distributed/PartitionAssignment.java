@@ -0,0 +1,115 @@
+package org.paysim.distributed;
+
+import ec.util.MersenneTwisterFast;
+import org.paysim.parameters.Parameters;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * What the {@link Coordinator} tells a worker about its share of a distributed simulation.
+ *
+ * The clients of the whole simulation are numbered consecutively and every partition owns a contiguous range of
+ * that numbering. A partition also gets its share of the merchants and fraudsters, its own seed derived from the
+ * global one, and the properties to build its {@link Parameters} from. Partitions don't write to the database, so
+ * its credentials aren't handed out.
+ */
+public class PartitionAssignment implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final List<String> SECRET_PROPERTIES = Arrays.asList("dbUser", "dbPassword");
+
+    public final int partition;
+    public final int globalSeed;
+    public final Properties properties;
+    // Boundaries of each partition's range of clients, partition p owning [clientOffsets[p], clientOffsets[p + 1])
+    private final int[] clientOffsets;
+
+    PartitionAssignment(int partition, int globalSeed, Properties properties, int[] clientOffsets) {
+        this.partition = partition;
+        this.globalSeed = globalSeed;
+        this.properties = properties;
+        this.clientOffsets = clientOffsets;
+    }
+
+    /**
+     * Split the simulation described by the given properties into partitions.
+     *
+     * @param props properties of the whole simulation
+     * @param nbPartitions number of partitions
+     * @return one assignment per partition
+     */
+    public static List<PartitionAssignment> split(Properties props, int nbPartitions) {
+        if (nbPartitions < 1) {
+            throw new IllegalArgumentException("need at least one partition, got " + nbPartitions);
+        }
+        final int globalSeed = Parameters.parseSeed(String.valueOf(props.getProperty("seed")));
+        final double multiplier = Double.parseDouble(props.getProperty("multiplier"));
+        final int nbClients = Integer.parseInt(props.getProperty("nbClients"));
+        final int nbMerchants = Integer.parseInt(props.getProperty("nbMerchants"));
+        final int nbFraudsters = Integer.parseInt(props.getProperty("nbFraudsters"));
+
+        int[] clientOffsets = new int[nbPartitions + 1];
+        List<Properties> partitionProps = new ArrayList<>();
+        for (int p = 0; p < nbPartitions; p++) {
+            Properties partProps = new Properties();
+            partProps.putAll(props);
+            for (String secret : SECRET_PROPERTIES) {
+                partProps.remove(secret);
+            }
+
+            final int partClients = share(nbClients, p, nbPartitions);
+            partProps.setProperty("seed", String.valueOf(deriveSeed(globalSeed, p)));
+            partProps.setProperty("nbClients", String.valueOf(partClients));
+            partProps.setProperty("nbMerchants", String.valueOf(Math.max(1, share(nbMerchants, p, nbPartitions))));
+            partProps.setProperty("nbFraudsters", String.valueOf(share(nbFraudsters, p, nbPartitions)));
+            partitionProps.add(partProps);
+
+            // Same rounding as PaySimState applies when creating the clients
+            clientOffsets[p + 1] = clientOffsets[p] + (int) (partClients * multiplier);
+        }
+
+        List<PartitionAssignment> assignments = new ArrayList<>();
+        for (int p = 0; p < nbPartitions; p++) {
+            assignments.add(new PartitionAssignment(p, globalSeed, partitionProps.get(p), clientOffsets));
+        }
+        return assignments;
+    }
+
+    private static int share(int total, int partition, int nbPartitions) {
+        return (int) ((long) total * (partition + 1) / nbPartitions - (long) total * partition / nbPartitions);
+    }
+
+    private static int deriveSeed(int globalSeed, int partition) {
+        return new MersenneTwisterFast(new int[]{globalSeed, partition + 1}).nextInt(Integer.MAX_VALUE);
+    }
+
+    public int getNbPartitions() {
+        return clientOffsets.length - 1;
+    }
+
+    /**
+     * @return number of clients over all the partitions
+     */
+    public int getNbClients() {
+        return clientOffsets[clientOffsets.length - 1];
+    }
+
+    /**
+     * @param client index of a client in the global numbering
+     * @return the partition owning it
+     */
+    public int partitionOf(int client) {
+        int found = Arrays.binarySearch(clientOffsets, client);
+        if (found < 0) {
+            return -found - 2;
+        }
+        // Skip over empty partitions sharing the same boundary
+        while (clientOffsets[found + 1] == client) {
+            found++;
+        }
+        return found;
+    }
+}
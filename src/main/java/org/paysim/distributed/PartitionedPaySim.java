@@ -0,0 +1,168 @@
+package org.paysim.distributed;
+
+import ec.util.MersenneTwisterFast;
+import org.paysim.IteratingPaySim;
+import org.paysim.actors.Client;
+import org.paysim.actors.SuperActor;
+import org.paysim.base.Transaction;
+import org.paysim.identity.IdentityProvider;
+import org.paysim.parameters.Parameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One partition of a simulation split across several processes by a {@link Coordinator}.
+ *
+ * A partition only holds its own range of clients plus its share of the merchants and fraudsters, and streams its
+ * transactions like an {@link IteratingPaySim}. Banks are the same in every partition. When a client makes a
+ * transfer, the recipient is drawn over the clients of all partitions: if it falls in another partition, the
+ * transfer is forwarded there at the end of the step, where the recipient gets picked, credited and the
+ * transaction emitted. Hence every transaction shows up in exactly one partition's output. The chunks of a transfer
+ * above the transfer limit all go to the same recipient, wherever it is.
+ *
+ * Every process needs the parameter files named in the properties at the same location.
+ */
+public class PartitionedPaySim extends IteratingPaySim {
+    private final Logger logger = LoggerFactory.getLogger(PartitionedPaySim.class);
+
+    private final PartitionAssignment assignment;
+    private final Connection coordinator;
+    private final IdentityProvider bankIdProvider;
+    private final List<ArrayList<Transfer>> outboxes = new ArrayList<>();
+    // Transfers forwarded to other partitions so far, numbering them. Lanes of a parallel stepper pick recipients too
+    private final AtomicLong nbForwardedTransfers = new AtomicLong();
+
+    PartitionedPaySim(PartitionAssignment assignment, Connection coordinator) {
+        super(new Parameters(assignment.properties));
+        this.assignment = assignment;
+        this.coordinator = coordinator;
+        this.bankIdProvider = getParameters().identitySource.create(assignment.globalSeed,
+                getParameters().permutedCardNumbers);
+        for (int i = 0; i < assignment.getNbPartitions(); i++) {
+            outboxes.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Join a distributed simulation, waiting for the coordinator to assign us a partition.
+     *
+     * @param host coordinator host
+     * @param port coordinator port
+     * @return the partition, ready to run
+     * @throws IOException if the coordinator can't be reached
+     */
+    public static PartitionedPaySim connect(String host, int port) throws IOException {
+        Connection connection = new Connection(new Socket(host, port));
+        try {
+            return new PartitionedPaySim((PartitionAssignment) connection.receive(), connection);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            connection.close();
+            throw new IOException("unexpected message from the coordinator", e);
+        }
+    }
+
+    public PartitionAssignment getAssignment() {
+        return assignment;
+    }
+
+    @Override
+    protected void runSimulation() {
+        try {
+            super.runSimulation();
+        } finally {
+            coordinator.close();
+        }
+    }
+
+    @Override
+    protected IdentityProvider getBankIdentityProvider() {
+        return bankIdProvider;
+    }
+
+    @Override
+    public SuperActor pickTransferRecipient(MersenneTwisterFast random, String originatingId) {
+        final int partition = assignment.partitionOf(random.nextInt(assignment.getNbClients()));
+        if (partition == assignment.partition) {
+            return pickRandomClient(random, originatingId);
+        }
+        return new RemoteClient(this, partition, nbForwardedTransfers.getAndIncrement());
+    }
+
+    void forward(int partition, long transferId, Transaction transaction, double amount) {
+        outboxes.get(partition).add(new Transfer(assignment.partition, transferId, transaction, amount));
+    }
+
+    @Override
+    public boolean onTransactions(List<Transaction> transactions) {
+        List<Transaction> local = new ArrayList<>(transactions.size());
+        for (Transaction tx : transactions) {
+            // Transfers forwarded to another partition get emitted over there
+            if (tx.getIdDest() != null) {
+                local.add(tx);
+            }
+        }
+        return super.onTransactions(local);
+    }
+
+    @Override
+    public boolean onStep(long stepNum) {
+        boolean keepGoing = super.onStep(stepNum);
+        try {
+            coordinator.send(new StepReport(stepNum, keepGoing, outboxes));
+            for (List<Transfer> outbox : outboxes) {
+                outbox.clear();
+            }
+
+            StepReply reply = (StepReply) coordinator.receive();
+            List<Transaction> received = new ArrayList<>(reply.inbox.size());
+            // Recipient of every transfer received this step, by originating partition and transfer id
+            List<Map<Long, Client>> recipients = new ArrayList<>();
+            for (int p = 0; p < assignment.getNbPartitions(); p++) {
+                recipients.add(new HashMap<>());
+            }
+            for (Transfer transfer : reply.inbox) {
+                Transaction tx = transfer.transaction;
+                Client recipient = recipients.get(transfer.partition)
+                        .computeIfAbsent(transfer.transferId, id -> pickRandomClient(tx.getIdOrig()));
+                tx.resolveDestination(recipient);
+                recipient.settleIncoming(tx, null, transfer.amount);
+                received.add(tx);
+            }
+            return super.onTransactions(received) && reply.keepGoing && keepGoing;
+        } catch (IOException | ClassNotFoundException e) {
+            logger.error("lost the coordinator, stopping.", e);
+            return false;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: PartitionedPaySim <coordinator host> <coordinator port>");
+            System.exit(1);
+        }
+        PartitionedPaySim sim = null;
+        try {
+            sim = PartitionedPaySim.connect(args[0], Integer.parseInt(args[1]));
+        } catch (IOException e) {
+            System.out.println("Could not join the coordinator: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println(String.format("Running partition %d of %d...", sim.getAssignment().partition + 1,
+                sim.getAssignment().getNbPartitions()));
+
+        long startTime = System.currentTimeMillis();
+        sim.run();
+        sim.forEachRemaining(tx -> System.out.println(tx.getGlobalStep() + "," + tx.toString()));
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("Duration: " + totalTime / 1000.0 + " seconds");
+    }
+}
@@ -0,0 +1,57 @@
+package org.paysim.distributed;
+
+import org.paysim.actors.Client;
+import org.paysim.actors.SuperActor;
+import org.paysim.base.Transaction;
+import org.paysim.identity.Identity;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Stands in for the recipient of a transfer to another partition. The recipient is only picked by that partition
+ * once the transfer gets there, so the transaction leaves without any destination details. Every chunk of the
+ * transfer goes through the same stand-in, hence with the same transfer id.
+ */
+class RemoteClient extends SuperActor {
+    private final PartitionedPaySim paysim;
+    private final int partition;
+    private final long transferId;
+
+    RemoteClient(PartitionedPaySim paysim, int partition, long transferId) {
+        super(paysim.getParameters());
+        this.paysim = paysim;
+        this.partition = partition;
+        this.transferId = transferId;
+    }
+
+    @Override
+    public void settleIncoming(Transaction transaction, Client originator, double amount) {
+        paysim.forward(partition, transferId, transaction, amount);
+    }
+
+    @Override
+    public Type getType() {
+        return Type.CLIENT;
+    }
+
+    @Override
+    public String getId() {
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return null;
+    }
+
+    @Override
+    public Identity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> getIdentityAsMap() {
+        return Collections.emptyMap();
+    }
+}
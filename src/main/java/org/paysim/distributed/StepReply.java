@@ -0,0 +1,20 @@
+package org.paysim.distributed;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Sent by the {@link Coordinator} to a partition once every partition is done with a step.
+ */
+class StepReply implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final boolean keepGoing;
+    // Incoming transfers, ordered by originating partition
+    final List<Transfer> inbox;
+
+    StepReply(boolean keepGoing, List<Transfer> inbox) {
+        this.keepGoing = keepGoing;
+        this.inbox = inbox;
+    }
+}
@@ -0,0 +1,23 @@
+package org.paysim.distributed;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sent by a partition to the {@link Coordinator} once it is done with a step.
+ */
+class StepReport implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final long step;
+    final boolean keepGoing;
+    // Outgoing transfers, indexed by destination partition
+    final List<ArrayList<Transfer>> outboxes;
+
+    StepReport(long step, boolean keepGoing, List<ArrayList<Transfer>> outboxes) {
+        this.step = step;
+        this.keepGoing = keepGoing;
+        this.outboxes = outboxes;
+    }
+}
@@ -0,0 +1,26 @@
+package org.paysim.distributed;
+
+import org.paysim.base.Transaction;
+
+import java.io.Serializable;
+
+/**
+ * A transfer on its way to the partition that will pick its recipient and settle it. A transfer above the transfer
+ * limit goes in several chunks, all carrying the id of the transfer so they reach the same recipient.
+ */
+class Transfer implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Partition the transfer comes from, and its id there
+    final int partition;
+    final long transferId;
+    final Transaction transaction;
+    final double amount;
+
+    Transfer(int partition, long transferId, Transaction transaction, double amount) {
+        this.partition = partition;
+        this.transferId = transferId;
+        this.transaction = transaction;
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,195 @@
+package org.paysim.engine;
+
+import ec.util.MersenneTwisterFast;
+import org.paysim.actors.Client;
+import sim.util.distribution.Binomial;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Event calendar of the steps clients are next active in, keyed by step.
+ *
+ * On every step, a client makes Binomial(n, w) transactions, n being the step's target count and w the client's
+ * weight. It stays idle through a run of steps with probability (1 - w) to the power of their summed target
+ * counts, so the next step it is active in can be drawn directly with a single uniform variate and a binary search
+ * over the cumulative target counts. Once woken up, the client draws its number of transactions from the same
+ * binomial conditioned on being non-zero. Skipping the idle steps this way doesn't change the distribution of
+ * anybody's activity.
+ */
+public class ActivityCalendar {
+    // Below this probability of drawing 0, conditioning on a non-zero count by rejection is cheaper than inversion
+    private static final double MIN_INVERSION_P0 = 1e-12;
+
+    // cumulativeTargets[t] is the summed target count of the steps before step t
+    private final long[] cumulativeTargets;
+    private final List<List<Client>> calendar;
+
+    /**
+     * @param targetCounts target count of each step of the simulation
+     */
+    public ActivityCalendar(int[] targetCounts) {
+        cumulativeTargets = new long[targetCounts.length + 1];
+        for (int t = 0; t < targetCounts.length; t++) {
+            cumulativeTargets[t + 1] = cumulativeTargets[t] + targetCounts[t];
+        }
+        calendar = new ArrayList<>(Collections.<List<Client>>nCopies(targetCounts.length, null));
+    }
+
+    private int getNbSteps() {
+        return cumulativeTargets.length - 1;
+    }
+
+    /**
+     * Put a client on the calendar for the next step it is active in, if any.
+     *
+     * @param client the Client
+     * @param random RNG to draw from
+     * @param step last step the client is done with, -1 before the first one
+     */
+    public void schedule(Client client, MersenneTwisterFast random, int step) {
+        int next = nextActiveStep(random, client.getClientWeight(), step);
+        if (next >= 0) {
+            List<Client> due = calendar.get(next);
+            if (due == null) {
+                due = new ArrayList<>();
+                calendar.set(next, due);
+            }
+            due.add(client);
+        }
+    }
+
+    /**
+     * Take the clients due on a step off the calendar.
+     *
+     * @param step the step
+     * @return the clients active on that step, in the order they were put on the calendar
+     */
+    public List<Client> take(int step) {
+        List<Client> due = calendar.set(step, null);
+        return due == null ? Collections.<Client>emptyList() : due;
+    }
+
+    /**
+     * Write the clients on the calendar, by ordinal, for a checkpoint.
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    public void writeState(DataOutputStream out) throws IOException {
+        out.writeInt(getNbSteps());
+        for (List<Client> due : calendar) {
+            if (due == null) {
+                out.writeInt(0);
+            } else {
+                out.writeInt(due.size());
+                for (Client c : due) {
+                    out.writeInt(c.getOrdinal());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the clients on the calendar with those written by {@link #writeState(DataOutputStream)}.
+     *
+     * @param in where to read from
+     * @param clients all the clients of the simulation
+     * @throws IOException if reading fails
+     */
+    public void readState(DataInputStream in, List<Client> clients) throws IOException {
+        final int nbSteps = in.readInt();
+        if (nbSteps != getNbSteps()) {
+            throw new IOException(String.format("checkpoint holds a calendar of %d steps, expected %d",
+                    nbSteps, getNbSteps()));
+        }
+        Client[] byOrdinal = new Client[clients.size()];
+        for (Client c : clients) {
+            byOrdinal[c.getOrdinal()] = c;
+        }
+        for (int t = 0; t < nbSteps; t++) {
+            final int size = in.readInt();
+            List<Client> due = null;
+            if (size > 0) {
+                due = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    due.add(byOrdinal[in.readInt()]);
+                }
+            }
+            calendar.set(t, due);
+        }
+    }
+
+    /**
+     * @param random RNG to draw from
+     * @param weight the client's weight
+     * @param step last step the client is done with, -1 before the first one
+     * @return the next step the client is active in, -1 if it isn't active in any of the remaining steps
+     */
+    int nextActiveStep(MersenneTwisterFast random, double weight, int step) {
+        final int first = step + 1;
+        if (first >= getNbSteps() || weight <= 0) {
+            return -1;
+        }
+
+        // The idle steps can't add up to more than this target count, exponentially distributed
+        double threshold = 0;
+        if (weight < 1) {
+            threshold = Math.log(1 - random.nextDouble()) / Math.log1p(-weight);
+        }
+        final double limit = cumulativeTargets[first] + threshold;
+        if (!(cumulativeTargets[getNbSteps()] > limit)) {
+            return -1;
+        }
+
+        // Smallest t >= first such that cumulativeTargets[t + 1] > limit
+        int low = first, high = getNbSteps() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeTargets[mid + 1] > limit) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Draw from Binomial(n, p) conditioned on the result being at least 1.
+     *
+     * @param random RNG to draw from
+     * @param n number of trials, at least 1
+     * @param p probability of success, in (0, 1]
+     * @return the number of successes
+     */
+    public static int pickPositiveCount(MersenneTwisterFast random, int n, double p) {
+        if (p >= 1) {
+            return n;
+        }
+        final double p0 = Math.exp(n * Math.log1p(-p));
+        if (p0 < MIN_INVERSION_P0) {
+            int count;
+            do {
+                count = new Binomial(n, p, random).nextInt();
+            } while (count == 0);
+            return count;
+        }
+
+        // Inversion over the pmf, with the uniform drawn past the mass of 0
+        final double u = p0 + random.nextDouble() * (1 - p0);
+        final double odds = p / (1 - p);
+        double pmf = p0, cdf = p0;
+        int k = 0;
+        while (cdf <= u && k < n) {
+            pmf *= (double) (n - k) / (k + 1) * odds;
+            k++;
+            cdf += pmf;
+        }
+        return Math.max(k, 1);
+    }
+}
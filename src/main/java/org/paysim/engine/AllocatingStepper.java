@@ -0,0 +1,74 @@
+package org.paysim.engine;
+
+import org.paysim.PaySimState;
+import org.paysim.actors.Client;
+import org.paysim.actors.SuperActor;
+import sim.engine.Steppable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits every step's target count across the clients with a {@link CountAllocator} instead of having each client
+ * draw its own count, so the number of transactions made by the clients matches the step's target exactly. Only
+ * the clients allocated any transaction get stepped.
+ *
+ * Fraudsters, and clients that don't act on their own profile such as mules, are still stepped on every step,
+ * ahead of the other clients.
+ */
+public class AllocatingStepper implements Stepper {
+    private final PaySimState state;
+    private final List<Steppable> everyStep = new ArrayList<>();
+    private final List<Client> clients = new ArrayList<>();
+    private final CountAllocator allocator;
+
+    public AllocatingStepper(PaySimState state) {
+        this.state = state;
+
+        for (SuperActor fraudster : state.getFraudsters()) {
+            everyStep.add((Steppable) fraudster);
+        }
+        for (Client c : state.getInitialClients()) {
+            if (c.followsProfile()) {
+                clients.add(c);
+            } else {
+                everyStep.add(c);
+            }
+        }
+
+        double[] weights = new double[clients.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = clients.get(i).getClientWeight();
+        }
+        allocator = new CountAllocator(weights);
+    }
+
+    @Override
+    public boolean step() {
+        for (Steppable actor : everyStep) {
+            actor.step(state);
+        }
+
+        final int nbAllocated = allocator.allocate(state.getRNG(), state.getStepTargetCount());
+        for (int k = 0; k < nbAllocated; k++) {
+            int index = allocator.getAllocated(k);
+            clients.get(index).performTransactions(state, allocator.getCount(index));
+        }
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public void writeState(DataOutputStream out) {
+        // Nothing carries over from one step to the next, every step is allocated afresh
+    }
+
+    @Override
+    public void readState(DataInputStream in) {
+    }
+}
@@ -0,0 +1,119 @@
+package org.paysim.engine;
+
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Splits a step's target count across a population in one pass, each transaction going to a member with
+ * probability proportional to its weight. The counts follow a multinomial distribution and always add up to the
+ * target exactly.
+ *
+ * Members are drawn from a Vose alias table built once over the weights, so allocating costs two random draws per
+ * transaction, whatever the size of the population, and doesn't allocate anything.
+ */
+public class CountAllocator {
+    private final double[] probability;
+    private final int[] alias;
+    private final boolean empty;
+
+    private final int[] counts;
+    private final int[] allocated;
+    private int nbAllocated = 0;
+
+    /**
+     * @param weights non-negative weight of every member of the population
+     */
+    public CountAllocator(double[] weights) {
+        final int n = weights.length;
+        probability = new double[n];
+        alias = new int[n];
+        counts = new int[n];
+        allocated = new int[n];
+
+        double total = 0;
+        for (double w : weights) {
+            if (w < 0) {
+                throw new IllegalArgumentException("weights can't be negative");
+            }
+            total += w;
+        }
+        empty = !(total > 0);
+        if (empty) {
+            return;
+        }
+
+        // Scaled so that the average weight is 1, then pair every small weight with a large one
+        double[] scaled = new double[n];
+        int[] small = new int[n], large = new int[n];
+        int nbSmall = 0, nbLarge = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1) {
+                small[nbSmall++] = i;
+            } else {
+                large[nbLarge++] = i;
+            }
+        }
+        while (nbSmall > 0 && nbLarge > 0) {
+            int less = small[--nbSmall], more = large[--nbLarge];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small[nbSmall++] = more;
+            } else {
+                large[nbLarge++] = more;
+            }
+        }
+        // Left overs are only off 1 by rounding errors
+        while (nbLarge > 0) {
+            probability[large[--nbLarge]] = 1;
+        }
+        while (nbSmall > 0) {
+            probability[small[--nbSmall]] = 1;
+        }
+    }
+
+    /**
+     * Split a total count across the population, replacing the previous allocation.
+     *
+     * @param random RNG to draw from
+     * @param total count to split
+     * @return the number of members allocated at least 1, see {@link #getAllocated(int)}
+     */
+    public int allocate(MersenneTwisterFast random, int total) {
+        for (int k = 0; k < nbAllocated; k++) {
+            counts[allocated[k]] = 0;
+        }
+        nbAllocated = 0;
+        if (empty) {
+            return 0;
+        }
+
+        for (int t = 0; t < total; t++) {
+            int i = random.nextInt(probability.length);
+            if (random.nextDouble() >= probability[i]) {
+                i = alias[i];
+            }
+            if (counts[i]++ == 0) {
+                allocated[nbAllocated++] = i;
+            }
+        }
+        return nbAllocated;
+    }
+
+    /**
+     * @param k rank of the member, from 0 to the value returned by {@link #allocate(MersenneTwisterFast, int)}
+     * @return index of the k-th member allocated at least 1, in the random order of their first draws
+     */
+    public int getAllocated(int k) {
+        return allocated[k];
+    }
+
+    /**
+     * @param index index of a member
+     * @return the count allocated to it
+     */
+    public int getCount(int index) {
+        return counts[index];
+    }
+}
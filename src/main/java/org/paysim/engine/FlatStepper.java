@@ -0,0 +1,89 @@
+package org.paysim.engine;
+
+import ec.util.MersenneTwisterFast;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Steps a fixed set of actors from a flat array instead of MASON's Schedule.
+ *
+ * PaySim only ever schedules actors to repeat on every step at the same ordering, which MASON serves from a
+ * priority queue: every actor gets popped off and pushed back onto the heap on each step. Here a step is a plain
+ * loop over an array. Shuffling keeps MASON's semantics of stepping the actors in a fresh random order, drawn from
+ * the simulation RNG, on every step; otherwise they're stepped in the order they were handed over.
+ */
+public class FlatStepper implements Stepper {
+    private final SimState state;
+    private final Steppable[] actors;
+    // The actors in the order they were handed over, as shuffling reorders the array in place
+    private final Steppable[] handedOver;
+    private final boolean shuffle;
+
+    public FlatStepper(SimState state, Collection<? extends Steppable> actors, boolean shuffle) {
+        this.state = state;
+        this.actors = actors.toArray(new Steppable[0]);
+        this.handedOver = this.actors.clone();
+        this.shuffle = shuffle;
+    }
+
+    @Override
+    public boolean step() {
+        // Like MASON's schedule, stop once there's nothing left to step
+        if (actors.length == 0) {
+            return false;
+        }
+        if (shuffle) {
+            shuffle(state.random);
+        }
+        for (Steppable actor : actors) {
+            actor.step(state);
+        }
+        return true;
+    }
+
+    /**
+     * Fisher-Yates shuffle, drawing from the RNG just like MASON does when it shuffles the actors due on a step.
+     */
+    private void shuffle(MersenneTwisterFast random) {
+        for (int i = actors.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Steppable tmp = actors[i];
+            actors[i] = actors[j];
+            actors[j] = tmp;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public void writeState(DataOutputStream out) throws IOException {
+        Map<Steppable, Integer> index = new IdentityHashMap<>(handedOver.length);
+        for (int i = 0; i < handedOver.length; i++) {
+            index.put(handedOver[i], i);
+        }
+        out.writeInt(actors.length);
+        for (Steppable actor : actors) {
+            out.writeInt(index.get(actor));
+        }
+    }
+
+    @Override
+    public void readState(DataInputStream in) throws IOException {
+        final int nbActors = in.readInt();
+        if (nbActors != actors.length) {
+            throw new IOException(String.format("checkpoint holds %d actors, expected %d", nbActors, actors.length));
+        }
+        for (int i = 0; i < nbActors; i++) {
+            actors[i] = handedOver[in.readInt()];
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.paysim.engine;
+
+import ec.util.MersenneTwisterFast;
+import org.paysim.PaySimState;
+import org.paysim.actors.Client;
+import org.paysim.actors.SuperActor;
+import org.paysim.base.Transaction;
+
+import java.util.List;
+
+/**
+ * A contiguous slice of the client population stepped by a single worker of the {@link ParallelStepper}.
+ *
+ * A lane owns nothing but the clients it steps, so the receiving side of every transaction is queued until the
+ * step barrier.
+ */
+class Lane extends WorkerContext {
+    private final SettlementQueue settlements = new SettlementQueue();
+
+    private List<Client> clients;
+    private int from, to;
+
+    Lane(PaySimState state, MersenneTwisterFast random) {
+        super(state, random);
+    }
+
+    void assign(List<Client> clients, int from, int to) {
+        this.clients = clients;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public Void call() {
+        for (int i = from; i < to; i++) {
+            clients.get(i).step(this);
+        }
+        return null;
+    }
+
+    /**
+     * Settle the receiving side of this lane's transactions and hand them over to the simulation.
+     *
+     * @return false if the simulation asked to stop
+     */
+    boolean flush() {
+        settlements.settleAll();
+        return emit();
+    }
+
+    @Override
+    public void settle(SuperActor destination, Transaction transaction, Client originator, double amount) {
+        settlements.add(destination, transaction, originator, amount);
+    }
+}
@@ -0,0 +1,23 @@
+package org.paysim.engine;
+
+import sim.engine.SimState;
+
+/**
+ * Steps the actors registered with MASON's schedule.
+ */
+public class MasonStepper implements Stepper {
+    private final SimState state;
+
+    public MasonStepper(SimState state) {
+        this.state = state;
+    }
+
+    @Override
+    public boolean step() {
+        return state.schedule.step(state);
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
@@ -0,0 +1,59 @@
+package org.paysim.engine;
+
+import org.paysim.PaySimState;
+import org.paysim.actors.Client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Steps the client population over a fork-join pool instead of MASON's single threaded schedule.
+ *
+ * The clients are cut into a fixed number of {@link Lane}s, each drawing from its own RNG stream derived from the
+ * seed. A lane only mutates the clients it steps: the receiving side of their transactions (merchants, banks and
+ * other clients) is queued and settled at the step barrier in lane order. The output is therefore reproducible for
+ * a given seed and parallelism no matter how the pool happens to schedule the lanes.
+ */
+public class ParallelStepper extends PooledStepper {
+    // More lanes than threads lets work stealing even out uneven lanes
+    private static final int LANES_PER_THREAD = 4;
+
+    private final List<Lane> lanes = new ArrayList<>();
+
+    public ParallelStepper(PaySimState state, int parallelism) {
+        super(state, parallelism);
+
+        for (int i = 0; i < parallelism * LANES_PER_THREAD; i++) {
+            lanes.add(new Lane(state, state.deriveRNG(i + 1)));
+        }
+    }
+
+    @Override
+    protected boolean stepClients() {
+        final List<Client> clients = state.getClients();
+        final long nbClients = clients.size();
+        final int nbLanes = lanes.size();
+        for (int i = 0; i < nbLanes; i++) {
+            lanes.get(i).assign(clients, (int) (nbClients * i / nbLanes), (int) (nbClients * (i + 1) / nbLanes));
+        }
+
+        if (!runAll(lanes)) {
+            return false;
+        }
+
+        boolean keepGoing = true;
+        for (Lane lane : lanes) {
+            keepGoing = lane.flush() && keepGoing;
+        }
+        return keepGoing;
+    }
+
+    @Override
+    List<? extends WorkerContext> getWorkers() {
+        return lanes;
+    }
+
+    public int getNbLanes() {
+        return lanes.size();
+    }
+}
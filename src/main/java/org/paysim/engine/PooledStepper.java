@@ -0,0 +1,122 @@
+package org.paysim.engine;
+
+import org.paysim.PaySimState;
+import org.paysim.actors.SuperActor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sim.engine.Steppable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base for Steppers that spread the client population over a fork-join pool.
+ *
+ * Fraudsters go first, sequentially and on the simulation RNG, since they reach into arbitrary clients. Subclasses
+ * then step the clients on the pool. Each step is timed against the configured {@code stepTimeBudget}; going over
+ * it is logged rather than enforced, as cutting a step short would break reproducibility.
+ */
+public abstract class PooledStepper implements Stepper {
+    private final Logger logger = LoggerFactory.getLogger(PooledStepper.class);
+
+    protected final PaySimState state;
+    protected final ForkJoinPool pool;
+    private final long stepTimeBudgetNanos;
+
+    private long lastStepDurationNanos = 0;
+    private long stepsOverBudget = 0;
+
+    protected PooledStepper(PaySimState state, int parallelism) {
+        this.state = state;
+        this.pool = new ForkJoinPool(parallelism);
+        this.stepTimeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(state.getParameters().stepTimeBudget);
+    }
+
+    @Override
+    public boolean step() {
+        final long start = System.nanoTime();
+
+        for (SuperActor fraudster : state.getFraudsters()) {
+            ((Steppable) fraudster).step(state);
+        }
+        boolean keepGoing = stepClients();
+
+        lastStepDurationNanos = System.nanoTime() - start;
+        if (stepTimeBudgetNanos > 0 && lastStepDurationNanos > stepTimeBudgetNanos) {
+            stepsOverBudget++;
+            logger.warn(String.format("step %d took %d ms, over the budget of %d ms", state.getCurrentStep(),
+                    TimeUnit.NANOSECONDS.toMillis(lastStepDurationNanos),
+                    TimeUnit.NANOSECONDS.toMillis(stepTimeBudgetNanos)));
+        }
+        return keepGoing;
+    }
+
+    /**
+     * Step the client population once, settling and emitting their transactions.
+     *
+     * @return false if the simulation asked to stop
+     */
+    protected abstract boolean stepClients();
+
+    /**
+     * @return the workers stepping the clients, in a fixed order
+     */
+    abstract List<? extends WorkerContext> getWorkers();
+
+    @Override
+    public void writeState(DataOutputStream out) throws IOException {
+        // Only the workers' RNG streams carry over, clients are split over them again on every step
+        for (WorkerContext worker : getWorkers()) {
+            worker.random.writeState(out);
+        }
+    }
+
+    @Override
+    public void readState(DataInputStream in) throws IOException {
+        for (WorkerContext worker : getWorkers()) {
+            worker.random.readState(in);
+        }
+    }
+
+    /**
+     * Run the given tasks on the pool and wait for all of them.
+     *
+     * @param tasks tasks to run
+     * @return false if interrupted while waiting
+     */
+    protected boolean runAll(Collection<? extends Callable<Void>> tasks) {
+        try {
+            for (Future<Void> task : pool.invokeAll(tasks)) {
+                task.get();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            logger.error("interrupted while stepping clients, stopping.", e);
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("a worker failed while stepping clients", e.getCause());
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public long getLastStepDurationNanos() {
+        return lastStepDurationNanos;
+    }
+
+    public long getStepsOverBudget() {
+        return stepsOverBudget;
+    }
+}
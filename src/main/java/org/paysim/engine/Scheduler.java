@@ -0,0 +1,31 @@
+package org.paysim.engine;
+
+import java.util.Locale;
+
+/**
+ * How the actors are stepped when the simulation runs on a single thread.
+ */
+public enum Scheduler {
+    /** MASON's Schedule, stepping the actors in a random order every step */
+    MASON,
+    /** A {@link FlatStepper} stepping the actors in a random order every step, like MASON */
+    SHUFFLED,
+    /** A {@link FlatStepper} stepping the actors in the order they were created */
+    FIXED,
+    /** A {@link SparseStepper} only stepping the clients active on every step, as drawn ahead of time */
+    SPARSE,
+    /** An {@link AllocatingStepper} splitting every step's target count exactly across the clients */
+    ALLOCATED;
+
+    /**
+     * @param name name of a Scheduler, case insensitive
+     * @return the matching Scheduler
+     */
+    public static Scheduler parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("unknown scheduler '%s', expected one of mason, shuffled, fixed, sparse or allocated", name), e);
+        }
+    }
+}
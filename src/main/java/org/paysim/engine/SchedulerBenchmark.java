@@ -0,0 +1,83 @@
+package org.paysim.engine;
+
+import sim.engine.SimState;
+import sim.engine.Steppable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the per-step cost of scheduling a large population of repeating actors, MASON's Schedule against the
+ * {@link FlatStepper}. The actors do next to nothing, so what gets measured is the scheduling overhead itself.
+ *
+ * Usage: SchedulerBenchmark [number of actors, default 1000000] [number of steps, default 20]
+ */
+public class SchedulerBenchmark {
+    private static final int WARMUP_STEPS = 5;
+
+    private static class CountingActor implements Steppable {
+        private static final long serialVersionUID = 1L;
+        long count = 0;
+
+        @Override
+        public void step(SimState state) {
+            count++;
+        }
+    }
+
+    private static Stepper create(String scheduler, SimState state, List<CountingActor> actors) {
+        state.start();
+        switch (scheduler) {
+            case "mason":
+                for (CountingActor actor : actors) {
+                    state.schedule.scheduleRepeating(actor);
+                }
+                return new MasonStepper(state);
+            case "shuffled":
+                return new FlatStepper(state, actors, true);
+            default:
+                return new FlatStepper(state, actors, false);
+        }
+    }
+
+    private static double nanosPerStep(String scheduler, List<CountingActor> actors, int nbSteps) {
+        SimState state = new SimState(1);
+        Stepper stepper = create(scheduler, state, actors);
+        for (int i = 0; i < WARMUP_STEPS; i++) {
+            stepper.step();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < nbSteps; i++) {
+            stepper.step();
+        }
+        final long elapsed = System.nanoTime() - start;
+        stepper.shutdown();
+        state.finish();
+        return (double) elapsed / nbSteps;
+    }
+
+    public static void main(String[] args) {
+        final int nbActors = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        final int nbSteps = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<CountingActor> actors = new ArrayList<>(nbActors);
+        for (int i = 0; i < nbActors; i++) {
+            actors.add(new CountingActor());
+        }
+
+        System.out.println(String.format("Stepping %,d actors %d times (after %d warmup steps)", nbActors, nbSteps,
+                WARMUP_STEPS));
+        double mason = nanosPerStep("mason", actors, nbSteps);
+        for (String scheduler : new String[]{"mason", "shuffled", "fixed"}) {
+            double nanos = scheduler.equals("mason") ? mason : nanosPerStep(scheduler, actors, nbSteps);
+            System.out.println(String.format("%-9s %10.2f ms/step %8.1f ns/actor %6.1fx", scheduler, nanos / 1e6,
+                    nanos / nbActors, mason / nanos));
+        }
+
+        long total = 0;
+        for (CountingActor actor : actors) {
+            total += actor.count;
+        }
+        System.out.println(String.format("(%,d actor steps)", total));
+    }
+}
@@ -0,0 +1,73 @@
+package org.paysim.engine;
+
+import org.paysim.actors.Client;
+import org.paysim.actors.SuperActor;
+import org.paysim.base.Transaction;
+
+import java.util.Arrays;
+
+/**
+ * An ordered queue of transaction receiving sides waiting to be applied at the step barrier.
+ *
+ * Backed by parallel arrays that are reused step after step, so queueing a settlement doesn't allocate.
+ */
+public class SettlementQueue {
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private SuperActor[] destinations;
+    private Transaction[] transactions;
+    private Client[] originators;
+    private double[] amounts;
+    private int size = 0;
+
+    public SettlementQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SettlementQueue(int capacity) {
+        destinations = new SuperActor[capacity];
+        transactions = new Transaction[capacity];
+        originators = new Client[capacity];
+        amounts = new double[capacity];
+    }
+
+    public void add(SuperActor destination, Transaction transaction, Client originator, double amount) {
+        if (size == destinations.length) {
+            int capacity = size * 2;
+            destinations = Arrays.copyOf(destinations, capacity);
+            transactions = Arrays.copyOf(transactions, capacity);
+            originators = Arrays.copyOf(originators, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+        }
+        destinations[size] = destination;
+        transactions[size] = transaction;
+        originators[size] = originator;
+        amounts[size] = amount;
+        size++;
+    }
+
+    /**
+     * Apply every queued settlement in the order it was added, then empty the queue.
+     */
+    public void settleAll() {
+        for (int i = 0; i < size; i++) {
+            destinations[i].settleIncoming(transactions[i], originators[i], amounts[i]);
+        }
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(destinations, 0, size, null);
+        Arrays.fill(transactions, 0, size, null);
+        Arrays.fill(originators, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
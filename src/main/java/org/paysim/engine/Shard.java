@@ -0,0 +1,68 @@
+package org.paysim.engine;
+
+import ec.util.MersenneTwisterFast;
+import org.paysim.PaySimState;
+import org.paysim.actors.Client;
+import org.paysim.actors.Merchant;
+import org.paysim.actors.SuperActor;
+import org.paysim.base.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A partition of the clients, merchants and banks stepped by a single worker of the {@link ShardedStepper}.
+ *
+ * Transactions between actors of the same shard settle immediately, as they would on the MASON schedule. The
+ * receiving side of a transaction with an actor owned by another shard goes into the outbox for that shard and is
+ * settled at the step barrier.
+ */
+class Shard extends WorkerContext {
+    final int index;
+    final List<Client> clients = new ArrayList<>();
+    final List<Merchant> merchants = new ArrayList<>();
+    private final SettlementQueue[] outboxes;
+
+    Shard(PaySimState state, MersenneTwisterFast random, int index, int nbShards) {
+        super(state, random);
+        this.index = index;
+        this.outboxes = new SettlementQueue[nbShards];
+        for (int i = 0; i < nbShards; i++) {
+            outboxes[i] = new SettlementQueue();
+        }
+    }
+
+    @Override
+    public Void call() {
+        for (Client c : clients) {
+            c.step(this);
+        }
+        return null;
+    }
+
+    /**
+     * @param shard index of the destination shard
+     * @return the settlements this shard deferred to the given shard during the step
+     */
+    SettlementQueue getOutbox(int shard) {
+        return outboxes[shard];
+    }
+
+    @Override
+    public Merchant pickRandomMerchant() {
+        // Tiny populations may leave a shard without merchants of its own
+        if (merchants.isEmpty()) {
+            return super.pickRandomMerchant();
+        }
+        return merchants.get(random.nextInt(merchants.size()));
+    }
+
+    @Override
+    public void settle(SuperActor destination, Transaction transaction, Client originator, double amount) {
+        if (destination.getShard() == index) {
+            destination.settleIncoming(transaction, originator, amount);
+        } else {
+            outboxes[destination.getShard()].add(destination, transaction, originator, amount);
+        }
+    }
+}
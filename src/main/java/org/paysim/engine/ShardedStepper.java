@@ -0,0 +1,88 @@
+package org.paysim.engine;
+
+import org.paysim.PaySimState;
+import org.paysim.actors.Bank;
+import org.paysim.actors.Client;
+import org.paysim.actors.Merchant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Partitions the clients, merchants and banks into {@link Shard}s that step concurrently without sharing any
+ * mutable state.
+ *
+ * Actors are dealt round robin over the shards; clients added during the run (e.g. mules) are picked up at the
+ * start of the next step. Clients shop at the merchants of their own shard, while transfers may reach any client.
+ * Whatever a shard owes to another shard is settled at the step barrier, all shards receiving in parallel and each
+ * applying its inbox in shard order. Transactions are then emitted shard by shard, so the output is reproducible
+ * for a given seed and number of shards, whatever the number of threads.
+ */
+public class ShardedStepper extends PooledStepper {
+    private final List<Shard> shards = new ArrayList<>();
+    private final List<Callable<Void>> exchanges = new ArrayList<>();
+    private int nbAdoptedClients = 0;
+
+    public ShardedStepper(PaySimState state, int nbShards, int parallelism) {
+        super(state, parallelism);
+
+        for (int i = 0; i < nbShards; i++) {
+            shards.add(new Shard(state, state.deriveRNG(i + 1), i, nbShards));
+        }
+        for (int i = 0; i < nbShards; i++) {
+            final int destination = i;
+            exchanges.add(() -> {
+                for (Shard shard : shards) {
+                    shard.getOutbox(destination).settleAll();
+                }
+                return null;
+            });
+        }
+
+        List<Merchant> merchants = state.getMerchants();
+        for (int i = 0; i < merchants.size(); i++) {
+            Shard shard = shards.get(i % nbShards);
+            merchants.get(i).setShard(shard.index);
+            shard.merchants.add(merchants.get(i));
+        }
+        List<Bank> banks = state.getBanks();
+        for (int i = 0; i < banks.size(); i++) {
+            banks.get(i).setShard(i % nbShards);
+        }
+    }
+
+    @Override
+    protected boolean stepClients() {
+        adoptNewClients();
+
+        if (!runAll(shards) || !runAll(exchanges)) {
+            return false;
+        }
+
+        boolean keepGoing = true;
+        for (Shard shard : shards) {
+            keepGoing = shard.emit() && keepGoing;
+        }
+        return keepGoing;
+    }
+
+    private void adoptNewClients() {
+        List<Client> clients = state.getClients();
+        for (; nbAdoptedClients < clients.size(); nbAdoptedClients++) {
+            Shard shard = shards.get(nbAdoptedClients % shards.size());
+            Client c = clients.get(nbAdoptedClients);
+            c.setShard(shard.index);
+            shard.clients.add(c);
+        }
+    }
+
+    @Override
+    List<? extends WorkerContext> getWorkers() {
+        return shards;
+    }
+
+    public int getNbShards() {
+        return shards.size();
+    }
+}
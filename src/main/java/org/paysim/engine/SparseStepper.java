@@ -0,0 +1,103 @@
+package org.paysim.engine;
+
+import ec.util.MersenneTwisterFast;
+import org.paysim.PaySimState;
+import org.paysim.actors.Client;
+import org.paysim.actors.SuperActor;
+import org.paysim.parameters.Parameters;
+import sim.engine.Steppable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Only steps the clients that are active on the current step, as drawn ahead of time by an
+ * {@link ActivityCalendar}, so the cost of a step follows the number of transactions rather than the population.
+ *
+ * Fraudsters, and clients that don't act on their own profile such as mules, are still stepped on every step,
+ * ahead of the active clients. The active clients are stepped in a random order, like on MASON's schedule.
+ *
+ * In continuous mode the calendar covers one cycle of the step profiles. It has run empty by the end of a cycle, and
+ * as being idle is memoryless every client is simply put back on it for the next cycle.
+ */
+public class SparseStepper implements Stepper {
+    private final PaySimState state;
+    private final ActivityCalendar calendar;
+    private final List<Steppable> everyStep = new ArrayList<>();
+    private final List<Client> followingProfile = new ArrayList<>();
+    private final int nbCycleSteps;
+
+    public SparseStepper(PaySimState state) {
+        this.state = state;
+
+        Parameters parameters = state.getParameters();
+        nbCycleSteps = parameters.stepsProfiles.getNbSteps();
+        int[] targetCounts = new int[nbCycleSteps];
+        for (int t = 0; t < targetCounts.length; t++) {
+            targetCounts[t] = parameters.stepsProfiles.getTargetCount(t);
+        }
+        calendar = new ActivityCalendar(targetCounts);
+
+        for (SuperActor fraudster : state.getFraudsters()) {
+            everyStep.add((Steppable) fraudster);
+        }
+        for (Client c : state.getInitialClients()) {
+            if (c.followsProfile()) {
+                followingProfile.add(c);
+            } else {
+                everyStep.add(c);
+            }
+        }
+        scheduleCycle(state.getRNG());
+    }
+
+    private void scheduleCycle(MersenneTwisterFast random) {
+        for (Client c : followingProfile) {
+            calendar.schedule(c, random, -1);
+        }
+    }
+
+    @Override
+    public boolean step() {
+        final long currentStep = state.getCurrentStep();
+        final int step = (int) (currentStep % nbCycleSteps);
+        final MersenneTwisterFast random = state.getRNG();
+
+        if (step == 0 && currentStep > 0) {
+            scheduleCycle(random);
+        }
+        for (Steppable actor : everyStep) {
+            actor.step(state);
+        }
+
+        List<Client> active = calendar.take(step);
+        for (int i = active.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Client tmp = active.get(i);
+            active.set(i, active.get(j));
+            active.set(j, tmp);
+        }
+        for (Client c : active) {
+            c.stepActive(state);
+            calendar.schedule(c, random, step);
+        }
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public void writeState(DataOutputStream out) throws IOException {
+        calendar.writeState(out);
+    }
+
+    @Override
+    public void readState(DataInputStream in) throws IOException {
+        calendar.readState(in, state.getClients());
+    }
+}
@@ -0,0 +1,77 @@
+package org.paysim.engine;
+
+import ec.util.MersenneTwisterFast;
+import org.paysim.actors.Client;
+import org.paysim.actors.Merchant;
+import org.paysim.actors.SuperActor;
+import org.paysim.base.ActionDistributionCache;
+import org.paysim.base.StepActionProfile;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+
+import java.util.List;
+
+/**
+ * The view of the simulation an actor sees while it is being stepped.
+ *
+ * PaySimState is the default context: it uses the simulation RNG and applies the receiving side of
+ * every transaction immediately. Parallel steppers hand out their own contexts so each worker draws from
+ * its own RNG stream and defers anything touching actors it doesn't own until the step barrier.
+ */
+public interface StepContext {
+
+    MersenneTwisterFast getRNG();
+
+    Parameters getParameters();
+
+    long getCurrentStep();
+
+    int getStepTargetCount();
+
+    /**
+     * @return the probability of every action on the current step, by action index, NaN for the actions the step has
+     * no profile for
+     */
+    double[] getStepProbabilities();
+
+    /**
+     * @param action index of an action
+     * @return the profile of the action on the current step, null if it has none
+     */
+    StepActionProfile getStepAction(int action);
+
+    /**
+     * @return the blends of the clients' action distributions with the ones of the steps
+     */
+    ActionDistributionCache getActionDistributions();
+
+    Merchant pickRandomMerchant();
+
+    /**
+     * @param ordinal ordinal of a merchant of the simulation
+     * @return the merchant
+     */
+    Merchant getMerchant(int ordinal);
+
+    /**
+     * Pick the receiving end of a transfer, any client but the originating one. This is usually a Client,
+     * but may stand in for a client living in another partition of a distributed simulation.
+     *
+     * @param originatingId id of the client making the transfer
+     * @return the recipient
+     */
+    SuperActor pickTransferRecipient(String originatingId);
+
+    boolean onTransactions(List<Transaction> transactions);
+
+    /**
+     * Apply the receiving side of a transaction: credit {@code amount} to the destination, let it remember
+     * the originating client and record the destination balances on the transaction.
+     *
+     * @param destination actor receiving the transaction
+     * @param transaction transaction whose destination balances get recorded
+     * @param originator client that originated the transaction
+     * @param amount amount to credit, 0 if no money actually moves
+     */
+    void settle(SuperActor destination, Transaction transaction, Client originator, double amount);
+}
@@ -0,0 +1,46 @@
+package org.paysim.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Drives the simulation's actors through one step, in place of MASON's schedule.
+ */
+public interface Stepper {
+
+    /**
+     * Step every actor once.
+     *
+     * @return false if the simulation asked to stop
+     */
+    boolean step();
+
+    /**
+     * Release any resources (e.g. worker threads) held by this Stepper.
+     */
+    void shutdown();
+
+    /**
+     * Write whatever this Stepper carries over from one step to the next, for a checkpoint of the simulation.
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     * @throws UnsupportedOperationException if this Stepper can't be checkpointed
+     */
+    default void writeState(DataOutputStream out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't be checkpointed");
+    }
+
+    /**
+     * Restore the state written by {@link #writeState(DataOutputStream)}, in place of the one this Stepper was
+     * created with. The actors of the simulation are restored first.
+     *
+     * @param in where to read from
+     * @throws IOException if reading fails
+     * @throws UnsupportedOperationException if this Stepper can't be checkpointed
+     */
+    default void readState(DataInputStream in) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't be checkpointed");
+    }
+}
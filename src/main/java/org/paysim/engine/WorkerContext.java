@@ -0,0 +1,100 @@
+package org.paysim.engine;
+
+import ec.util.MersenneTwisterFast;
+import org.paysim.PaySimState;
+import org.paysim.actors.Merchant;
+import org.paysim.actors.SuperActor;
+import org.paysim.base.ActionDistributionCache;
+import org.paysim.base.StepActionProfile;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Base for the StepContexts handed to the workers of a {@link PooledStepper}.
+ *
+ * A worker draws from its own RNG stream and buffers its transactions until the step barrier, where the stepper
+ * hands them over to the simulation in worker order. Everything else is read straight from the simulation, which
+ * is not mutated while the workers run.
+ */
+abstract class WorkerContext implements StepContext, Callable<Void> {
+    protected final PaySimState state;
+    protected final MersenneTwisterFast random;
+    private final List<Transaction> transactions = new ArrayList<>();
+
+    WorkerContext(PaySimState state, MersenneTwisterFast random) {
+        this.state = state;
+        this.random = random;
+    }
+
+    /**
+     * Hand this worker's transactions over, in order, to the simulation. Anything they still have to settle
+     * must have been settled beforehand.
+     *
+     * @return false if the simulation asked to stop
+     */
+    boolean emit() {
+        boolean keepGoing = state.onTransactions(transactions);
+        transactions.clear();
+        return keepGoing;
+    }
+
+    @Override
+    public MersenneTwisterFast getRNG() {
+        return random;
+    }
+
+    @Override
+    public Parameters getParameters() {
+        return state.getParameters();
+    }
+
+    @Override
+    public long getCurrentStep() {
+        return state.getCurrentStep();
+    }
+
+    @Override
+    public int getStepTargetCount() {
+        return state.getStepTargetCount();
+    }
+
+    @Override
+    public double[] getStepProbabilities() {
+        return state.getStepProbabilities();
+    }
+
+    @Override
+    public StepActionProfile getStepAction(int action) {
+        return state.getStepAction(action);
+    }
+
+    @Override
+    public ActionDistributionCache getActionDistributions() {
+        return state.getActionDistributions();
+    }
+
+    @Override
+    public Merchant pickRandomMerchant() {
+        return state.pickRandomMerchant(random);
+    }
+
+    @Override
+    public Merchant getMerchant(int ordinal) {
+        return state.getMerchant(ordinal);
+    }
+
+    @Override
+    public SuperActor pickTransferRecipient(String originatingId) {
+        return state.pickTransferRecipient(random, originatingId);
+    }
+
+    @Override
+    public boolean onTransactions(List<Transaction> transactions) {
+        this.transactions.addAll(transactions);
+        return true;
+    }
+}
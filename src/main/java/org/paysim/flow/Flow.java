@@ -0,0 +1,61 @@
+package org.paysim.flow;
+
+/**
+ * The interfaces of the Reactive Streams specification, as java.util.concurrent.Flow holds them from Java 9 on.
+ * PaySim targets Java 8, so it carries its own copy: the names and contracts are the same, so adapting a publisher
+ * to the JDK's or to another Reactive Streams library takes one line per method.
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    /**
+     * A producer of items which subscribers receive as they ask for them.
+     *
+     * @param <T> the type of the items
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+        /**
+         * Add a subscriber, which first gets {@link Subscriber#onSubscribe(Subscription)} and then items as it
+         * requests them, until the publisher completes, fails or the subscription gets cancelled.
+         *
+         * @param subscriber the subscriber
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. Its methods are called in order, one at a time, and never again once
+     * {@link #onComplete()} or {@link #onError(Throwable)} was.
+     *
+     * @param <T> the type of the items
+     */
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * The link between a publisher and one of its subscribers, through which the subscriber asks for items.
+     */
+    public interface Subscription {
+        /**
+         * Ask for up to n more items. Demand adds up, up to Long.MAX_VALUE which stands for unbounded.
+         *
+         * @param n the number of items, which must be positive
+         */
+        void request(long n);
+
+        /**
+         * Stop receiving items, possibly after a few already under way.
+         */
+        void cancel();
+    }
+}
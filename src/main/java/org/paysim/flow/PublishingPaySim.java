@@ -0,0 +1,316 @@
+package org.paysim.flow;
+
+import org.paysim.PaySimState;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A simulation publishing its transactions to reactive subscribers, one item per step holding the transactions of
+ * that step.
+ *
+ * Every subscriber has a buffer of its own, of a few steps, and its own demand: the steps in its buffer are handed to
+ * it on an Executor as it asks for them. Before adding a step to a full buffer, the simulation waits, so subscribers
+ * asking for nothing hold the step loop back rather than having steps dropped or piling up. Cancelled subscribers no
+ * longer count.
+ *
+ * The simulation starts on a worker thread of its own on {@link #run()}, and subscribers only get the steps made once
+ * they subscribed. When the simulation ends, whether on its last step or on {@link #abort()}, subscribers get the
+ * steps left in their buffers and then onComplete. If it fails, they get onError right away.
+ */
+public class PublishingPaySim extends PaySimState implements Flow.Publisher<List<Transaction>> {
+    private static final Logger logger = LoggerFactory.getLogger(PublishingPaySim.class);
+    public static final int DEFAULT_BUFFER_SIZE = 4;
+    protected static final String DEFAULT_WORKER_NAME = "PublishingWorker";
+
+    private final int bufferSize;
+    private final Executor executor;
+    private final List<StepSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Guards the buffers and demands of the subscriptions, and the state of the simulation below
+    private final Object lock = new Object();
+    private boolean started = false;
+    private boolean running = false;
+    private boolean closed = false;
+    private boolean aborted = false;
+    private Throwable failure;
+
+    private final List<Transaction> stepTransactions = new ArrayList<>();
+    // Transactions published so far, to carry on the global step numbering after a checkpoint
+    private long nbPublished = 0;
+
+    /**
+     * @param parameters parameters of the simulation
+     * @param bufferSize the most steps a subscriber can fall behind before the simulation waits for it
+     * @param executor what calls the subscribers
+     */
+    public PublishingPaySim(Parameters parameters, int bufferSize, Executor executor) {
+        super(parameters);
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive, got " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    public PublishingPaySim(Parameters parameters, int bufferSize) {
+        this(parameters, bufferSize, defaultExecutor());
+    }
+
+    public PublishingPaySim(Parameters parameters) {
+        this(parameters, DEFAULT_BUFFER_SIZE);
+    }
+
+    // Like SubmissionPublisher, don't count on the common pool when it can't run anything concurrently
+    private static Executor defaultExecutor() {
+        if (ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return ForkJoinPool.commonPool();
+        }
+        return task -> new Thread(task).start();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<Transaction>> subscriber) {
+        StepSubscription subscription = new StepSubscription(Objects.requireNonNull(subscriber));
+        synchronized (lock) {
+            if (!closed) {
+                subscriptions.add(subscription);
+            }
+        }
+        subscription.signal();
+    }
+
+    @Override
+    public void run() {
+        synchronized (lock) {
+            if (started) {
+                throw new IllegalStateException("the simulation is already started");
+            }
+            started = true;
+            running = true;
+        }
+        Thread worker = new Thread(this::publishSimulation, DEFAULT_WORKER_NAME);
+        worker.start();
+        logger.debug(String.format("started worker thread: %s", worker.getName()));
+    }
+
+    private void publishSimulation() {
+        Throwable error = null;
+        try {
+            runSimulation();
+        } catch (Throwable e) {
+            logger.error("simulation failed", e);
+            error = e;
+        }
+        synchronized (lock) {
+            failure = error;
+            closed = true;
+            running = false;
+            lock.notifyAll();
+        }
+        for (StepSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Stop the simulation after the step under way. Subscribers get what was already published, then onComplete.
+     */
+    public void abort() {
+        synchronized (lock) {
+            if (!running) {
+                throw new IllegalStateException("cannot stop simulation when state isn't running");
+            }
+            aborted = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * @return true from {@link #run()} until the simulation is over, subscribers possibly still catching up
+     */
+    public boolean isRunning() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    /**
+     * @return the number of subscribers that neither cancelled nor got terminated yet
+     */
+    public int getNbSubscribers() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public boolean onTransactions(List<Transaction> transactions) {
+        for (Transaction tx : transactions) {
+            tx.setGlobalStep(++nbPublished);
+            stepTransactions.add(tx);
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean onStep(long stepNum) {
+        List<Transaction> step = Collections.unmodifiableList(new ArrayList<>(stepTransactions));
+        stepTransactions.clear();
+        try {
+            for (StepSubscription subscription : subscriptions) {
+                subscription.offer(step);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        synchronized (lock) {
+            return !aborted;
+        }
+    }
+
+    @Override
+    protected void writeCheckpointState(DataOutputStream out) throws IOException {
+        out.writeLong(nbPublished);
+    }
+
+    @Override
+    protected void readCheckpointState(DataInputStream in) throws IOException {
+        nbPublished = in.readLong();
+    }
+
+    private class StepSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super List<Transaction>> subscriber;
+        // All guarded by the lock
+        private final ArrayDeque<List<Transaction>> buffer = new ArrayDeque<>();
+        private long demand = 0;
+        private boolean cancelled = false;
+        private Throwable invalidRequest;
+
+        // Only one thread at a time delivers, the one that brought wip up from 0
+        private final AtomicInteger wip = new AtomicInteger();
+        private boolean subscribed = false;
+
+        StepSubscription(Flow.Subscriber<? super List<Transaction>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Called by the simulation, add a step to the buffer once it has room.
+         */
+        void offer(List<Transaction> step) throws InterruptedException {
+            synchronized (lock) {
+                while (buffer.size() >= bufferSize && !cancelled && !aborted) {
+                    lock.wait();
+                }
+                if (cancelled) {
+                    return;
+                }
+                buffer.add(step);
+            }
+            signal();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (lock) {
+                if (n <= 0) {
+                    invalidRequest = new IllegalArgumentException("requested " + n + " items, must be positive");
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (lock) {
+                cancelled = true;
+                buffer.clear();
+                lock.notifyAll();
+            }
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    try {
+                        subscriber.onSubscribe(this);
+                    } catch (Throwable e) {
+                        logger.warn("subscriber failed on subscribe, cancelling", e);
+                        cancel();
+                    }
+                }
+                while (deliverNext()) {
+                    // Keep going while there's demand and steps to deliver
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private boolean deliverNext() {
+            List<Transaction> step = null;
+            Throwable error = null;
+            synchronized (lock) {
+                if (cancelled) {
+                    return false;
+                }
+                if (invalidRequest != null || failure != null) {
+                    error = invalidRequest != null ? invalidRequest : failure;
+                } else if (!buffer.isEmpty()) {
+                    if (demand == 0) {
+                        return false;
+                    }
+                    step = buffer.poll();
+                    if (demand != Long.MAX_VALUE) {
+                        demand--;
+                    }
+                    lock.notifyAll();
+                } else if (!closed) {
+                    return false;
+                }
+            }
+
+            // Either done or failed, let the subscriber know it's over
+            if (step == null) {
+                cancel();
+                if (error != null) {
+                    subscriber.onError(error);
+                } else {
+                    subscriber.onComplete();
+                }
+                return false;
+            }
+            try {
+                subscriber.onNext(step);
+            } catch (Throwable e) {
+                logger.warn("subscriber failed on a step, cancelling", e);
+                cancel();
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -10,6 +10,17 @@ public class BankIdentity extends Identity {
         super(BANK_IDENTIFIER + id, name);
     }
 
+    /**
+     * Rebuild an identity drawn earlier, e.g. read back from a population cache.
+     *
+     * @param id the id of the identity, as returned by {@link #getId()}
+     * @param name the name of the identity
+     * @return the identity
+     */
+    public static BankIdentity restore(String id, String name) {
+        return new BankIdentity(id.substring(BANK_IDENTIFIER.length()), name);
+    }
+
     @Override
     public Map<String, Object> asMap() {
         Map<String, Object> map = new HashMap<>();
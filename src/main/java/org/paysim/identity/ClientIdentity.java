@@ -15,6 +15,13 @@ public class ClientIdentity extends Identity {
         this.phoneNumber = phoneNumber;
     }
 
+    /**
+     * Rebuild an identity drawn earlier, e.g. read back from a population cache.
+     */
+    public static ClientIdentity restore(String id, String name, String email, String ssn, String phoneNumber) {
+        return new ClientIdentity(id, name, email, ssn, phoneNumber);
+    }
+
     /**
      * Creates a new ClientIdentity from this instance, replacing the given property with the provided Value.
      *
@@ -0,0 +1,126 @@
+package org.paysim.identity;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Draws 16 digit, Luhn-valid credit card numbers that never repeat, without remembering the ones already drawn.
+ *
+ * The n-th number is a pure function of the seed and of n: n picks one of a few issuer BINs and a position in that
+ * BIN's sequence, which a keyed permutation of the 9 digit account numbers turns into an account. Being a bijection,
+ * the permutation maps distinct positions to distinct accounts, so numbers are unique by construction while still
+ * looking random. The permutation is a Feistel network over 30 bits, cycle-walking the values past 999,999,999.
+ *
+ * {@link #next()} hands out the positions from a shared counter and can be called from several threads at once.
+ * Alternatively, threads can split the positions between them and call {@link #cardNumber(long)} directly.
+ */
+public final class CreditCardGenerator {
+    private static final String[] BINS = {
+            "400115", "412753", "453978", "492181", "510510", "522081", "541333", "555444"};
+    private static final int ACCOUNT_DIGITS = 9;
+    private static final long ACCOUNTS = 1_000_000_000L;
+    private static final int HALF_BITS = 15;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private final long[] keys = new long[BINS.length];
+    private final AtomicLong counter = new AtomicLong();
+    // Only numbers reserved from elsewhere, those drawn here can't repeat
+    private final Set<String> reserved = ConcurrentHashMap.newKeySet();
+
+    public CreditCardGenerator(long seed) {
+        for (int b = 0; b < keys.length; b++) {
+            keys[b] = mix(seed + (b + 1) * 0x9e3779b97f4a7c15L);
+        }
+    }
+
+    /**
+     * @return how many distinct numbers there are to draw
+     */
+    public static long capacity() {
+        return ACCOUNTS * BINS.length;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long feistel(long x, long key) {
+        long left = x >>> HALF_BITS, right = x & HALF_MASK;
+        for (int r = 0; r < ROUNDS; r++) {
+            long next = left ^ (mix(key + r * 0x632be59bd9b4e019L + right) & HALF_MASK);
+            left = right;
+            right = next;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    /**
+     * @param index the position of the number, from 0 to {@link #capacity()} excluded
+     * @return the number at that position, the same for a given seed
+     */
+    public String cardNumber(long index) {
+        if (index < 0 || index >= capacity()) {
+            throw new IllegalStateException(String.format("ran out of credit card numbers, only %d of them",
+                    capacity()));
+        }
+        final int bin = (int) (index % BINS.length);
+        long account = index / BINS.length;
+        do {
+            account = feistel(account, keys[bin]);
+        } while (account >= ACCOUNTS);
+
+        char[] digits = new char[16];
+        BINS[bin].getChars(0, BINS[bin].length(), digits, 0);
+        for (int i = BINS[bin].length() + ACCOUNT_DIGITS - 1; i >= BINS[bin].length(); i--) {
+            digits[i] = (char) ('0' + account % 10);
+            account /= 10;
+        }
+        digits[15] = checkDigit(digits, 15);
+        return new String(digits);
+    }
+
+    /**
+     * @return the next number, skipping any reserved one
+     */
+    public String next() {
+        String ccn = cardNumber(counter.getAndIncrement());
+        while (!reserved.isEmpty() && reserved.contains(ccn)) {
+            ccn = cardNumber(counter.getAndIncrement());
+        }
+        return ccn;
+    }
+
+    /**
+     * Keep a number drawn by some other generator from being handed out by {@link #next()}.
+     *
+     * @param ccn the credit card number
+     */
+    public void reserve(String ccn) {
+        reserved.add(ccn);
+    }
+
+    /**
+     * @param digits the digits of a number
+     * @param length how many of them the check digit covers
+     * @return the Luhn check digit to append to them
+     */
+    private static char checkDigit(char[] digits, int length) {
+        // Double every other digit, starting from the one left of the check digit
+        int sum = 0;
+        for (int i = length - 1, n = 0; i >= 0; i--, n++) {
+            int d = digits[i] - '0';
+            if (n % 2 == 0) {
+                d *= 2;
+                if (d > 9) {
+                    d -= 9;
+                }
+            }
+            sum += d;
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+}
@@ -0,0 +1,134 @@
+package org.paysim.identity;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Composes identities from embedded word lists rather than going through jFairy, at a fraction of the cost.
+ *
+ * Every identity is a pure function of the seed and of its index, drawn from a shared counter: each of its fields
+ * comes from hashing those two with a field number. Hence the provider holds no other mutable state and can be
+ * used from several threads at once, the identities then being handed out in whatever order the threads come in.
+ * Credit card numbers come from a {@link CreditCardGenerator}, so they are unique by construction.
+ */
+public class DictionaryIdentityProvider implements IdentityProvider {
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William", "Elizabeth",
+            "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Christopher", "Nancy", "Daniel", "Lisa", "Matthew", "Betty", "Anthony", "Margaret", "Mark", "Sandra",
+            "Donald", "Ashley", "Steven", "Kimberly", "Paul", "Emily", "Andrew", "Donna", "Joshua", "Michelle",
+            "Kenneth", "Dorothy", "Kevin", "Carol", "Brian", "Amanda", "George", "Melissa", "Edward", "Deborah",
+            "Ronald", "Stephanie", "Timothy", "Rebecca", "Jason", "Sharon", "Jeffrey", "Laura", "Ryan", "Cynthia",
+            "Jacob", "Kathleen", "Gary", "Amy", "Nicholas", "Shirley", "Eric", "Angela", "Jonathan", "Helen"};
+    private static final String[] LAST_NAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+            "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+            "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson",
+            "Walker", "Young", "Allen", "King", "Wright", "Scott", "Torres", "Nguyen", "Hill", "Flores",
+            "Green", "Adams", "Nelson", "Baker", "Hall", "Rivera", "Campbell", "Mitchell", "Carter", "Roberts",
+            "Gomez", "Phillips", "Evans", "Turner", "Diaz", "Parker", "Cruz", "Edwards", "Collins", "Reyes",
+            "Stewart", "Morris", "Morales", "Murphy", "Cook", "Rogers", "Gutierrez", "Ortiz", "Morgan", "Cooper"};
+    private static final String[] EMAIL_DOMAINS = {
+            "gmail.com", "yahoo.com", "hotmail.com", "outlook.com", "aol.com", "icloud.com", "mail.com", "gmx.com"};
+    private static final String[] COMPANY_WORDS = {
+            "Acme", "Apex", "Atlas", "Beacon", "Blue", "Bright", "Cedar", "Central", "Crown", "Delta",
+            "Eagle", "Evergreen", "First", "Golden", "Granite", "Harbor", "Highland", "Horizon", "Liberty", "Lincoln",
+            "Maple", "Metro", "National", "North", "Oak", "Pacific", "Pioneer", "Prime", "River", "Summit",
+            "Sun", "United", "Valley", "Vista", "West", "Willow"};
+    private static final String[] COMPANY_TRADES = {
+            "Foods", "Motors", "Supply", "Electronics", "Pharmacy", "Books", "Apparel", "Hardware", "Grocers",
+            "Travel", "Furniture", "Outfitters", "Garden", "Sports", "Market", "Coffee", "Auto", "Home"};
+    private static final String[] COMPANY_SUFFIXES = {"Inc", "LLC", "Co", "Corp", "Group", "Ltd"};
+
+    // Fields of an identity, each drawn from its own hash
+    private static final int FIRST_NAME = 0, LAST_NAME = 1, EMAIL = 2, SSN = 3, PHONE = 4, VAT = 5, COMPANY = 6;
+
+    private final long seed;
+    private final AtomicLong counter = new AtomicLong();
+    private final CreditCardGenerator creditCards;
+
+    public DictionaryIdentityProvider(int seed) {
+        this.seed = mix(seed);
+        this.creditCards = new CreditCardGenerator(this.seed);
+    }
+
+    /**
+     * SplitMix64's finalizer, a bijection scattering nearby inputs all over the 64 bit range.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private long hash(long index, int field) {
+        return mix(seed + index * 0x9e3779b97f4a7c15L + field);
+    }
+
+    private static String pick(String[] words, long hash) {
+        return words[(int) Math.floorMod(hash, (long) words.length)];
+    }
+
+    private static StringBuilder appendDigits(StringBuilder sb, long hash, int nbDigits) {
+        long value = Math.floorMod(hash, 1_000_000_000_000_000L);
+        char[] digits = new char[nbDigits];
+        for (int i = nbDigits - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return sb.append(digits);
+    }
+
+    @Override
+    public ClientIdentity nextPerson() {
+        final long index = counter.getAndIncrement();
+        final String first = pick(FIRST_NAMES, hash(index, FIRST_NAME));
+        final String last = pick(LAST_NAMES, hash(index, LAST_NAME));
+
+        final long ssnHash = hash(index, SSN);
+        // Area numbers run from 001 to 899
+        StringBuilder ssn = new StringBuilder(11);
+        appendDigits(ssn, Math.floorMod(ssnHash, 899L) + 1, 3).append('-');
+        appendDigits(ssn, (ssnHash >>> 16) % 99 + 1, 2).append('-');
+        appendDigits(ssn, (ssnHash >>> 32) % 9999 + 1, 4);
+
+        final long emailHash = hash(index, EMAIL);
+        StringBuilder email = new StringBuilder(first.length() + last.length() + 16);
+        email.append(Character.toLowerCase(first.charAt(0))).append(first, 1, first.length()).append('.')
+                .append(Character.toLowerCase(last.charAt(0))).append(last, 1, last.length());
+        appendDigits(email, emailHash >>> 8, 3).append('@').append(pick(EMAIL_DOMAINS, emailHash));
+
+        final long phoneHash = hash(index, PHONE);
+        // Neither area codes nor exchanges start with 0 or 1
+        StringBuilder phone = new StringBuilder(12);
+        appendDigits(phone, Math.floorMod(phoneHash, 800L) + 200, 3).append('-');
+        appendDigits(phone, (phoneHash >>> 16) % 800 + 200, 3).append('-');
+        appendDigits(phone, phoneHash >>> 32, 4);
+
+        return new ClientIdentity(creditCards.next(), first + " " + last, email.toString(), ssn.toString(),
+                phone.toString());
+    }
+
+    @Override
+    public BankIdentity nextBank() {
+        final long index = counter.getAndIncrement();
+        return new BankIdentity(nextVAT(index), "Bank of " + pick(LAST_NAMES, hash(index, LAST_NAME)));
+    }
+
+    @Override
+    public MerchantIdentity nextMerchant() {
+        final long index = counter.getAndIncrement();
+        final long companyHash = hash(index, COMPANY);
+        String name = pick(COMPANY_WORDS, companyHash) + " " + pick(COMPANY_TRADES, companyHash >>> 16) + " "
+                + pick(COMPANY_SUFFIXES, companyHash >>> 32);
+        return new MerchantIdentity(nextVAT(index), name);
+    }
+
+    @Override
+    public void reserveCreditCard(String ccn) {
+        creditCards.reserve(ccn);
+    }
+
+    private String nextVAT(long index) {
+        return appendDigits(new StringBuilder(10), hash(index, VAT), 10).toString();
+    }
+}
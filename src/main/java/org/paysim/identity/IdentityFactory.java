@@ -13,18 +13,35 @@ import java.util.Set;
 /**
  * Wraps the jFairy library and provides an identity generation function.
  *
- * This keeps some of the jFairy confusion to a minimum.
+ * This keeps some of the jFairy confusion to a minimum. It's the default IdentityProvider, see
+ * {@link DictionaryIdentityProvider} for a faster one.
+ *
+ * Card numbers come from jFairy, redrawn until unseen, unless permuted card numbers are asked for: those come from a
+ * {@link CreditCardGenerator}, unique without remembering every number drawn, but different from jFairy's.
  */
-public class IdentityFactory {
-    private final Set<String> ccnSet = new HashSet<>();
+public class IdentityFactory implements IdentityProvider {
+    // Every card number drawn from jFairy, null with permuted card numbers
+    private final Set<String> ccnSet;
 
     final private Fairy fairy;
+    // Null unless drawing permuted card numbers
+    final private CreditCardGenerator creditCards;
 
     public IdentityFactory(int randomSeed) {
+        this(randomSeed, false);
+    }
+
+    /**
+     * @param randomSeed seed of the identities
+     * @param permutedCardNumbers true to draw the card numbers from a {@link CreditCardGenerator} rather than jFairy
+     */
+    public IdentityFactory(int randomSeed, boolean permutedCardNumbers) {
         fairy = Bootstrap.builder()
                 .withRandomSeed(randomSeed)
                 .withLocale(Locale.US)
                 .withLocale(Locale.CANADA).build();
+        creditCards = permutedCardNumbers ? new CreditCardGenerator(randomSeed) : null;
+        ccnSet = permutedCardNumbers ? null : new HashSet<>();
     }
 
     protected String addSuffixToEmail(String email, String suffix) {
@@ -33,6 +50,7 @@ public class IdentityFactory {
         return parts[0] + suffix + "@" + parts[1];
     }
 
+    @Override
     public ClientIdentity nextPerson() {
         Person p = fairy.person();
 
@@ -44,11 +62,15 @@ public class IdentityFactory {
                 p.getTelephoneNumber());
     }
 
+    @Override
     public BankIdentity nextBank() {
+        // PaySim used to draw a merchant name ahead of every bank and throw it away, keep the same identities
+        nextMerchantName();
         Person p = fairy.person();
         return new BankIdentity(getNextVAT(), String.format("Bank of %s", p.getLastName()));
     }
 
+    @Override
     public MerchantIdentity nextMerchant() {
         Company c = fairy.company();
         return new MerchantIdentity(c.getVatIdentificationNumber(), c.getName());
@@ -60,6 +82,9 @@ public class IdentityFactory {
     }
 
     public String getNextCreditCard() {
+        if (creditCards != null) {
+            return creditCards.next();
+        }
         String ccn = fairy.creditCard().getCardNumber();
         while (!ccnSet.add(ccn)) {
             ccn = fairy.creditCard().getCardNumber();
@@ -67,6 +92,15 @@ public class IdentityFactory {
         return ccn;
     }
 
+    @Override
+    public void reserveCreditCard(String ccn) {
+        if (creditCards != null) {
+            creditCards.reserve(ccn);
+        } else {
+            ccnSet.add(ccn);
+        }
+    }
+
     public String nextMerchantName() {
         Company c = fairy.company();
         return c.getName();
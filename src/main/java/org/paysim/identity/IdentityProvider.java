@@ -0,0 +1,20 @@
+package org.paysim.identity;
+
+/**
+ * Draws the identities of the actors of a simulation. Every implementation is deterministic for a given seed.
+ */
+public interface IdentityProvider {
+
+    ClientIdentity nextPerson();
+
+    BankIdentity nextBank();
+
+    MerchantIdentity nextMerchant();
+
+    /**
+     * Keep a credit card number drawn elsewhere, e.g. by another IdentityProvider, from being drawn again.
+     *
+     * @param ccn the credit card number
+     */
+    void reserveCreditCard(String ccn);
+}
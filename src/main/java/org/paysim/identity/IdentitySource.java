@@ -0,0 +1,36 @@
+package org.paysim.identity;
+
+import java.util.Locale;
+
+/**
+ * Where the identities of the actors come from.
+ */
+public enum IdentitySource {
+    /** An {@link IdentityFactory} drawing realistic people and companies from jFairy */
+    JFAIRY,
+    /** A {@link DictionaryIdentityProvider} composing identities from embedded word lists, much faster */
+    DICTIONARY;
+
+    /**
+     * @param seed seed of the identities
+     * @param permutedCardNumbers true for jFairy to leave the card numbers to a {@link CreditCardGenerator}, as the
+     *                            dictionary always does
+     * @return a new IdentityProvider of this kind
+     */
+    public IdentityProvider create(int seed, boolean permutedCardNumbers) {
+        return this == DICTIONARY ? new DictionaryIdentityProvider(seed)
+                : new IdentityFactory(seed, permutedCardNumbers);
+    }
+
+    /**
+     * @param name name of an IdentitySource, case insensitive
+     * @return the matching IdentitySource
+     */
+    public static IdentitySource parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("unknown identity source '%s', expected jfairy or dictionary", name), e);
+        }
+    }
+}
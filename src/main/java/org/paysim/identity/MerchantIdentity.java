@@ -16,6 +16,18 @@ public class MerchantIdentity extends Identity {
         this(id, name, false);
     }
 
+    /**
+     * Rebuild an identity drawn earlier, e.g. read back from a population cache.
+     *
+     * @param id the id of the identity
+     * @param name the name of the identity, as returned by {@link #getName()}
+     * @param isHighRisk whether the merchant is high risk
+     * @return the identity
+     */
+    public static MerchantIdentity restore(String id, String name, boolean isHighRisk) {
+        return new MerchantIdentity(id, name.substring(MERCHANT_IDENTIFIER.length()), isHighRisk);
+    }
+
     public boolean isHighRisk() {
         return isHighRisk;
     }
@@ -10,29 +10,47 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
-class Aggregator {
+public class Aggregator {
     private static final int DOUBLE_PRECISION = 2;
     private static final int HOURS_IN_DAY = 24, DAYS_IN_MONTH = 30;
 
-    public static Map<String, StepActionProfile> generateStepAggregate(long step, List<Transaction> transactionList) {
+    public static Map<String, StepActionProfile> generateStepAggregate(ActionTypes actionTypes, long step,
+                                                                       List<Transaction> transactionList) {
+        // Sort the successful transactions by action in one go rather than going through them for every action
+        List<List<Transaction>> transactionsPerAction = new ArrayList<>(actionTypes.size());
+        for (int action = 0; action < actionTypes.size(); action++) {
+            transactionsPerAction.add(new ArrayList<>());
+        }
+        String lastAction = null;
+        int lastIndex = -1;
+        for (Transaction t : transactionList) {
+            if (t.isFailedTransaction()) {
+                continue;
+            }
+            // Transactions mostly come in runs of the same action, and share the names' instances
+            if (t.getAction() != lastAction) {
+                lastAction = t.getAction();
+                lastIndex = actionTypes.indexOf(lastAction);
+            }
+            if (lastIndex >= 0) {
+                transactionsPerAction.get(lastIndex).add(t);
+            }
+        }
+
         Map<String, StepActionProfile> stepRecord = new HashMap<>();
-        for (String action : ActionTypes.getActions()) {
-            StepActionProfile actionRecord = getAggregatedRecord(action, step, transactionList);
+        for (int action = 0; action < actionTypes.size(); action++) {
+            String name = actionTypes.getAction(action);
+            StepActionProfile actionRecord = getAggregatedRecord(name, step, transactionsPerAction.get(action));
             if (actionRecord != null) {
-                stepRecord.put(action, actionRecord);
+                stepRecord.put(name, actionRecord);
             }
         }
         return stepRecord;
     }
 
-    private static StepActionProfile getAggregatedRecord(String action, long step, List<Transaction> transactionsList) {
-        List<Transaction> actionTransactionsList = transactionsList.stream()
-                .filter(t -> t.getAction().equals(action))
-                .filter(t -> !t.isFailedTransaction())
-                .collect(Collectors.toCollection(ArrayList::new));
-
+    private static StepActionProfile getAggregatedRecord(String action, long step,
+                                                         List<Transaction> actionTransactionsList) {
         if (actionTransactionsList.size() > 0) {
             double sum = computeTotalAmount(actionTransactionsList);
             int count = actionTransactionsList.size();
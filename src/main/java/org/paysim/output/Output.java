@@ -5,6 +5,7 @@ import org.paysim.actors.SuperActor;
 import org.paysim.base.ClientActionProfile;
 import org.paysim.base.StepActionProfile;
 import org.paysim.base.Transaction;
+import org.paysim.parameters.ActionTypes;
 import org.paysim.parameters.Parameters;
 import org.paysim.parameters.StepsProfiles;
 import org.paysim.utils.DatabaseHandler;
@@ -21,12 +22,33 @@ import java.util.Map;
 public class Output {
     public static final int PRECISION_OUTPUT = 2;
     public static final String OUTPUT_SEPARATOR = ",", EOL_CHAR = System.lineSeparator();
-    private static String filenameGlobalSummary, filenameParameters, filenameSummary, filenameRawLog,
+    private static final Logger logger = LoggerFactory.getLogger(Output.class);
+
+    private final String filenameGlobalSummary, filenameParameters, filenameSummary, filenameRawLog,
             filenameStepAggregate, filenameClientProfiles, filenameFraudsters;
+    private final ActionTypes actionTypes;
+
+    /**
+     * @param simulatorName name of the simulation, naming its output folder and files
+     * @param outputPath folder holding the output of all the simulations
+     * @param actionTypes action types of the simulation, used when aggregating its transactions
+     */
+    public Output(String simulatorName, String outputPath, ActionTypes actionTypes) {
+        String outputBaseString = outputPath + simulatorName + "//" + simulatorName;
+        filenameGlobalSummary = outputPath + "summary.csv";
 
-    private static final Logger logger = LoggerFactory.getLogger(Output.class);
+        filenameParameters = outputBaseString + "_PaySim.properties";
+        filenameSummary = outputBaseString + "_Summary.txt";
+
+        filenameRawLog = outputBaseString + "_rawLog.csv";
+        filenameStepAggregate = outputBaseString + "_aggregatedTransactions.csv";
+        filenameClientProfiles = outputBaseString + "_clientsProfiles.csv";
+        filenameFraudsters = outputBaseString + "_fraudsters.csv";
+
+        this.actionTypes = actionTypes;
+    }
 
-    public static void incrementalWriteRawLog(long step, List<Transaction> transactions) {
+    public void incrementalWriteRawLog(long step, List<Transaction> transactions) {
         String rawLogHeader = "step,action,amount,nameOrig,oldBalanceOrig,newBalanceOrig,nameDest,oldBalanceDest,newBalanceDest,isFraud,isFlaggedFraud,isUnauthorizedOverdraft";
         try {
             BufferedWriter writer = new BufferedWriter(new FileWriter(filenameRawLog, true));
@@ -44,9 +66,9 @@ public class Output {
         }
     }
 
-    public static void incrementalWriteStepAggregate(long step, List<Transaction> transactions) {
+    public void incrementalWriteStepAggregate(long step, List<Transaction> transactions) {
         String stepAggregateHeader = "action,month,day,hour,count,sum,avg,std,step";
-        Map<String, StepActionProfile> stepRecord = Aggregator.generateStepAggregate(step, transactions);
+        Map<String, StepActionProfile> stepRecord = Aggregator.generateStepAggregate(actionTypes, step, transactions);
         try {
             BufferedWriter writer = new BufferedWriter(new FileWriter(filenameStepAggregate, true));
             if (step == 0) {
@@ -65,7 +87,7 @@ public class Output {
     }
 
 
-    public static void writeFraudsters(List<SuperActor> fraudsters) {
+    public void writeFraudsters(List<SuperActor> fraudsters) {
         String fraudsterHeader = "name,type,nbVictims,victims,profit";
         try {
             BufferedWriter writer = new BufferedWriter(new FileWriter(filenameFraudsters));
@@ -81,7 +103,7 @@ public class Output {
         }
     }
 
-    public static void writeParameters(Parameters parameters) {
+    public void writeParameters(Parameters parameters) {
         try {
             BufferedWriter writer = new BufferedWriter(new FileWriter(filenameParameters));
             writer.write(parameters.toString());
@@ -91,7 +113,7 @@ public class Output {
         }
     }
 
-    public static void writeClientsProfiles(Map<ClientActionProfile, Integer> countPerClientActionProfile, int numberClients) {
+    public void writeClientsProfiles(Map<ClientActionProfile, Integer> countPerClientActionProfile, int numberClients) {
         String clientsProfilesHeader = "action,high,low,total,freq";
         try {
             BufferedWriter writer = new BufferedWriter(new FileWriter(filenameClientProfiles));
@@ -115,14 +137,15 @@ public class Output {
         }
     }
 
-    public static void writeSummarySimulation(OriginalPaySim paySim) {
+    public void writeSummarySimulation(OriginalPaySim paySim) {
         StringBuilder errorSummary = new StringBuilder();
         Parameters parameters = paySim.getParameters();
-        StepsProfiles simulationStepsProfiles = new StepsProfiles(Output.filenameStepAggregate, 1 / parameters.multiplier, parameters.nbSteps);
-        double totalErrorRate = SummaryBuilder.buildSummary(parameters.stepsProfiles, simulationStepsProfiles, errorSummary);
+        StepsProfiles simulationStepsProfiles = new StepsProfiles(filenameStepAggregate, actionTypes,
+                1 / parameters.multiplier, parameters.nbSteps);
+        double totalErrorRate = SummaryBuilder.buildSummary(actionTypes, parameters.stepsProfiles, simulationStepsProfiles, errorSummary);
 
         try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(Output.filenameSummary));
+            BufferedWriter writer = new BufferedWriter(new FileWriter(filenameSummary));
             writer.write(errorSummary.toString());
             writer.close();
         } catch (Exception e) {
@@ -136,7 +159,7 @@ public class Output {
         logger.info("Nb of clients: " + paySim.getClients().size() + " - Nb of steps with transactions: " + paySim.getStepParticipated());
     }
 
-    private static void writeGlobalSummary(String summary) {
+    private void writeGlobalSummary(String summary) {
         String header = "name,steps,nbTransactions,nbClients,totalError";
         File f = new File(filenameGlobalSummary);
         boolean fileExists = f.exists();
@@ -186,17 +209,4 @@ public class Output {
     public static String formatBoolean(boolean bool) {
         return bool ? "1" : "0";
     }
-
-    public static void initOutputFilenames(String simulatorName, String outputPath) {
-        String outputBaseString = outputPath + simulatorName + "//" + simulatorName;
-        filenameGlobalSummary = outputPath + "summary.csv";
-
-        filenameParameters = outputBaseString + "_PaySim.properties";
-        filenameSummary = outputBaseString + "_Summary.txt";
-
-        filenameRawLog = outputBaseString + "_rawLog.csv";
-        filenameStepAggregate = outputBaseString + "_aggregatedTransactions.csv";
-        filenameClientProfiles = outputBaseString + "_clientsProfiles.csv";
-        filenameFraudsters = outputBaseString + "_fraudsters.csv";
-    }
 }
@@ -0,0 +1,296 @@
+package org.paysim.output;
+
+import org.paysim.base.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans the transactions of every step out to several sinks, each writing on a thread of its own, so the simulation
+ * can go on with the next steps while the previous ones are written.
+ *
+ * Every sink has a buffer of a few steps. Publishing a step waits for room in the buffer of every sink, so a slow
+ * sink holds the simulation back rather than having steps pile up in memory. Every sink keeps track of how far it
+ * lags behind, see {@link Stage}. With buffers of 0 steps, the sinks write one after the other on the publishing
+ * thread instead.
+ *
+ * A sink failing to write a step is logged and gets the next one. If a sink's thread dies instead, e.g. of an Error,
+ * the pipeline rethrows what killed it from the next {@link #publish(long, List)} and from {@link #close()}, rather
+ * than having the simulation wait for room in a buffer nobody empties anymore.
+ */
+public class SinkPipeline implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SinkPipeline.class);
+    private static final Batch END = new Batch(-1, Collections.emptyList());
+
+    private final int bufferSteps;
+    private final List<Stage> stages = new ArrayList<>();
+    private boolean closed = false;
+
+    private static class Batch {
+        final long step;
+        final List<Transaction> transactions;
+
+        Batch(long step, List<Transaction> transactions) {
+            this.step = step;
+            this.transactions = transactions;
+        }
+    }
+
+    /**
+     * A sink of the pipeline, along with how it keeps up with the simulation.
+     */
+    public static class Stage implements Runnable {
+        private final String name;
+        private final StepSink sink;
+        private final BlockingQueue<Batch> buffer;
+        private final Thread thread;
+
+        private final AtomicLong published = new AtomicLong();
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong writeNanos = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        // Only updated by the publishing thread
+        private volatile long maxLag = 0;
+        private volatile long blockedNanos = 0;
+        // What killed the thread of the sink, if anything did
+        private volatile Throwable death;
+
+        Stage(String name, StepSink sink, int bufferSteps) {
+            this.name = name;
+            this.sink = sink;
+            if (bufferSteps > 0) {
+                buffer = new ArrayBlockingQueue<>(bufferSteps);
+                thread = new Thread(this, "Sink-" + name);
+                thread.setDaemon(true);
+                thread.start();
+            } else {
+                buffer = null;
+                thread = null;
+            }
+        }
+
+        void publish(Batch batch) throws InterruptedException {
+            rethrowDeath();
+            final long lag = published.incrementAndGet() - written.get();
+            if (lag > maxLag) {
+                maxLag = lag;
+            }
+            if (buffer == null) {
+                write(batch);
+            } else if (!buffer.offer(batch)) {
+                final long start = System.nanoTime();
+                buffer.put(batch);
+                blockedNanos += System.nanoTime() - start;
+                // The thread may have died while we waited, waking us up
+                rethrowDeath();
+            }
+        }
+
+        private void rethrowDeath() {
+            final Throwable cause = death;
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause != null) {
+                throw new IllegalStateException(String.format("sink %s died", name), cause);
+            }
+        }
+
+        private void write(Batch batch) {
+            final long start = System.nanoTime();
+            try {
+                sink.write(batch.step, batch.transactions);
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                logger.error(String.format("sink %s failed to write step %d", name, batch.step), e);
+            }
+            writeNanos.addAndGet(System.nanoTime() - start);
+            written.incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            try {
+                Batch batch;
+                while ((batch = buffer.take()) != END) {
+                    write(batch);
+                }
+            } catch (InterruptedException e) {
+                logger.warn(String.format("sink %s interrupted, %d steps left unwritten", name, getLag()));
+            } catch (Throwable t) {
+                death = t;
+                logger.error(String.format("sink %s died, %d steps left unwritten", name, getLag()), t);
+                // Make room for a publisher waiting on the buffer, it finds out about the death once woken up
+                buffer.clear();
+            }
+            closeSink();
+        }
+
+        private void closeSink() {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                logger.error(String.format("sink %s failed to close", name), e);
+            }
+        }
+
+        void close() throws InterruptedException {
+            if (thread == null) {
+                closeSink();
+            } else {
+                if (death == null) {
+                    // Should the thread die meanwhile, it empties the buffer before it goes
+                    buffer.put(END);
+                }
+                thread.join();
+                rethrowDeath();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the number of steps published to the sink but not written yet
+         */
+        public long getLag() {
+            return published.get() - written.get();
+        }
+
+        /**
+         * @return the most steps the sink ever lagged behind, counting the ones being written and published
+         */
+        public long getMaxLag() {
+            return maxLag;
+        }
+
+        public long getStepsWritten() {
+            return written.get();
+        }
+
+        /**
+         * @return the time the sink spent writing, in nanoseconds
+         */
+        public long getWriteNanos() {
+            return writeNanos.get();
+        }
+
+        /**
+         * @return the time the simulation spent waiting for room in the buffer of the sink, in nanoseconds
+         */
+        public long getBlockedNanos() {
+            return blockedNanos;
+        }
+
+        /**
+         * @return the number of steps the sink failed to write
+         */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: %d steps written in %d ms, lag %d (max %d), simulation blocked %d ms, %d failures", name, getStepsWritten(), TimeUnit.NANOSECONDS.toMillis(getWriteNanos()), getLag(), getMaxLag(),
+                    TimeUnit.NANOSECONDS.toMillis(getBlockedNanos()), getFailures());
+        }
+    }
+
+    /**
+     * @param bufferSteps the most steps a sink can lag behind before publishing waits for it, 0 to write on the
+     *                    publishing thread
+     */
+    public SinkPipeline(int bufferSteps) {
+        if (bufferSteps < 0) {
+            throw new IllegalArgumentException("bufferSteps can't be negative, got " + bufferSteps);
+        }
+        this.bufferSteps = bufferSteps;
+    }
+
+    /**
+     * Add a sink, which gets the steps published from then on.
+     *
+     * @param name name of the sink, for its thread and metrics
+     * @param sink the sink
+     * @return the stage of the sink
+     */
+    public synchronized Stage register(String name, StepSink sink) {
+        if (closed) {
+            throw new IllegalStateException("the pipeline is closed");
+        }
+        Stage stage = new Stage(name, sink, bufferSteps);
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Hand the transactions of a step to every sink, waiting for room in their buffers.
+     *
+     * @param step the step
+     * @param transactions the transactions of the step, which must not be modified afterwards
+     * @throws Error or RuntimeException what killed the thread of a sink, if one died
+     */
+    public synchronized void publish(long step, List<Transaction> transactions) {
+        if (closed) {
+            throw new IllegalStateException("the pipeline is closed");
+        }
+        Batch batch = new Batch(step, Collections.unmodifiableList(transactions));
+        try {
+            for (Stage stage : stages) {
+                stage.publish(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("interrupted while publishing step " + step);
+        }
+    }
+
+    /**
+     * Wait for every sink to write the steps published so far, then close them.
+     *
+     * @throws Error or RuntimeException what killed the thread of the first sink that died, once all are closed
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Error deadError = null;
+        RuntimeException deadException = null;
+        try {
+            for (Stage stage : stages) {
+                try {
+                    stage.close();
+                } catch (Error e) {
+                    deadError = deadError == null && deadException == null ? e : deadError;
+                } catch (RuntimeException e) {
+                    deadException = deadError == null && deadException == null ? e : deadException;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("interrupted while waiting for the sinks");
+        }
+        if (deadError != null) {
+            throw deadError;
+        } else if (deadException != null) {
+            throw deadException;
+        }
+    }
+
+    public synchronized List<Stage> getStages() {
+        return Collections.unmodifiableList(new ArrayList<>(stages));
+    }
+}
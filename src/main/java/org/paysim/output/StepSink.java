@@ -0,0 +1,28 @@
+package org.paysim.output;
+
+import org.paysim.base.Transaction;
+
+import java.util.List;
+
+/**
+ * A consumer of the transactions of every step, e.g. a file or a database. Registered with a {@link SinkPipeline}, a
+ * sink gets the steps in order on a thread of its own.
+ */
+@FunctionalInterface
+public interface StepSink {
+
+    /**
+     * @param step the step
+     * @param transactions the transactions of the step, which must not be modified as other sinks read them too
+     * @throws Exception if writing fails, which the pipeline logs before moving on to the next step
+     */
+    void write(long step, List<Transaction> transactions) throws Exception;
+
+    /**
+     * Called once the last step is written. Nothing by default.
+     *
+     * @throws Exception if closing fails
+     */
+    default void close() throws Exception {
+    }
+}
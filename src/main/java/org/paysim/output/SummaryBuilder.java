@@ -9,13 +9,14 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.function.Function;
 
-class SummaryBuilder {
+public class SummaryBuilder {
     private static final String SEPARATOR = "----------------------------------------------------";
     private static final String FORMAT_CELL = "| %-15s";
     private static final List<String> HEADER = Arrays.asList("Estimator", "Action", "Error rate");
     private static final Logger logger = LoggerFactory.getLogger(SummaryBuilder.class);
 
-    public static double buildSummary(StepsProfiles targetStepsProfiles, StepsProfiles simulationStepsProfiles, StringBuilder summaryStrBuilder) {
+    public static double buildSummary(ActionTypes actionTypes, StepsProfiles targetStepsProfiles,
+                                      StepsProfiles simulationStepsProfiles, StringBuilder summaryStrBuilder) {
         double totalErrorRate = 0;
 
         summaryStrBuilder.append(SEPARATOR);
@@ -23,7 +24,7 @@ class SummaryBuilder {
 
         buildLineTable(HEADER, summaryStrBuilder);
 
-        totalErrorRate += objectiveFunctionSteps(targetStepsProfiles, simulationStepsProfiles, summaryStrBuilder);
+        totalErrorRate += objectiveFunctionSteps(actionTypes, targetStepsProfiles, simulationStepsProfiles, summaryStrBuilder);
 
         logger.info(String.format("\n%s", summaryStrBuilder.toString()));
 
@@ -56,7 +57,17 @@ class SummaryBuilder {
         return RMSE / normalizationCoefficient;
     }
 
-    private static double objectiveFunctionSteps(StepsProfiles targetStepsProfiles, StepsProfiles simulationStepsProfiles, StringBuilder summaryBuilder) {
+    /**
+     * Compute the normalized RMSE between the target and the simulated series of every estimator and action.
+     *
+     * @param actionTypes the actions to compare
+     * @param targetStepsProfiles the profiles the simulation aims at
+     * @param simulationStepsProfiles the profiles of the simulated transactions
+     * @return the error rate per action, per estimator
+     */
+    public static Map<String, Map<String, Double>> computeErrorRates(ActionTypes actionTypes,
+                                                                     StepsProfiles targetStepsProfiles,
+                                                                     StepsProfiles simulationStepsProfiles) {
         Map<String, Function<StepActionProfile, Double>> statExtractor = new HashMap<>();
         Function<StepActionProfile, Long>  getCount = StepActionProfile::getCount;
         Function<StepActionProfile, Double> getCountDouble = getCount.andThen(Long::doubleValue);
@@ -65,20 +76,33 @@ class SummaryBuilder {
         statExtractor.put("Std amount", StepActionProfile::getStdAmount);
         statExtractor.put("Count", getCountDouble);
 
-        double totalNRMSE = 0;
-        summaryBuilder.append(SEPARATOR);
-        summaryBuilder.append(Output.EOL_CHAR);
+        Map<String, Map<String, Double>> errorRates = new LinkedHashMap<>();
         for (String estimator: statExtractor.keySet()) {
             Map<String, ArrayList<Double>> targetSeries = targetStepsProfiles.computeSeries(statExtractor.get(estimator));
             Map<String, ArrayList<Double>> simulationSeries = simulationStepsProfiles.computeSeries(statExtractor.get(estimator));
-            for (String action : ActionTypes.getActions()) {
+            Map<String, Double> estimatorErrorRates = new LinkedHashMap<>();
+            for (String action : actionTypes.getActions()) {
                 ArrayList<Double> unitTarget = targetSeries.get(action);
                 ArrayList<Double> unitSimulation = simulationSeries.get(action);
-                double NRMSE = computeNRMSE(unitTarget, unitSimulation);
+                estimatorErrorRates.put(action, computeNRMSE(unitTarget, unitSimulation));
+            }
+            errorRates.put(estimator, estimatorErrorRates);
+        }
+        return errorRates;
+    }
+
+    private static double objectiveFunctionSteps(ActionTypes actionTypes, StepsProfiles targetStepsProfiles, StepsProfiles simulationStepsProfiles, StringBuilder summaryBuilder) {
+        double totalNRMSE = 0;
+        summaryBuilder.append(SEPARATOR);
+        summaryBuilder.append(Output.EOL_CHAR);
+        for (Map.Entry<String, Map<String, Double>> estimator : computeErrorRates(actionTypes, targetStepsProfiles,
+                simulationStepsProfiles).entrySet()) {
+            for (Map.Entry<String, Double> actionErrorRate : estimator.getValue().entrySet()) {
+                double NRMSE = actionErrorRate.getValue();
 
                 ArrayList<String> errorLine = new ArrayList<>();
-                errorLine.add(estimator);
-                errorLine.add(action);
+                errorLine.add(estimator.getKey());
+                errorLine.add(actionErrorRate.getKey());
                 errorLine.add(Output.fastFormatDouble(Output.PRECISION_OUTPUT, NRMSE));
 
                 buildLineTable(errorLine, summaryBuilder);
@@ -92,6 +116,20 @@ class SummaryBuilder {
         return totalNRMSE;
     }
 
+    /**
+     * @param errorRates error rates as computed by {@link #computeErrorRates(ActionTypes, StepsProfiles, StepsProfiles)}
+     * @return the sum of all the error rates
+     */
+    public static double totalErrorRate(Map<String, Map<String, Double>> errorRates) {
+        double total = 0;
+        for (Map<String, Double> estimatorErrorRates : errorRates.values()) {
+            for (double errorRate : estimatorErrorRates.values()) {
+                total += errorRate;
+            }
+        }
+        return total;
+    }
+
     private static void buildLineTable(List<String> line, StringBuilder sb){
         for (String cellContent : line) {
             sb.append(String.format(FORMAT_CELL, cellContent));
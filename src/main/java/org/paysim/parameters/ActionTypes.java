@@ -1,27 +1,76 @@
 package org.paysim.parameters;
 
+import org.paysim.base.ActionType;
 import org.paysim.utils.CSVReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
+/**
+ * The actions of the simulation, as loaded from its transactionsTypes file. Every action gets a dense index, in the
+ * sorted order of their names, so the per action tables of the profiles are arrays indexed by it rather than maps
+ * keyed by the names.
+ */
 public class ActionTypes {
     private static final int COLUMN_ACTION = 0, COLUMN_OCCURRENCES = 1;
     private static final Logger logger = LoggerFactory.getLogger(ActionTypes.class);
-    private static Set<String> actions = new TreeSet<>();
-    private static Map<String, Integer> maxOccurrencesPerAction = new HashMap<>();
+    private final Set<String> actions;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final String[] names;
+    private final ActionType[] types;
+    private final int[] pickOrder;
+    private final Map<String, Integer> maxOccurrencesPerAction;
+    private final int[] maxOccurrences;
 
-    public static void loadActionTypes(String filename) {
+    public ActionTypes(String actionTypesFile, String maxOccurrencesPerClientFile) {
+        actions = Collections.unmodifiableSet(loadActionTypes(actionTypesFile));
+        names = actions.toArray(new String[0]);
+        types = new ActionType[names.length];
+        for (int i = 0; i < names.length; i++) {
+            indexes.put(names[i], i);
+            types[i] = ActionType.lookup(names[i]);
+        }
+        pickOrder = computePickOrder(names);
+
+        maxOccurrencesPerAction = Collections.unmodifiableMap(loadMaxOccurrencesPerClient(maxOccurrencesPerClientFile));
+        maxOccurrences = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Integer max = maxOccurrencesPerAction.get(names[i]);
+            maxOccurrences[i] = max == null ? Integer.MAX_VALUE : max;
+        }
+    }
+
+    private static Set<String> loadActionTypes(String filename) {
+        Set<String> actions = new TreeSet<>();
         List<String[]> parameters = CSVReader.read(filename);
 
         for (String[] paramLine : parameters) {
             String action = paramLine[COLUMN_ACTION];
             actions.add(action);
         }
+        return actions;
     }
 
-    public static void loadMaxOccurrencesPerClient(String filename) {
+    /**
+     * Clients used to pick their actions going through a HashMap of the actions filled in sorted order, so keep
+     * going through them in the order such a map iterates in for the same seeds to give the same transactions.
+     */
+    private static int[] computePickOrder(String[] names) {
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            byName.put(names[i], i);
+        }
+        int[] order = new int[names.length];
+        int i = 0;
+        for (int index : byName.values()) {
+            order[i++] = index;
+        }
+        return order;
+    }
+
+    private Map<String, Integer> loadMaxOccurrencesPerClient(String filename) {
+        Map<String, Integer> maxOccurrencesPerAction = new HashMap<>();
         List<String[]> parameters = CSVReader.read(filename);
         int loaded = 0;
         for (String[] paramLine : parameters) {
@@ -33,18 +82,68 @@ public class ActionTypes {
         if (loaded != actions.size()) {
             logger.warn(String.format("missing action in %s", filename));
         }
+        return maxOccurrencesPerAction;
     }
 
-    public static int getMaxOccurrenceGivenAction(String action) {
+    public int getMaxOccurrenceGivenAction(String action) {
         return maxOccurrencesPerAction.get(action);
     }
 
-    public static boolean isValidAction(String name) {
+    /**
+     * @param index index of an action
+     * @return the most times a client makes the action
+     */
+    public int getMaxOccurrence(int index) {
+        return maxOccurrences[index];
+    }
+
+    public boolean isValidAction(String name) {
         return actions.contains(name);
     }
 
-    public static Set<String> getActions() {
+    /**
+     * @return the names of the actions, in the order of their indexes
+     */
+    public Set<String> getActions() {
         return actions;
     }
 
+    /**
+     * @return the number of actions, indexes going from 0 to this excluded
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param name name of an action
+     * @return the index of the action, -1 if it isn't one of the simulation
+     */
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index index of an action
+     * @return the name of the action
+     */
+    public String getAction(int index) {
+        return names[index];
+    }
+
+    /**
+     * @param index index of an action
+     * @return the kind of the action, null if clients don't know how to make it
+     */
+    public ActionType getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * @return the indexes of every action, in the order clients go through them when picking one, not to be modified
+     */
+    public int[] getPickOrder() {
+        return pickOrder;
+    }
 }
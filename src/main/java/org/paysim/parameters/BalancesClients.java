@@ -10,22 +10,26 @@ public class BalancesClients {
     private static final int COLUMN_LOW = 0, COLUMN_HIGH = 1, COLUMN_PROB = 2;
     private static final int COLUMN_OVERDRAFT_LIMIT = 2;
 
-    private static RandomCollection<List<Double>> balanceRangePicker;
-    private static final NavigableMap<Double, Double> overdraftLimits = new TreeMap<>();
+    private final RandomCollection<List<Double>> balanceRangePicker = new RandomCollection<>();
+    private final NavigableMap<Double, Double> overdraftLimits = new TreeMap<>();
 
-    public static void initBalanceClients(String filename) {
-        balanceRangePicker = new RandomCollection<>();
+    public BalancesClients(String balancesFile, String overdraftLimitsFile) {
+        initBalanceClients(balancesFile);
+        initOverdraftLimits(overdraftLimitsFile);
+    }
+
+    private void initBalanceClients(String filename) {
         List<String[]> parameters = CSVReader.read(filename);
         for (String[] paramLine : parameters) {
             List<Double> balanceRange = new ArrayList<>();
             balanceRange.add(Double.parseDouble(paramLine[COLUMN_LOW]));
             balanceRange.add(Double.parseDouble(paramLine[COLUMN_HIGH]));
 
-            balanceRangePicker.add(Double.parseDouble(paramLine[COLUMN_PROB]), balanceRange);
+            balanceRangePicker.add(Double.parseDouble(paramLine[COLUMN_PROB]), Collections.unmodifiableList(balanceRange));
         }
     }
 
-    public static void initOverdraftLimits(String filename){
+    private void initOverdraftLimits(String filename){
         List<String[]> parameters = CSVReader.read(filename);
         double valueLow, valueHigh;
         double lastValueHigh = - Double.MAX_VALUE;
@@ -56,18 +60,14 @@ public class BalancesClients {
         }
     }
 
-    public static double pickNextBalance(MersenneTwisterFast random) {
-        List<Double> balanceRange = balanceRangePicker.next();
+    public double pickNextBalance(MersenneTwisterFast random) {
+        List<Double> balanceRange = balanceRangePicker.next(random);
         double rangeSize = balanceRange.get(COLUMN_HIGH) - balanceRange.get(COLUMN_LOW);
 
         return balanceRange.get(COLUMN_LOW) + random.nextDouble() * rangeSize;
     }
 
-    public static double getOverdraftLimit(double meanTransaction){
+    public double getOverdraftLimit(double meanTransaction){
         return overdraftLimits.floorEntry(meanTransaction).getValue();
     }
-
-    public static void setRandom(MersenneTwisterFast random) {
-        balanceRangePicker.setRandom(random);
-    }
 }
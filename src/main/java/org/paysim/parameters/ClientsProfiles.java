@@ -15,19 +15,21 @@ import java.util.Map;
 public class ClientsProfiles {
     final private Logger logger = LoggerFactory.getLogger(ClientsProfiles.class);
     private static final int COLUMN_ACTION = 0, COLUMN_LOW = 1, COLUMN_HIGH = 2, COLUMN_AVG = 3, COLUMN_STD = 4, COLUMN_FREQ = 5;
-    private Map<String, RandomCollection<ClientActionProfile>> profilePickerPerAction = new HashMap<>();
+    private final Map<String, RandomCollection<ClientActionProfile>> profilePickerPerAction = new HashMap<>();
+    private int size = 0;
 
-    public ClientsProfiles(String filename) {
+    public ClientsProfiles(String filename, ActionTypes actionTypes) {
         List<String[]> parameters = CSVReader.read(filename);
 
-        for (String action : ActionTypes.getActions()) {
+        for (String action : actionTypes.getActions()) {
             profilePickerPerAction.put(action, new RandomCollection<>());
         }
 
         for (String[] profileString : parameters) {
-            if (ActionTypes.isValidAction(profileString[COLUMN_ACTION])) {
+            if (actionTypes.isValidAction(profileString[COLUMN_ACTION])) {
                 RandomCollection<ClientActionProfile> profilePicker = profilePickerPerAction.get(profileString[COLUMN_ACTION]);
-                ClientActionProfile clientActionProfile = new ClientActionProfile(profileString[COLUMN_ACTION],
+                ClientActionProfile clientActionProfile = new ClientActionProfile(size++,
+                        profileString[COLUMN_ACTION],
                         Integer.parseInt(profileString[COLUMN_LOW]),
                         Integer.parseInt(profileString[COLUMN_HIGH]),
                         Double.parseDouble(profileString[COLUMN_AVG]),
@@ -48,13 +50,14 @@ public class ClientsProfiles {
         return profilePickerPerAction.get(action).getCollection();
     }
 
-    public ClientActionProfile pickNextActionProfile(String action) {
-        return profilePickerPerAction.get(action).next();
+    /**
+     * @return the number of ClientActionProfiles over all the actions
+     */
+    public int size() {
+        return size;
     }
 
-    public void setRandom(MersenneTwisterFast random){
-        for (RandomCollection profilePicker : profilePickerPerAction.values()){
-            profilePicker.setRandom(random);
-        }
+    public ClientActionProfile pickNextActionProfile(String action, MersenneTwisterFast random) {
+        return profilePickerPerAction.get(action).next(random);
     }
 }
@@ -1,16 +1,23 @@
 package org.paysim.parameters;
 
+import org.paysim.engine.Scheduler;
+import org.paysim.identity.IdentitySource;
+import org.paysim.utils.AmountSampler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.FileInputStream;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Properties;
 
 
 public class Parameters {
+    // Length of a day of the profiles in aggregatedTransactions, one step per hour
+    public static final int STEPS_PER_DAY = 24;
+
     private final Logger logger = LoggerFactory.getLogger(Parameters.class);
 
-    private static String seedString;
     public final int seed;
     public final int nbClients, nbMerchants, nbBanks, nbFraudsters, nbSteps;
     public final double multiplier, transferLimit;
@@ -22,22 +29,52 @@ public class Parameters {
     public final String typologiesFolder, outputPath;
     public final boolean saveToDB;
     public final String dbUrl, dbUser, dbPassword;
-
+    public final int parallelism, nbShards;
+    public final long stepTimeBudget;
+    public final Scheduler scheduler;
+    public final int checkpointInterval;
+    public final String checkpointPath;
+    public final boolean continuous;
+    public final String populationCache;
+    public final IdentitySource identitySource;
+    public final boolean permutedCardNumbers;
+    public final int outputBufferSteps;
+    public final AmountSampler amountSampler;
+    public final int merchantAffinitySize;
+
+    public final ActionTypes actionTypes;
+    public final BalancesClients balancesClients;
     public final StepsProfiles stepsProfiles;
     public final ClientsProfiles clientsProfiles;
 
     public Parameters(String propertiesFile) {
-        Properties props = new Properties();
-        try {
-            props.load(new FileInputStream(propertiesFile));
-        } catch (Exception e) {
-            // TODO: refactor to throw exception
-            logger.error(String.format("error loading properties file: %s", propertiesFile), e);
-        }
+        this(loadProperties(propertiesFile));
+    }
 
-        seedString = String.valueOf(props.getProperty("seed"));
-        seed = parseSeed(seedString);
-        nbSteps = Integer.parseInt(props.getProperty("nbSteps"));
+    public Parameters(Properties props) {
+        this(props, null);
+    }
+
+    /**
+     * Build the parameters of a variant of another simulation, e.g. with a different seed, reusing the tables
+     * already parsed for it whenever they come from the same files and settings.
+     *
+     * @param props the properties of the variant
+     * @param base parameters to share the tables of, null to parse them all
+     */
+    public Parameters(Properties props, Parameters base) {
+        seed = parseSeed(String.valueOf(props.getProperty("seed")));
+        // Keep on stepping past nbSteps, going through the step profiles over and over
+        continuous = props.getProperty("continuous", "0").equals("1");
+        final int nbStepsProperty = Integer.parseInt(props.getProperty("nbSteps"));
+        if (continuous && nbStepsProperty > STEPS_PER_DAY && nbStepsProperty % STEPS_PER_DAY != 0) {
+            // Cycle through whole days, so every step keeps the profile of its hour of the day
+            nbSteps = nbStepsProperty - nbStepsProperty % STEPS_PER_DAY;
+            logger.warn("PaySim will cycle through the profiles of the first {} steps rather than {} in continuous mode",
+                    nbSteps, nbStepsProperty);
+        } else {
+            nbSteps = nbStepsProperty;
+        }
         multiplier = Double.parseDouble(props.getProperty("multiplier"));
 
         nbClients = Integer.parseInt(props.getProperty("nbClients"));
@@ -85,15 +122,67 @@ public class Parameters {
         dbUser = props.getProperty("dbUser");
         dbPassword = props.getProperty("dbPassword");
 
-        ActionTypes.loadActionTypes(transactionsTypes);
-        BalancesClients.initBalanceClients(initialBalancesDistribution);
-        BalancesClients.initOverdraftLimits(overdraftLimits);
-        clientsProfiles = new ClientsProfiles(clientsProfilesFile);
-        stepsProfiles = new StepsProfiles(aggregatedTransactions, multiplier, nbSteps);
-        ActionTypes.loadMaxOccurrencesPerClient(maxOccurrencesPerClient);
+        // Number of threads stepping the clients, 1 keeps the classic single threaded MASON schedule
+        parallelism = Integer.parseInt(props.getProperty("parallelism", "1"));
+        // Number of shards partitioning the actors, 1 disables sharding
+        nbShards = Integer.parseInt(props.getProperty("nbShards", "1"));
+        // How actors are stepped on a single thread
+        scheduler = Scheduler.parse(props.getProperty("scheduler", "mason"));
+        // Wall clock budget per step in milliseconds, 0 disables the check
+        stepTimeBudget = Long.parseLong(props.getProperty("stepTimeBudget", "0"));
+        // Write a checkpoint every this many steps, 0 disables checkpoints
+        checkpointInterval = Integer.parseInt(props.getProperty("checkpointInterval", "0"));
+        checkpointPath = props.getProperty("checkpointPath", outputPath == null ? "checkpoint.bin" : outputPath + "checkpoint.bin");
+        // Directory of the cached populations, null to always draw the population
+        populationCache = props.getProperty("populationCache");
+        // Where the identities of the actors come from
+        identitySource = IdentitySource.parse(props.getProperty("identitySource", "jfairy"));
+        // Draw jFairy's card numbers from a keyed permutation rather than redrawing them until unseen
+        permutedCardNumbers = props.getProperty("permutedCardNumbers", "0").equals("1");
+        // Steps every output sink can lag behind the simulation, 0 writes them on the simulation thread
+        outputBufferSteps = Integer.parseInt(props.getProperty("outputBufferSteps", "4"));
+        // How the amounts of the clients' transactions are drawn
+        amountSampler = AmountSampler.parse(props.getProperty("amountSampler", "rejection"));
+        // Most merchants every client remembers going back to
+        merchantAffinitySize = Integer.parseInt(props.getProperty("merchantAffinitySize", "64"));
+
+        final boolean sameActionTypes = base != null && Objects.equals(transactionsTypes, base.transactionsTypes)
+                && Objects.equals(maxOccurrencesPerClient, base.maxOccurrencesPerClient);
+        actionTypes = sameActionTypes ? base.actionTypes : new ActionTypes(transactionsTypes, maxOccurrencesPerClient);
+
+        if (base != null && Objects.equals(initialBalancesDistribution, base.initialBalancesDistribution)
+                && Objects.equals(overdraftLimits, base.overdraftLimits)) {
+            balancesClients = base.balancesClients;
+        } else {
+            balancesClients = new BalancesClients(initialBalancesDistribution, overdraftLimits);
+        }
+
+        if (sameActionTypes && Objects.equals(clientsProfilesFile, base.clientsProfilesFile)) {
+            clientsProfiles = base.clientsProfiles;
+        } else {
+            clientsProfiles = new ClientsProfiles(clientsProfilesFile, actionTypes);
+        }
+
+        if (sameActionTypes && Objects.equals(aggregatedTransactions, base.aggregatedTransactions)
+                && multiplier == base.multiplier && nbSteps == base.nbSteps) {
+            stepsProfiles = base.stepsProfiles;
+        } else {
+            stepsProfiles = new StepsProfiles(aggregatedTransactions, actionTypes, multiplier, nbSteps);
+        }
+    }
+
+    public static Properties loadProperties(String propertiesFile) {
+        Properties props = new Properties();
+        try (FileInputStream in = new FileInputStream(propertiesFile)) {
+            props.load(in);
+        } catch (Exception e) {
+            // TODO: refactor to throw exception
+            LoggerFactory.getLogger(Parameters.class).error(String.format("error loading properties file: %s", propertiesFile), e);
+        }
+        return props;
     }
 
-    private int parseSeed(String seedString) {
+    public static int parseSeed(String seedString) {
         // /!\ MASON seed is using an int internally
         // https://github.com/eclab/mason/blob/66d38fa58fae3e250b89cf6f31bcfa9d124ffd41/mason/sim/engine/SimState.java#L45
         if (seedString.equals("time")) {
@@ -127,6 +216,19 @@ public class Parameters {
         sb.append("dbUrl=" + dbUrl + System.lineSeparator());
         sb.append("dbUser=" + dbUser + System.lineSeparator());
         sb.append("dbPassword=" + dbPassword + System.lineSeparator());
+        sb.append("parallelism=" + parallelism + System.lineSeparator());
+        sb.append("nbShards=" + nbShards + System.lineSeparator());
+        sb.append("stepTimeBudget=" + stepTimeBudget + System.lineSeparator());
+        sb.append("scheduler=" + scheduler.name().toLowerCase(Locale.ROOT) + System.lineSeparator());
+        sb.append("checkpointInterval=" + checkpointInterval + System.lineSeparator());
+        sb.append("checkpointPath=" + checkpointPath + System.lineSeparator());
+        sb.append("continuous=" + (continuous ? 1 : 0) + System.lineSeparator());
+        sb.append("populationCache=" + populationCache + System.lineSeparator());
+        sb.append("identitySource=" + identitySource.name().toLowerCase(Locale.ROOT) + System.lineSeparator());
+        sb.append("permutedCardNumbers=" + (permutedCardNumbers ? 1 : 0) + System.lineSeparator());
+        sb.append("outputBufferSteps=" + outputBufferSteps + System.lineSeparator());
+        sb.append("amountSampler=" + amountSampler.name().toLowerCase(Locale.ROOT) + System.lineSeparator());
+        sb.append("merchantAffinitySize=" + merchantAffinitySize + System.lineSeparator());
         return sb.toString();
     }
 }
@@ -5,45 +5,46 @@ import org.paysim.utils.CSVReader;
 
 import java.util.*;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 
 public class StepsProfiles {
     private static final int COLUMN_ACTION = 0, COLUMN_MONTH = 1, COLUMN_DAY = 2, COLUMN_HOUR = 3, COLUMN_COUNT = 4,
             COLUMN_SUM = 5, COLUMN_AVERAGE = 6, COLUMN_STD = 7, COLUMN_STEP = 8;
-    private List<HashMap<String, StepActionProfile>> profilePerStep;
-    private List<Map<String, Double>> probabilitiesPerStep = new ArrayList<>();
+    // Per step and action index, null where a step has no profile for an action
+    private final StepActionProfile[][] profilePerStep;
+    // Per step and action index, NaN where a step has no profile for an action
+    private final double[][] probabilitiesPerStep;
     private List<Integer> stepTargetCount;
+    private final ActionTypes actionTypes;
     private int totalTargetCount;
 
-    public StepsProfiles(String filename, double multiplier, int nbSteps) {
-        List<String[]> parameters = CSVReader.read(filename);
+    public StepsProfiles(String filename, ActionTypes actionTypes, double multiplier, int nbSteps) {
+        this(readProfiles(filename, actionTypes), actionTypes, multiplier, nbSteps);
+    }
 
-        profilePerStep = new ArrayList<>();
-        for (int i = 0; i < nbSteps; i++) {
-            profilePerStep.add(new HashMap<>());
-        }
+    /**
+     * @param profiles aggregated transactions per step and action, e.g. of a simulation
+     * @param actionTypes the valid actions, profiles of other actions are ignored
+     * @param multiplier factor applied to the target counts
+     * @param nbSteps number of steps, profiles of later steps are ignored
+     */
+    public StepsProfiles(Collection<StepActionProfile> profiles, ActionTypes actionTypes, double multiplier,
+                         int nbSteps) {
+        this.actionTypes = actionTypes;
+
+        profilePerStep = new StepActionProfile[nbSteps][actionTypes.size()];
+        probabilitiesPerStep = new double[nbSteps][actionTypes.size()];
 
         stepTargetCount = new ArrayList<>(Collections.nCopies(nbSteps, 0));
 
-        for (String[] line : parameters) {
-            if (ActionTypes.isValidAction(line[COLUMN_ACTION])) {
-                int step = Integer.parseInt(line[COLUMN_STEP]);
-                int count = Integer.parseInt(line[COLUMN_COUNT]);
+        for (StepActionProfile actionProfile : profiles) {
+            final int action = actionTypes.indexOf(actionProfile.getAction());
+            if (action >= 0) {
+                int step = (int) actionProfile.getStep();
 
                 if (step < nbSteps) {
-                    StepActionProfile actionProfile = new StepActionProfile(step,
-                            line[COLUMN_ACTION],
-                            Integer.parseInt(line[COLUMN_MONTH]),
-                            Integer.parseInt(line[COLUMN_DAY]),
-                            Integer.parseInt(line[COLUMN_HOUR]),
-                            count,
-                            Double.parseDouble(line[COLUMN_SUM]),
-                            Double.parseDouble(line[COLUMN_AVERAGE]),
-                            Double.parseDouble(line[COLUMN_STD]));
-
-                    profilePerStep.get(step).put(line[COLUMN_ACTION], actionProfile);
-                    stepTargetCount.set(step, stepTargetCount.get(step) + count);
+                    profilePerStep[step][action] = actionProfile;
+                    stepTargetCount.set(step, stepTargetCount.get(step) + (int) actionProfile.getCount());
                 }
             }
         }
@@ -53,6 +54,25 @@ public class StepsProfiles {
         modifyWithMultiplier(multiplier);
     }
 
+    private static List<StepActionProfile> readProfiles(String filename, ActionTypes actionTypes) {
+        List<StepActionProfile> profiles = new ArrayList<>();
+        for (String[] line : CSVReader.read(filename)) {
+            if (!actionTypes.isValidAction(line[COLUMN_ACTION])) {
+                continue;
+            }
+            profiles.add(new StepActionProfile(Integer.parseInt(line[COLUMN_STEP]),
+                    line[COLUMN_ACTION],
+                    Integer.parseInt(line[COLUMN_MONTH]),
+                    Integer.parseInt(line[COLUMN_DAY]),
+                    Integer.parseInt(line[COLUMN_HOUR]),
+                    Integer.parseInt(line[COLUMN_COUNT]),
+                    Double.parseDouble(line[COLUMN_SUM]),
+                    Double.parseDouble(line[COLUMN_AVERAGE]),
+                    Double.parseDouble(line[COLUMN_STD])));
+        }
+        return profiles;
+    }
+
     private void modifyWithMultiplier(double multiplier) {
         for (int step = 0; step < stepTargetCount.size(); step++) {
             int newMaxCount = Math.toIntExact(Math.round(stepTargetCount.get(step) * multiplier));
@@ -64,48 +84,72 @@ public class StepsProfiles {
     }
 
     private void computeProbabilitiesPerStep() {
-        for (int i = 0; i < profilePerStep.size(); i++) {
-            Map<String, StepActionProfile> stepProfile = profilePerStep.get(i);
+        for (int i = 0; i < profilePerStep.length; i++) {
             int stepCount = stepTargetCount.get(i);
-
-            Map<String, Double> stepProbabilities = stepProfile.entrySet()
-                    .stream().collect(Collectors.toMap(
-                            Map.Entry::getKey,
-                            c -> ((double) c.getValue().getCount()) / stepCount)
-                    );
-            probabilitiesPerStep.add(stepProbabilities);
+            for (int action = 0; action < profilePerStep[i].length; action++) {
+                StepActionProfile profile = profilePerStep[i][action];
+                probabilitiesPerStep[i][action] = profile == null ? Double.NaN
+                        : ((double) profile.getCount()) / stepCount;
+            }
         }
     }
 
-    public int getTargetCount(int step) {
-        return stepTargetCount.get(step);
+    /**
+     * @return number of steps covered by the profiles, past which they start over from the first step
+     */
+    public int getNbSteps() {
+        return profilePerStep.length;
+    }
+
+    /**
+     * @param step a step of the simulation, possibly past the last one covered by the profiles
+     * @return the step of the profiles it goes by
+     */
+    private int profileStep(long step) {
+        return (int) (step % profilePerStep.length);
+    }
+
+    public int getTargetCount(long step) {
+        return stepTargetCount.get(profileStep(step));
     }
 
-    public Map<String, Double> getProbabilitiesPerStep(int step) {
-        return probabilitiesPerStep.get(step);
+    /**
+     * @param step a step of the simulation
+     * @return the probability of every action on the step, by index, NaN for the actions it has no profile for, not
+     * to be modified
+     */
+    public double[] getProbabilitiesPerStep(long step) {
+        return probabilitiesPerStep[profileStep(step)];
     }
 
     public int getTotalTargetCount() {
         return totalTargetCount;
     }
 
-    public StepActionProfile getActionForStep(int step, String action) {
-        return profilePerStep.get(step).get(action);
+    public StepActionProfile getActionForStep(long step, String action) {
+        final int index = actionTypes.indexOf(action);
+        return index < 0 ? null : getActionForStep(step, index);
+    }
+
+    /**
+     * @param step a step of the simulation
+     * @param action index of an action
+     * @return the profile of the action on the step, null if the step has none
+     */
+    public StepActionProfile getActionForStep(long step, int action) {
+        return profilePerStep[profileStep(step)][action];
     }
 
     public Map<String, ArrayList<Double>> computeSeries(Function<StepActionProfile, Double> getter) {
         Map<String, ArrayList<Double>> series = new HashMap<>();
-        for (String action : ActionTypes.getActions()) {
+        for (String action : actionTypes.getActions()) {
             series.put(action, new ArrayList<>());
         }
 
-        for (Map<String, StepActionProfile> profileStep : profilePerStep) {
-            for (String action : ActionTypes.getActions()) {
-                if (profileStep.containsKey(action)) {
-                    series.get(action).add(getter.apply(profileStep.get(action)));
-                } else {
-                    series.get(action).add(0d);
-                }
+        for (StepActionProfile[] profileStep : profilePerStep) {
+            for (int action = 0; action < profileStep.length; action++) {
+                ArrayList<Double> actionSeries = series.get(actionTypes.getAction(action));
+                actionSeries.add(profileStep[action] != null ? getter.apply(profileStep[action]) : 0d);
             }
         }
         return series;
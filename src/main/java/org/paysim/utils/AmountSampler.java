@@ -0,0 +1,36 @@
+package org.paysim.utils;
+
+import ec.util.MersenneTwisterFast;
+
+import java.util.Locale;
+
+/**
+ * How clients draw the amounts of their transactions from their {@link TruncatedNormal} distributions.
+ */
+public enum AmountSampler {
+    /** Redraw normal values until one is positive, the same draws as always for the same seed */
+    REJECTION,
+    /** Draw from a ziggurat, or right from the tail when the mean isn't positive, in fewer than two tries on average */
+    ZIGGURAT;
+
+    /**
+     * @param distribution the distribution of the amounts
+     * @param random the RNG to draw from
+     * @return a positive amount
+     */
+    public double sample(TruncatedNormal distribution, MersenneTwisterFast random) {
+        return this == ZIGGURAT ? distribution.sample(random) : distribution.sampleByRejection(random);
+    }
+
+    /**
+     * @param name name of an AmountSampler, case insensitive
+     * @return the matching AmountSampler
+     */
+    public static AmountSampler parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("unknown amount sampler '%s', expected rejection or ziggurat", name), e);
+        }
+    }
+}
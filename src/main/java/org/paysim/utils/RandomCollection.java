@@ -30,6 +30,16 @@ public class RandomCollection<E> {
         if (this.random == null) {
             throw new NullPointerException("The RNG must be initialized to pick a random element.");
         }
+        return next(this.random);
+    }
+
+    /**
+     * Pick an element using the given RNG instead of the collection's own, so the collection can be shared.
+     *
+     * @param random the RNG to draw from
+     * @return the picked element
+     */
+    public E next(MersenneTwisterFast random) {
         if (this.map.isEmpty()){
             throw new IllegalStateException("The collection is empty");
         }
@@ -0,0 +1,146 @@
+package org.paysim.utils;
+
+import ec.util.MersenneTwisterFast;
+
+/**
+ * A normal distribution truncated to its positive values, as the amounts of the transactions are drawn from.
+ *
+ * Where the mean is well above 0, draws come from a ziggurat, rejecting the few non positive ones. Where the mean is
+ * at or below 0, and most of a normal draw would be rejected, they come from the tail of the distribution right away
+ * by Robert's exponential rejection method. Either way a draw takes fewer than two tries on average, whatever the
+ * mean and standard deviation.
+ *
+ * See Marsaglia and Tsang, "The Ziggurat Method for Generating Random Variables" (2000), in the form of Doornik's
+ * ZIGNOR (2005), and Robert, "Simulation of truncated normal variables" (1995).
+ */
+public final class TruncatedNormal {
+    private static final int LAYERS = 128;
+    // Start of the tail and area of every layer for 128 layers
+    private static final double R = 3.442619855899;
+    private static final double V = 9.91256303526217e-3;
+    private static final double[] X = new double[LAYERS + 1];
+    private static final double[] RATIOS = new double[LAYERS];
+
+    static {
+        double f = Math.exp(-0.5 * R * R);
+        X[0] = V / f;
+        X[1] = R;
+        X[LAYERS] = 0;
+        for (int i = 2; i < LAYERS; i++) {
+            X[i] = Math.sqrt(-2 * Math.log(V / X[i - 1] + f));
+            f = Math.exp(-0.5 * X[i] * X[i]);
+        }
+        for (int i = 0; i < LAYERS; i++) {
+            RATIOS[i] = X[i + 1] / X[i];
+        }
+    }
+
+    private final double average, std;
+    // Standard normal value below which amounts aren't positive
+    private final double lowerBound;
+    // Rate of the exponential proposal of the tail method, 0 when drawing from the ziggurat
+    private final double lambda;
+
+    /**
+     * @param average mean of the distribution before truncation
+     * @param std standard deviation of the distribution before truncation
+     */
+    public TruncatedNormal(double average, double std) {
+        this.average = average;
+        this.std = std;
+        this.lowerBound = std > 0 ? -average / std : Double.NaN;
+        this.lambda = lowerBound >= 0 ? (lowerBound + Math.sqrt(lowerBound * lowerBound + 4)) / 2 : 0;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public double getStd() {
+        return std;
+    }
+
+    /**
+     * @param random the RNG to draw from
+     * @return a positive value of the distribution
+     */
+    public double sample(MersenneTwisterFast random) {
+        if (!(std > 0)) {
+            return degenerate();
+        }
+        double amount;
+        do {
+            double z = lambda > 0 ? sampleTail(random) : sampleStandard(random);
+            amount = z * std + average;
+        } while (amount <= 0);
+        return amount;
+    }
+
+    /**
+     * Draw the way clients always did, redrawing a normal value until it's positive. As many tries as it takes, but
+     * the same draws as before for the same seed.
+     *
+     * @param random the RNG to draw from
+     * @return a positive value of the distribution
+     */
+    public double sampleByRejection(MersenneTwisterFast random) {
+        if (!(std > 0)) {
+            return degenerate();
+        }
+        double amount = -1;
+        while (amount <= 0) {
+            amount = random.nextGaussian() * std + average;
+        }
+        return amount;
+    }
+
+    private double degenerate() {
+        if (average > 0) {
+            return average;
+        }
+        throw new IllegalStateException(String.format(
+                "no positive value in a normal distribution of mean %f and standard deviation %f", average, std));
+    }
+
+    private double sampleTail(MersenneTwisterFast random) {
+        double z;
+        do {
+            z = lowerBound - Math.log(1 - random.nextDouble()) / lambda;
+        } while (random.nextDouble() > Math.exp(-0.5 * (z - lambda) * (z - lambda)));
+        return z;
+    }
+
+    /**
+     * @param random the RNG to draw from
+     * @return a value of the standard normal distribution, drawn from the ziggurat
+     */
+    public static double sampleStandard(MersenneTwisterFast random) {
+        while (true) {
+            double u = 2 * random.nextDouble() - 1;
+            int layer = random.nextInt() & (LAYERS - 1);
+            // Inside the rectangle of the layer, by far the most common case
+            if (Math.abs(u) < RATIOS[layer]) {
+                return u * X[layer];
+            }
+            if (layer == 0) {
+                return u < 0 ? -sampleBaseTail(random) : sampleBaseTail(random);
+            }
+            double x = u * X[layer];
+            double f0 = Math.exp(-0.5 * (X[layer] * X[layer] - x * x));
+            double f1 = Math.exp(-0.5 * (X[layer + 1] * X[layer + 1] - x * x));
+            if (f1 + random.nextDouble() * (f0 - f1) < 1) {
+                return x;
+            }
+        }
+    }
+
+    // Marsaglia's method for the values beyond the last layer
+    private static double sampleBaseTail(MersenneTwisterFast random) {
+        double x, y;
+        do {
+            x = Math.log(1 - random.nextDouble()) / R;
+            y = Math.log(1 - random.nextDouble());
+        } while (-2 * y < x * x);
+        return R - x;
+    }
+}
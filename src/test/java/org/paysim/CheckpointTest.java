@@ -0,0 +1,85 @@
+package org.paysim;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+public class CheckpointTest {
+    private static final int CHECKPOINT_STEP = 5;
+
+    private Properties props;
+    private Path checkpoint;
+
+    @BeforeEach
+    void setup() throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        props = Parameters.loadProperties(path.toString());
+        // Plenty of fraud, so fraudsters open faux accounts and collect victims before the checkpoint
+        props.setProperty("firstPartyFraudProbability", "0.3");
+        props.setProperty("thirdPartyFraudProbability", "0.3");
+        props.setProperty("checkpointInterval", String.valueOf(CHECKPOINT_STEP));
+
+        checkpoint = Files.createTempDirectory("paysim").resolve("checkpoint.bin");
+        props.setProperty("checkpointPath", checkpoint.toString());
+    }
+
+    private static List<String> collect(IteratingPaySim sim) {
+        sim.run();
+        List<String> lines = new ArrayList<>();
+        Transaction tx;
+        while ((tx = sim.next()) != null) {
+            lines.add(tx.getGlobalStep() + "," + tx.toString());
+        }
+        return lines;
+    }
+
+    private void assertResumesWhereItLeftOff(String key, String value) {
+        props.setProperty(key, value);
+        Parameters parameters = new Parameters(props);
+        List<String> uninterrupted = collect(new IteratingPaySim(parameters));
+        Assertions.assertTrue(Files.exists(checkpoint));
+
+        List<String> expected = new ArrayList<>();
+        for (String line : uninterrupted) {
+            if (Integer.parseInt(line.split(",")[1]) >= CHECKPOINT_STEP) {
+                expected.add(line);
+            }
+        }
+        Assertions.assertFalse(expected.isEmpty());
+
+        IteratingPaySim resumed = new IteratingPaySim(parameters);
+        resumed.resumeFrom(checkpoint);
+        Assertions.assertEquals(expected, collect(resumed));
+    }
+
+    @Test
+    void shuffledRunResumesWhereItLeftOff() {
+        assertResumesWhereItLeftOff("scheduler", "shuffled");
+    }
+
+    @Test
+    void sparseRunResumesWhereItLeftOff() {
+        assertResumesWhereItLeftOff("scheduler", "sparse");
+    }
+
+    @Test
+    void shardedRunResumesWhereItLeftOff() {
+        assertResumesWhereItLeftOff("nbShards", "3");
+    }
+
+    @Test
+    void masonScheduleCantBeCheckpointed() {
+        props.setProperty("scheduler", "mason");
+        PaySimState sim = new IteratingPaySim(new Parameters(props));
+        Assertions.assertThrows(IllegalStateException.class, sim::runSimulation);
+    }
+}
@@ -0,0 +1,70 @@
+package org.paysim;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+import org.paysim.parameters.StepsProfiles;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+public class ContinuousRunTest {
+    private static final int NB_CYCLES = 3;
+
+    private Properties props;
+
+    @BeforeEach
+    void setup() throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        props = Parameters.loadProperties(path.toString());
+        props.setProperty("continuous", "1");
+    }
+
+    private void assertRunsPastTheLastStep(String scheduler) {
+        props.setProperty("scheduler", scheduler);
+        Parameters parameters = new Parameters(props);
+        IteratingPaySim sim = new IteratingPaySim(parameters, 1000);
+        sim.run();
+
+        // Each step of every cycle keeps drawing transactions, no matter how many steps there were before
+        boolean[] seen = new boolean[NB_CYCLES * parameters.nbSteps];
+        long lastStep = 0;
+        Transaction tx;
+        while ((tx = sim.next()) != null && tx.getStep() < seen.length) {
+            Assertions.assertTrue(tx.getStep() >= lastStep, "steps should never go backwards");
+            lastStep = tx.getStep();
+            seen[(int) lastStep] = true;
+        }
+        sim.abort();
+
+        Assertions.assertNotNull(tx, "a continuous run shouldn't stop on its own");
+        StepsProfiles profiles = parameters.stepsProfiles;
+        for (int step = 0; step < seen.length; step++) {
+            Assertions.assertEquals(profiles.getTargetCount(step % parameters.nbSteps), profiles.getTargetCount(step));
+            if (profiles.getTargetCount(step) > 0) {
+                Assertions.assertTrue(seen[step], "no transaction on step " + step);
+            }
+        }
+    }
+
+    @Test
+    void shuffledRunCyclesThroughTheProfiles() {
+        assertRunsPastTheLastStep("shuffled");
+    }
+
+    @Test
+    void sparseRunCyclesThroughTheProfiles() {
+        assertRunsPastTheLastStep("sparse");
+    }
+
+    @Test
+    void cycleIsRoundedToWholeDays() {
+        props.setProperty("nbSteps", "50");
+        Assertions.assertEquals(2 * Parameters.STEPS_PER_DAY, new Parameters(props).nbSteps);
+        props.setProperty("continuous", "0");
+        Assertions.assertEquals(50, new Parameters(props).nbSteps);
+    }
+}
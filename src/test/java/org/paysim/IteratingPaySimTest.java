@@ -0,0 +1,71 @@
+package org.paysim;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+public class IteratingPaySimTest {
+    private Parameters parameters;
+
+    @BeforeEach
+    void setup() throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        parameters = new Parameters(path.toString());
+    }
+
+    private List<String> runOneByOne() {
+        IteratingPaySim sim = new IteratingPaySim(parameters);
+        sim.run();
+        List<String> transactions = new ArrayList<>();
+        sim.forEachRemaining(tx -> transactions.add(tx.getGlobalStep() + "," + tx));
+        return transactions;
+    }
+
+    @Test
+    void batchesTakeEveryTransactionInOrder() {
+        List<String> expected = runOneByOne();
+
+        IteratingPaySim sim = new IteratingPaySim(parameters, 100);
+        sim.run();
+        List<String> transactions = new ArrayList<>();
+        List<Transaction> batch;
+        while (!(batch = sim.nextBatch(64)).isEmpty()) {
+            Assertions.assertTrue(batch.size() <= 64);
+            batch.forEach(tx -> transactions.add(tx.getGlobalStep() + "," + tx));
+        }
+        Assertions.assertEquals(expected, transactions);
+    }
+
+    @Test
+    void parallelStreamsSeeEveryTransaction() {
+        List<String> expected = runOneByOne();
+
+        IteratingPaySim sim = new IteratingPaySim(parameters);
+        sim.run();
+        List<String> transactions = sim.stream()
+                .parallel()
+                .map(tx -> tx.getGlobalStep() + "," + tx)
+                .collect(Collectors.toList());
+        Assertions.assertEquals(expected, transactions);
+    }
+
+    @Test
+    void sizeIsEstimatedFromTheStepProfiles() {
+        IteratingPaySim sim = new IteratingPaySim(parameters);
+        Spliterator<Transaction> spliterator = sim.spliterator();
+        sim.run();
+        Assertions.assertTrue(spliterator.estimateSize() > 0);
+        Assertions.assertTrue(spliterator.estimateSize() < Long.MAX_VALUE);
+        sim.forEachRemaining(tx -> { });
+        Assertions.assertEquals(0, spliterator.estimateSize());
+    }
+}
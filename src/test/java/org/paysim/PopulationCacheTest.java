@@ -0,0 +1,84 @@
+package org.paysim;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+public class PopulationCacheTest {
+    private Properties props;
+    private Path cache;
+
+    @BeforeEach
+    void setup() throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        props = Parameters.loadProperties(path.toString());
+        // Plenty of fraud, so accounts get opened while running
+        props.setProperty("firstPartyFraudProbability", "0.3");
+        props.setProperty("thirdPartyFraudProbability", "0.3");
+        props.setProperty("scheduler", "shuffled");
+
+        cache = Files.createTempDirectory("paysim");
+        props.setProperty("populationCache", cache.toString());
+    }
+
+    private static List<String> collect(IteratingPaySim sim) {
+        sim.run();
+        List<String> lines = new ArrayList<>();
+        Transaction tx;
+        while ((tx = sim.next()) != null) {
+            lines.add(tx.getGlobalStep() + "," + tx.toString());
+        }
+        return lines;
+    }
+
+    @Test
+    void cachedPopulationMakesTheSameTransactions() throws Exception {
+        Parameters parameters = new Parameters(props);
+        Path path = PopulationCache.pathOf(parameters);
+        Assertions.assertFalse(Files.exists(path));
+
+        List<String> drawn = collect(new IteratingPaySim(parameters));
+        Assertions.assertTrue(Files.exists(path));
+        Assertions.assertFalse(drawn.isEmpty());
+
+        Assertions.assertEquals(drawn, collect(new IteratingPaySim(parameters)));
+    }
+
+    @Test
+    void cachedPopulationReproducesAnUncachedRun() throws Exception {
+        // Accounts opened while running get identities of another stream with a cache, so leave fraudsters out
+        props.setProperty("firstPartyFraudProbability", "0");
+        props.setProperty("thirdPartyFraudProbability", "0");
+        Properties uncached = new Properties();
+        uncached.putAll(props);
+        uncached.remove("populationCache");
+        List<String> expected = collect(new IteratingPaySim(new Parameters(uncached)));
+
+        Parameters parameters = new Parameters(props);
+        collect(new IteratingPaySim(parameters));
+        Assertions.assertTrue(Files.exists(PopulationCache.pathOf(parameters)));
+        // Rebuilt from the cache, the clients must go on exactly like freshly drawn ones
+        Assertions.assertEquals(expected, collect(new IteratingPaySim(parameters)));
+    }
+
+    @Test
+    void otherPopulationSettingsMissTheCache() throws Exception {
+        Path path = PopulationCache.pathOf(new Parameters(props));
+        props.setProperty("nbClients", "1000");
+        Assertions.assertNotEquals(path, PopulationCache.pathOf(new Parameters(props)));
+
+        // Settings only read while stepping share the population
+        props.setProperty("nbClients", "2000");
+        props.setProperty("thirdPartyFraudProbability", "0.1");
+        Assertions.assertEquals(path, PopulationCache.pathOf(new Parameters(props)));
+    }
+}
@@ -3,6 +3,7 @@ package org.paysim;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.paysim.base.Transaction;
 import org.paysim.parameters.Parameters;
 
 import java.io.BufferedReader;
@@ -10,7 +11,12 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
@@ -86,6 +92,34 @@ public class SanityCheckTest {
                     "Each step is 1 greater than the last"));
     }
 
+    private static long fingerprint(IteratingPaySim sim) {
+        sim.run();
+        long hash = 0;
+        Transaction tx;
+        while ((tx = sim.next()) != null) {
+            hash = 31 * hash + tx.toString().hashCode();
+        }
+        return hash;
+    }
+
+    @Test
+    void concurrentSimulationsCanShareParameters() throws Exception {
+        final long expected = fingerprint(new IteratingPaySim(parameters));
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Long>> runs = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                runs.add(pool.submit(() -> fingerprint(new IteratingPaySim(parameters))));
+            }
+            for (Future<Long> run : runs) {
+                Assertions.assertEquals(expected, (long) run.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     @Test
     void sanityCheckIteratingPaySim() throws Exception {
         Path path = Paths.get(getClass().getResource(testLog).toURI());
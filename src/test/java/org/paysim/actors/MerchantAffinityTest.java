@@ -0,0 +1,104 @@
+package org.paysim.actors;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MerchantAffinityTest {
+
+    @Test
+    void merchantsFoundAgainAreCountedOnce() {
+        MerchantAffinity affinity = new MerchantAffinity(8);
+        affinity.add(3);
+        affinity.add(5);
+        affinity.add(3);
+        Assertions.assertEquals(2, affinity.size());
+        Assertions.assertEquals(3, affinity.getMerchant(0));
+        Assertions.assertEquals(2, affinity.getCount(0));
+        Assertions.assertEquals(1, affinity.getCount(1));
+
+        for (int i = 0; i < 40; i++) {
+            affinity.add(5);
+        }
+        Assertions.assertEquals(41, affinity.getCount(1));
+        affinity.add(5, Integer.MAX_VALUE);
+        Assertions.assertEquals(Integer.MAX_VALUE, affinity.getCount(1));
+    }
+
+    @Test
+    void theMerchantsFoundTheFewestTimesMakeRoom() {
+        MerchantAffinity affinity = new MerchantAffinity(3);
+        affinity.add(1);
+        affinity.add(1);
+        affinity.add(2);
+        affinity.add(3);
+        affinity.add(4);
+        affinity.add(5);
+        Assertions.assertEquals(3, affinity.size());
+        // 2 then 3 went first, 1 being found twice
+        Assertions.assertEquals(1, affinity.getMerchant(0));
+        Assertions.assertEquals(4, affinity.getMerchant(1));
+        Assertions.assertEquals(5, affinity.getMerchant(2));
+
+        MerchantAffinity copy = new MerchantAffinity(affinity, 3);
+        affinity.add(6);
+        copy.add(6);
+        for (int i = 0; i < affinity.size(); i++) {
+            Assertions.assertEquals(affinity.getMerchant(i), copy.getMerchant(i));
+            Assertions.assertEquals(affinity.getCount(i), copy.getCount(i));
+        }
+
+        MerchantAffinity smaller = new MerchantAffinity(affinity, 1);
+        Assertions.assertEquals(1, smaller.size());
+        Assertions.assertEquals(1, smaller.getMerchant(0));
+    }
+
+    @Test
+    void picksFollowTheCounts() {
+        MerchantAffinity affinity = new MerchantAffinity(4);
+        affinity.add(10);
+        affinity.add(20);
+        affinity.add(20);
+        affinity.add(20);
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        int picked = 0;
+        final int nbPicks = 100_000;
+        for (int i = 0; i < nbPicks; i++) {
+            if (affinity.pick(random) == 20) {
+                picked++;
+            }
+        }
+        Assertions.assertEquals(0.75, (double) picked / nbPicks, 0.01);
+    }
+
+    @Test
+    void picksFollowCountsOfMerchantsFoundManyTimes() {
+        MerchantAffinity affinity = new MerchantAffinity(4);
+        affinity.add(10, 20);
+        affinity.add(20, 60);
+        affinity.add(30, 1);
+        affinity.add(40, 19);
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        final int nbPicks = 100_000;
+        int[] picked = new int[5];
+        for (int i = 0; i < nbPicks; i++) {
+            picked[affinity.pick(random) / 10]++;
+        }
+        Assertions.assertEquals(0.20, (double) picked[1] / nbPicks, 0.01);
+        Assertions.assertEquals(0.60, (double) picked[2] / nbPicks, 0.01);
+        Assertions.assertEquals(0.01, (double) picked[3] / nbPicks, 0.005);
+        Assertions.assertEquals(0.19, (double) picked[4] / nbPicks, 0.01);
+    }
+
+    @Test
+    void merchantsFoundOnceTakeASingleUniformDraw() {
+        MerchantAffinity affinity = new MerchantAffinity(8);
+        for (int merchant = 0; merchant < 5; merchant++) {
+            affinity.add(merchant);
+        }
+        MersenneTwisterFast random = new MersenneTwisterFast(7), expected = new MersenneTwisterFast(7);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(expected.nextInt(5), affinity.pick(random));
+        }
+    }
+}
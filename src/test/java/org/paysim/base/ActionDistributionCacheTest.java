@@ -0,0 +1,156 @@
+package org.paysim.base;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.paysim.IteratingPaySim;
+import org.paysim.actors.Client;
+import org.paysim.parameters.Parameters;
+import org.paysim.utils.TruncatedNormal;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+public class ActionDistributionCacheTest {
+    private Parameters parameters;
+
+    @BeforeEach
+    void setup() throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        parameters = new Parameters(path.toString());
+    }
+
+    private IteratingPaySim runSimulation() {
+        IteratingPaySim sim = new IteratingPaySim(parameters);
+        sim.run();
+        sim.forEachRemaining(tx -> { });
+        return sim;
+    }
+
+    @Test
+    void clientsOfTheSameActionProfileShareTheirAmounts() {
+        IteratingPaySim sim = runSimulation();
+        ActionDistributionCache cache = sim.getActionDistributions();
+
+        final long step = sim.getCurrentStep() - 1;
+        for (int action = 0; action < parameters.actionTypes.size(); action++) {
+            Set<TruncatedNormal> distributions = Collections.newSetFromMap(new IdentityHashMap<>());
+            Set<ClientActionProfile> profiles = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Client client : sim.getClients()) {
+                ClientActionProfile profile = client.getClientProfile().getProfilePerAction(action);
+                profiles.add(profile);
+                distributions.add(cache.getAmounts(profile, action, step));
+            }
+            Assertions.assertEquals(profiles.size(), distributions.size());
+            Assertions.assertTrue(profiles.size() <= parameters.clientsProfiles
+                    .getProfilesFromAction(parameters.actionTypes.getAction(action)).size());
+        }
+    }
+
+    @Test
+    void mostLookupsHitOnARealisticPopulation() {
+        IteratingPaySim sim = runSimulation();
+        ActionDistributionCache cache = sim.getActionDistributions();
+
+        // Only the first lookup of every ClientActionProfile on every step computes the distribution
+        int nbActionProfiles = 0;
+        for (String action : parameters.actionTypes.getActions()) {
+            nbActionProfiles += parameters.clientsProfiles.getProfilesFromAction(action).size();
+        }
+        final long hits = cache.getHits(), misses = cache.getMisses();
+        Assertions.assertTrue(misses <= (long) nbActionProfiles * parameters.nbSteps, cache.toString());
+        Assertions.assertTrue(hits > 0.99 * (hits + misses), cache.toString());
+    }
+
+    @Test
+    void amountsFollowTheSteps() {
+        IteratingPaySim sim = runSimulation();
+        ActionDistributionCache cache = sim.getActionDistributions();
+        ClientActionProfile profile = sim.getClients().get(0).getClientProfile().getProfilePerAction(0);
+
+        TruncatedNormal amounts = cache.getAmounts(profile, 0, 0);
+        long hits = cache.getHits(), misses = cache.getMisses();
+        Assertions.assertSame(amounts, cache.getAmounts(profile, 0, 0));
+        Assertions.assertNotSame(amounts, cache.getAmounts(profile, 0, 1));
+        Assertions.assertEquals(hits + 1, cache.getHits());
+        Assertions.assertEquals(misses + 1, cache.getMisses());
+
+        StepActionProfile stepProfile = parameters.stepsProfiles.getActionForStep(0, 0);
+        double expected = stepProfile == null ? profile.getAvgAmount()
+                : (profile.getAvgAmount() + stepProfile.getAvgAmount()) / 2;
+        Assertions.assertEquals(expected, amounts.getAverage());
+    }
+
+    @Test
+    void simulationsSharingTheirParametersKeepTheirOwnDistributions() {
+        ActionDistributionCache first = new IteratingPaySim(parameters).getActionDistributions();
+        ActionDistributionCache second = new IteratingPaySim(parameters).getActionDistributions();
+        ClientActionProfile profile = parameters.clientsProfiles
+                .getProfilesFromAction(parameters.actionTypes.getAction(0)).iterator().next();
+
+        TruncatedNormal amounts = first.getAmounts(profile, 0, 0);
+        second.getAmounts(profile, 0, 1);
+        Assertions.assertSame(amounts, first.getAmounts(profile, 0, 0));
+        Assertions.assertEquals(1, first.getHits());
+        Assertions.assertEquals(1, first.getMisses());
+    }
+
+    @Test
+    void actionTablesAreBuiltOncePerClientAndStep() {
+        IteratingPaySim sim = runSimulation();
+        ActionDistributionCache cache = sim.getActionDistributions();
+        Assertions.assertTrue(cache.getActionTableBuilds() <= (long) sim.getClients().size() * parameters.nbSteps,
+                cache.toString());
+
+        ClientProfile profile = sim.getClients().get(0).getClientProfile();
+        ActionDistributionCache.ActionTable table = cache.getActions(0, profile, 0);
+        final long builds = cache.getActionTableBuilds();
+        Assertions.assertSame(table, cache.getActions(0, profile, 0));
+        Assertions.assertEquals(builds, cache.getActionTableBuilds());
+        cache.getActions(0, profile, 1);
+        Assertions.assertEquals(builds + 1, cache.getActionTableBuilds());
+    }
+
+    @Test
+    void actionTablesPickTheBlendedProbabilities() {
+        IteratingPaySim sim = runSimulation();
+        ActionDistributionCache cache = new ActionDistributionCache(parameters);
+        ClientProfile profile = sim.getClients().get(0).getClientProfile();
+        ActionDistributionCache.ActionTable table = cache.getActions(0, profile, 0);
+
+        final double[] stepProbabilities = parameters.stepsProfiles.getProbabilitiesPerStep(0);
+        final double[] clientProbabilities = profile.getActionProbabilities();
+        final int nbActions = parameters.actionTypes.size();
+        double[] expected = new double[nbActions];
+        double probInflow = 0;
+        for (int action = 0; action < nbActions; action++) {
+            expected[action] = Double.isNaN(stepProbabilities[action]) ? clientProbabilities[action]
+                    : (clientProbabilities[action] + stepProbabilities[action]) / 2;
+            if (parameters.actionTypes.getType(action).isInflow()) {
+                probInflow += expected[action];
+            }
+        }
+        Assertions.assertEquals(probInflow, table.getProbInflow(), 1e-12);
+
+        // Without any correction, actions are picked in proportion to their blended weight
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        final int draws = 200_000;
+        int[] counts = new int[nbActions];
+        for (int i = 0; i < draws; i++) {
+            counts[table.pick(random, table.getProbInflow())]++;
+        }
+        for (int action = 0; action < nbActions; action++) {
+            Assertions.assertEquals(expected[action], (double) counts[action] / draws, 0.01,
+                    parameters.actionTypes.getAction(action));
+        }
+
+        // Correcting the probability of an inflow action all the way only leaves inflow actions
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertTrue(parameters.actionTypes.getType(table.pick(random, 1)).isInflow());
+        }
+    }
+}
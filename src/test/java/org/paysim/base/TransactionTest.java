@@ -0,0 +1,97 @@
+package org.paysim.base;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.paysim.IteratingPaySim;
+import org.paysim.actors.ActorDictionary;
+import org.paysim.actors.SuperActor;
+import org.paysim.parameters.Parameters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TransactionTest {
+
+    private static List<Transaction> runSimulation(IteratingPaySim sim) {
+        sim.run();
+        List<Transaction> transactions = new ArrayList<>();
+        sim.forEachRemaining(transactions::add);
+        return transactions;
+    }
+
+    private IteratingPaySim newSimulation() throws Exception {
+        return newSimulation(200_000);
+    }
+
+    private IteratingPaySim newSimulation(int queueDepth) throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        return new IteratingPaySim(new Parameters(path.toString()), queueDepth);
+    }
+
+    @Test
+    void actorsAreResolvedThroughTheDictionary() throws Exception {
+        IteratingPaySim sim = newSimulation();
+        List<Transaction> transactions = runSimulation(sim);
+        Assertions.assertFalse(transactions.isEmpty());
+
+        ActorDictionary actors = sim.getActorDictionary();
+        for (Transaction tx : transactions) {
+            Assertions.assertSame(actors, tx.getActors());
+            SuperActor orig = actors.get(tx.getOrigActor());
+            SuperActor dest = actors.get(tx.getDestActor());
+            Assertions.assertEquals(tx.getOrigActor(), orig.getActorId());
+            Assertions.assertEquals(orig.getId(), tx.getIdOrig());
+            Assertions.assertEquals(orig.getName(), tx.getNameOrig());
+            Assertions.assertEquals(orig.getType(), tx.getOrigType());
+            Assertions.assertEquals(dest.getId(), tx.getIdDest());
+            Assertions.assertEquals(dest.getName(), tx.getNameDest());
+        }
+    }
+
+    @Test
+    void serializedTransactionsCarryTheirIdentities() throws Exception {
+        Transaction tx = runSimulation(newSimulation()).get(0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(tx);
+        }
+        Transaction copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Transaction) in.readObject();
+        }
+
+        Assertions.assertNull(copy.getActors());
+        Assertions.assertEquals(tx.getIdOrig(), copy.getIdOrig());
+        Assertions.assertEquals(tx.getNameOrig(), copy.getNameOrig());
+        Assertions.assertEquals(tx.getIdDest(), copy.getIdDest());
+        Assertions.assertEquals(tx.getNameDest(), copy.getNameDest());
+        Assertions.assertEquals(tx.toString(), copy.toString());
+    }
+
+    @Test
+    void viewsMatchTheTransactionsEvenThroughATinyRing() throws Exception {
+        List<Transaction> transactions = runSimulation(newSimulation());
+
+        IteratingPaySim sim = newSimulation(1);
+        sim.run();
+        List<String> viewed = new ArrayList<>();
+        List<Long> globalSteps = new ArrayList<>();
+        sim.forEachRemainingView(view -> {
+            viewed.add(view.toString());
+            globalSteps.add(view.getGlobalStep());
+        });
+
+        Assertions.assertEquals(transactions.size(), viewed.size());
+        for (int i = 0; i < viewed.size(); i++) {
+            Assertions.assertEquals(transactions.get(i).toString(), viewed.get(i));
+            Assertions.assertEquals(i + 1, (long) globalSteps.get(i));
+        }
+    }
+}
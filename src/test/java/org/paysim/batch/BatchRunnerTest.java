@@ -0,0 +1,129 @@
+package org.paysim.batch;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.paysim.parameters.Parameters;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+public class BatchRunnerTest {
+    private Properties props;
+
+    @BeforeEach
+    void setup() throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        props = Parameters.loadProperties(path.toString());
+    }
+
+    @Test
+    void gridHoldsEveryCombination() {
+        Map<String, List<String>> axes = new LinkedHashMap<>();
+        axes.put("seed", Arrays.asList("1", "2"));
+        axes.put("multiplier", Arrays.asList("0.5", "1", "2"));
+
+        List<Map<String, String>> runs = BatchRunner.grid(axes);
+        Assertions.assertEquals(6, runs.size());
+        Assertions.assertEquals("1", runs.get(0).get("seed"));
+        Assertions.assertEquals("0.5", runs.get(0).get("multiplier"));
+        Assertions.assertEquals("1", runs.get(2).get("seed"));
+        Assertions.assertEquals("2", runs.get(2).get("multiplier"));
+        Assertions.assertEquals("2", runs.get(3).get("seed"));
+    }
+
+    @Test
+    void concurrentRunsMatchTheirSeeds() throws Exception {
+        Map<String, List<String>> axes = new LinkedHashMap<>();
+        axes.put("seed", Arrays.asList("1", "2", "1"));
+        List<BatchResult> results = new BatchRunner(props, 3).run(BatchRunner.grid(axes));
+
+        Assertions.assertEquals(3, results.size());
+        for (BatchResult result : results) {
+            Assertions.assertTrue(result.isSuccessful());
+            Assertions.assertTrue(result.getTotalTransactions() > 0);
+            Assertions.assertFalse(result.getErrorRates().isEmpty());
+        }
+        Assertions.assertEquals(results.get(0).getTotalTransactions(), results.get(2).getTotalTransactions());
+        Assertions.assertEquals(results.get(0).getErrorRates(), results.get(2).getErrorRates());
+        Assertions.assertNotEquals(results.get(0).getTotalTransactions(), results.get(1).getTotalTransactions());
+    }
+
+    @Test
+    void branchesCarryOnLikeFullRuns() throws Exception {
+        props.setProperty("scheduler", "shuffled");
+        props.setProperty("thirdPartyFraudProbability", "0.1");
+        BatchRunner runner = new BatchRunner(props, 3);
+        BatchResult full = runner.run(BatchRunner.grid(new LinkedHashMap<>())).get(0);
+
+        Map<String, List<String>> axes = new LinkedHashMap<>();
+        axes.put("thirdPartyFraudProbability", Arrays.asList("0.1", "0.9", "0.1"));
+        List<BatchResult> branches = runner.runBranches(4, BatchRunner.grid(axes));
+
+        for (BatchResult branch : branches) {
+            Assertions.assertTrue(branch.isSuccessful());
+        }
+        Assertions.assertEquals(full.getTotalTransactions(), branches.get(0).getTotalTransactions());
+        Assertions.assertEquals(full.getErrorRates(), branches.get(0).getErrorRates());
+        Assertions.assertEquals(full.getTotalTransactions(), branches.get(2).getTotalTransactions());
+        Assertions.assertNotEquals(full.getTotalTransactions(), branches.get(1).getTotalTransactions());
+    }
+
+    @Test
+    void branchesCarryOnAfterFauxAccountsWereOpened() {
+        props.setProperty("scheduler", "shuffled");
+        props.setProperty("firstPartyFraudProbability", "1");
+        Parameters parameters = new Parameters(props);
+        BatchPaySim full = new BatchPaySim(parameters);
+        full.run();
+
+        BatchPaySim trunk = new BatchPaySim(parameters);
+        trunk.pauseBefore(4);
+        trunk.run();
+        Assertions.assertTrue(trunk.getClients().size() > trunk.getInitialClients().size());
+        BatchPaySim branch = new BatchPaySim(parameters, trunk);
+        branch.run();
+
+        Assertions.assertEquals(full.getTotalTransactions(), branch.getTotalTransactions());
+        Assertions.assertEquals(full.getErrorRates(), branch.getErrorRates());
+    }
+
+    @Test
+    void parallelBranchesCarryOnLikeFullRuns() throws Exception {
+        props.setProperty("parallelism", "4");
+        props.setProperty("firstPartyFraudProbability", "1");
+        BatchRunner runner = new BatchRunner(props, 3);
+        BatchResult full = runner.run(BatchRunner.grid(new LinkedHashMap<>())).get(0);
+
+        // Sibling branches stepping at the same time, each from several threads, all off the same trunk
+        Map<String, List<String>> axes = new LinkedHashMap<>();
+        axes.put("seed", Arrays.asList(props.getProperty("seed"), props.getProperty("seed"), props.getProperty("seed")));
+        List<BatchResult> branches = runner.runBranches(4, BatchRunner.grid(axes));
+
+        for (BatchResult branch : branches) {
+            Assertions.assertTrue(branch.isSuccessful());
+            Assertions.assertEquals(full.getTotalTransactions(), branch.getTotalTransactions());
+            Assertions.assertEquals(full.getErrorRates(), branch.getErrorRates());
+        }
+    }
+
+    @Test
+    void failedRunsDoNotStopTheBatch() throws Exception {
+        Map<String, List<String>> axes = new LinkedHashMap<>();
+        axes.put("multiplier", Arrays.asList("1", "not a number"));
+        List<BatchResult> results = new BatchRunner(props, 2).run(BatchRunner.grid(axes));
+
+        Assertions.assertTrue(results.get(0).isSuccessful());
+        Assertions.assertFalse(results.get(1).isSuccessful());
+        Assertions.assertTrue(Double.isNaN(results.get(1).getTotalErrorRate()));
+
+        StringBuilder table = new StringBuilder();
+        BatchRunner.writeResults(results, table);
+        Assertions.assertEquals(3, table.toString().split(System.lineSeparator()).length);
+    }
+}
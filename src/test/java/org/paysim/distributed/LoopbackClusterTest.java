@@ -0,0 +1,153 @@
+package org.paysim.distributed;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.paysim.actors.Client;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+
+import java.io.InvalidClassException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+public class LoopbackClusterTest {
+    private static final int NB_PARTITIONS = 3;
+    private Properties props;
+
+    @BeforeEach
+    void setup() throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        props = Parameters.loadProperties(path.toString());
+    }
+
+    /**
+     * Run all the partitions of a loopback cluster, draining each of them on its own thread.
+     */
+    private List<List<Transaction>> runCluster(LoopbackCluster cluster) throws Exception {
+        List<List<Transaction>> outputs = new ArrayList<>();
+        List<Thread> drains = new ArrayList<>();
+        for (PartitionedPaySim partition : cluster.getPartitions()) {
+            List<Transaction> output = new ArrayList<>();
+            outputs.add(output);
+            partition.run();
+            Thread drain = new Thread(() -> partition.forEachRemaining(output::add));
+            drain.start();
+            drains.add(drain);
+        }
+        for (Thread drain : drains) {
+            drain.join();
+        }
+        return outputs;
+    }
+
+    @Test
+    void partitionsShareTheClientsAndAreReproducible() throws Exception {
+        List<List<Transaction>> first, second;
+        try (LoopbackCluster cluster = new LoopbackCluster(props, NB_PARTITIONS)) {
+            first = runCluster(cluster);
+        }
+        try (LoopbackCluster cluster = new LoopbackCluster(props, NB_PARTITIONS)) {
+            second = runCluster(cluster);
+        }
+
+        for (int p = 0; p < NB_PARTITIONS; p++) {
+            Assertions.assertFalse(first.get(p).isEmpty());
+            Assertions.assertEquals(first.get(p).size(), second.get(p).size());
+            for (int i = 0; i < first.get(p).size(); i++) {
+                Assertions.assertEquals(first.get(p).get(i).toString(), second.get(p).get(i).toString());
+            }
+        }
+    }
+
+    @Test
+    void transfersReachClientsOfOtherPartitions() throws Exception {
+        Map<String, Integer> owners = new HashMap<>();
+        List<List<Transaction>> outputs;
+        try (LoopbackCluster cluster = new LoopbackCluster(props, NB_PARTITIONS)) {
+            outputs = runCluster(cluster);
+            for (PartitionedPaySim partition : cluster.getPartitions()) {
+                for (Client c : partition.getClients()) {
+                    owners.put(c.getId(), partition.getAssignment().partition);
+                }
+            }
+        }
+
+        int crossPartition = 0;
+        for (int p = 0; p < NB_PARTITIONS; p++) {
+            for (Transaction tx : outputs.get(p)) {
+                if (tx.getAction().equals("TRANSFER")) {
+                    Assertions.assertNotNull(tx.getIdDest());
+                    // Transfers are emitted by the recipient's partition
+                    Assertions.assertEquals(p, (int) owners.get(tx.getIdDest()));
+                    if (owners.get(tx.getIdOrig()) != p) {
+                        crossPartition++;
+                    }
+                }
+            }
+        }
+        Assertions.assertTrue(crossPartition > 0);
+    }
+
+    @Test
+    void chunksOfATransferReachASingleRecipient() throws Exception {
+        props.setProperty("transferLimit", "10000");
+        final double transferLimit = 10000;
+        List<List<Transaction>> outputs;
+        try (LoopbackCluster cluster = new LoopbackCluster(props, NB_PARTITIONS)) {
+            outputs = runCluster(cluster);
+        }
+
+        int nbChunks = 0;
+        for (List<Transaction> output : outputs) {
+            // Transfers received from other partitions come after the local ones, their chunks one after the other
+            for (int i = 1; i < output.size(); i++) {
+                Transaction previous = output.get(i - 1), tx = output.get(i);
+                if (tx.getAction().equals("TRANSFER") && previous.getAction().equals("TRANSFER")
+                        && previous.getAmount() == transferLimit && previous.isSuccessful()
+                        && tx.getIdOrig().equals(previous.getIdOrig()) && tx.getStep() == previous.getStep()) {
+                    Assertions.assertEquals(previous.getIdDest(), tx.getIdDest());
+                    nbChunks++;
+                }
+            }
+        }
+        Assertions.assertTrue(nbChunks > 0);
+    }
+
+    @Test
+    void assignmentsLeaveTheDatabaseCredentialsBehind() {
+        for (PartitionAssignment assignment : PartitionAssignment.split(props, NB_PARTITIONS)) {
+            Assertions.assertFalse(assignment.properties.containsKey("dbUser"));
+            Assertions.assertFalse(assignment.properties.containsKey("dbPassword"));
+            Assertions.assertEquals(props.getProperty("dbUrl"), assignment.properties.getProperty("dbUrl"));
+        }
+    }
+
+    @Test
+    void connectionsOnlyAcceptProtocolMessages() throws Exception {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (ServerSocket server = new ServerSocket(0, 1, loopback)) {
+            Thread sender = new Thread(() -> {
+                try (Connection connection = new Connection(new Socket(loopback, server.getLocalPort()))) {
+                    connection.send(new Date());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            sender.start();
+            try (Connection connection = new Connection(server.accept())) {
+                Assertions.assertThrows(InvalidClassException.class, connection::receive);
+            }
+            sender.join();
+        }
+    }
+}
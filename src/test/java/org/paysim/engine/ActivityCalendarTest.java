@@ -0,0 +1,58 @@
+package org.paysim.engine;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ActivityCalendarTest {
+    private static final int NB_DRAWS = 200_000;
+    private static final int[] TARGETS = {0, 40, 0, 0, 25, 10, 0, 60};
+
+    @Test
+    void activeStepsFollowThePerStepBinomials() {
+        final double weight = 0.01;
+        ActivityCalendar calendar = new ActivityCalendar(TARGETS);
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+
+        // Count how often a client is active on each step, walking from one active step to the next
+        int[] active = new int[TARGETS.length];
+        for (int i = 0; i < NB_DRAWS; i++) {
+            int step = calendar.nextActiveStep(random, weight, -1);
+            while (step >= 0) {
+                active[step]++;
+                step = calendar.nextActiveStep(random, weight, step);
+            }
+        }
+
+        for (int t = 0; t < TARGETS.length; t++) {
+            double expected = 1 - Math.pow(1 - weight, TARGETS[t]);
+            Assertions.assertEquals(expected, (double) active[t] / NB_DRAWS, 0.005, "step " + t);
+        }
+    }
+
+    @Test
+    void nothingIsDueAfterTheLastStepOrWithoutWeight() {
+        ActivityCalendar calendar = new ActivityCalendar(TARGETS);
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        Assertions.assertEquals(-1, calendar.nextActiveStep(random, 0.5, TARGETS.length - 1));
+        Assertions.assertEquals(-1, calendar.nextActiveStep(random, 0, -1));
+        Assertions.assertEquals(1, calendar.nextActiveStep(random, 1, -1));
+        Assertions.assertEquals(4, calendar.nextActiveStep(random, 1, 1));
+    }
+
+    @Test
+    void positiveCountsFollowTheTruncatedBinomial() {
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        final int n = 40;
+        for (double p : new double[]{0.001, 0.05, 0.5, 0.9}) {
+            double sum = 0;
+            for (int i = 0; i < NB_DRAWS; i++) {
+                int count = ActivityCalendar.pickPositiveCount(random, n, p);
+                Assertions.assertTrue(count >= 1 && count <= n);
+                sum += count;
+            }
+            double expected = n * p / (1 - Math.pow(1 - p, n));
+            Assertions.assertEquals(expected, sum / NB_DRAWS, expected * 0.01, "p = " + p);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.paysim.engine;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CountAllocatorTest {
+    private static final double[] WEIGHTS = {0.5, 0, 3, 1.5, 0.25, 4.75};
+
+    @Test
+    void allocationsAddUpToTheTotalExactly() {
+        CountAllocator allocator = new CountAllocator(WEIGHTS);
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        for (int total : new int[]{0, 1, 7, 1000, 3}) {
+            int nbAllocated = allocator.allocate(random, total);
+            int sum = 0;
+            for (int k = 0; k < nbAllocated; k++) {
+                int count = allocator.getCount(allocator.getAllocated(k));
+                Assertions.assertTrue(count > 0);
+                sum += count;
+            }
+            Assertions.assertEquals(total, sum);
+        }
+    }
+
+    @Test
+    void countsAreProportionalToTheWeights() {
+        CountAllocator allocator = new CountAllocator(WEIGHTS);
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        final int total = 1_000_000;
+        allocator.allocate(random, total);
+
+        double totalWeight = 0;
+        for (double w : WEIGHTS) {
+            totalWeight += w;
+        }
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            double expected = WEIGHTS[i] / totalWeight;
+            Assertions.assertEquals(expected, (double) allocator.getCount(i) / total, 0.002, "index " + i);
+        }
+    }
+
+    @Test
+    void nothingIsAllocatedWithoutWeight() {
+        CountAllocator allocator = new CountAllocator(new double[]{0, 0});
+        Assertions.assertEquals(0, allocator.allocate(new MersenneTwisterFast(1), 10));
+    }
+}
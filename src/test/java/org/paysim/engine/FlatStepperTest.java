@@ -0,0 +1,60 @@
+package org.paysim.engine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FlatStepperTest {
+    private static final int NB_ACTORS = 100;
+
+    private List<Steppable> createActors(List<Integer> log) {
+        List<Steppable> actors = new ArrayList<>();
+        for (int i = 0; i < NB_ACTORS; i++) {
+            final int id = i;
+            actors.add(state -> log.add(id));
+        }
+        return actors;
+    }
+
+    private List<Integer> runSteps(boolean shuffle, long seed, int nbSteps) {
+        List<Integer> log = new ArrayList<>();
+        FlatStepper stepper = new FlatStepper(new SimState(seed), createActors(log), shuffle);
+        for (int i = 0; i < nbSteps; i++) {
+            Assertions.assertTrue(stepper.step());
+        }
+        return log;
+    }
+
+    @Test
+    void fixedOrderingStepsActorsInTheOrderGiven() {
+        List<Integer> log = runSteps(false, 1, 2);
+        for (int i = 0; i < log.size(); i++) {
+            Assertions.assertEquals(i % NB_ACTORS, (int) log.get(i));
+        }
+    }
+
+    @Test
+    void shuffledOrderingStepsEveryActorOncePerStep() {
+        List<Integer> log = runSteps(true, 1, 3);
+        Assertions.assertEquals(3 * NB_ACTORS, log.size());
+        for (int step = 0; step < 3; step++) {
+            boolean[] seen = new boolean[NB_ACTORS];
+            for (int i = step * NB_ACTORS; i < (step + 1) * NB_ACTORS; i++) {
+                Assertions.assertFalse(seen[log.get(i)], "actor stepped twice in the same step");
+                seen[log.get(i)] = true;
+            }
+        }
+        Assertions.assertNotEquals(log.subList(0, NB_ACTORS), log.subList(NB_ACTORS, 2 * NB_ACTORS));
+        Assertions.assertEquals(log, runSteps(true, 1, 3));
+    }
+
+    @Test
+    void stopsWhenThereIsNothingToStep() {
+        FlatStepper stepper = new FlatStepper(new SimState(1), new ArrayList<Steppable>(), true);
+        Assertions.assertFalse(stepper.step());
+    }
+}
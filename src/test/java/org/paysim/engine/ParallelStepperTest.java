@@ -0,0 +1,54 @@
+package org.paysim.engine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.paysim.IteratingPaySim;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+public class ParallelStepperTest {
+    private Properties props;
+
+    @BeforeEach
+    void setup() throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        props = Parameters.loadProperties(path.toString());
+        props.setProperty("parallelism", "4");
+    }
+
+    private List<Transaction> runSimulation() {
+        IteratingPaySim sim = new IteratingPaySim(new Parameters(props));
+        sim.run();
+        List<Transaction> transactions = new ArrayList<>();
+        sim.forEachRemaining(transactions::add);
+        return transactions;
+    }
+
+    @Test
+    void sameSeedAndParallelismIsReproducible() {
+        List<Transaction> first = runSimulation();
+        List<Transaction> second = runSimulation();
+
+        Assertions.assertFalse(first.isEmpty());
+        Assertions.assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            Assertions.assertEquals(first.get(i).toString(), second.get(i).toString());
+        }
+    }
+
+    @Test
+    void transactionsArriveInStepOrder() {
+        long lastStep = 0;
+        for (Transaction tx : runSimulation()) {
+            Assertions.assertTrue(tx.getStep() >= lastStep, "steps should never go backwards");
+            lastStep = tx.getStep();
+        }
+    }
+}
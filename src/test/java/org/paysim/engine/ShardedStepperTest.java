@@ -0,0 +1,74 @@
+package org.paysim.engine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.paysim.IteratingPaySim;
+import org.paysim.actors.Client;
+import org.paysim.actors.Merchant;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+public class ShardedStepperTest {
+    private Properties props;
+
+    @BeforeEach
+    void setup() throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        props = Parameters.loadProperties(path.toString());
+        props.setProperty("nbShards", "4");
+    }
+
+    private List<Transaction> runSimulation(IteratingPaySim sim) {
+        sim.run();
+        List<Transaction> transactions = new ArrayList<>();
+        sim.forEachRemaining(transactions::add);
+        return transactions;
+    }
+
+    @Test
+    void outputDoesNotDependOnTheNumberOfThreads() {
+        props.setProperty("parallelism", "2");
+        List<Transaction> first = runSimulation(new IteratingPaySim(new Parameters(props)));
+        props.setProperty("parallelism", "4");
+        List<Transaction> second = runSimulation(new IteratingPaySim(new Parameters(props)));
+
+        Assertions.assertFalse(first.isEmpty());
+        Assertions.assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            Assertions.assertEquals(first.get(i).toString(), second.get(i).toString());
+        }
+    }
+
+    @Test
+    void clientsOnlyPayMerchantsOfTheirShard() {
+        IteratingPaySim sim = new IteratingPaySim(new Parameters(props));
+        List<Transaction> transactions = runSimulation(sim);
+
+        Map<String, Integer> shards = new HashMap<>();
+        for (Client c : sim.getClients()) {
+            shards.put(c.getId(), c.getShard());
+        }
+        for (Merchant m : sim.getMerchants()) {
+            shards.put(m.getId(), m.getShard());
+        }
+
+        int payments = 0;
+        for (Transaction tx : transactions) {
+            // Fraudsters act outside of the shards
+            if (tx.getAction().equals("PAYMENT") && !tx.isFraud()) {
+                payments++;
+                Assertions.assertEquals(shards.get(tx.getIdOrig()), shards.get(tx.getIdDest()));
+            }
+        }
+        Assertions.assertTrue(payments > 0);
+    }
+}
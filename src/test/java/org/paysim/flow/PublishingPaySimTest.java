@@ -0,0 +1,141 @@
+package org.paysim.flow;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.paysim.IteratingPaySim;
+import org.paysim.base.Transaction;
+import org.paysim.parameters.Parameters;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PublishingPaySimTest {
+    private Parameters parameters;
+
+    private static class RecordingSubscriber implements Flow.Subscriber<List<Transaction>> {
+        private final long initialRequest;
+        final List<String> transactions = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+        volatile int nbSteps = 0;
+        volatile boolean completed = false;
+        volatile Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(List<Transaction> step) {
+            nbSteps++;
+            step.forEach(tx -> transactions.add(tx.getGlobalStep() + "," + tx));
+            if (initialRequest == 1) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        Path path = Paths.get(getClass().getResource("/PaySim.properties").toURI());
+        parameters = new Parameters(path.toString());
+    }
+
+    @Test
+    void subscribersWithTheirOwnDemandGetEveryStep() throws Exception {
+        IteratingPaySim iterating = new IteratingPaySim(parameters);
+        iterating.run();
+        List<String> expected = new ArrayList<>();
+        iterating.forEachRemaining(tx -> expected.add(tx.getGlobalStep() + "," + tx));
+
+        PublishingPaySim sim = new PublishingPaySim(parameters, 2);
+        RecordingSubscriber unbounded = new RecordingSubscriber(Long.MAX_VALUE);
+        RecordingSubscriber oneByOne = new RecordingSubscriber(1);
+        sim.subscribe(unbounded);
+        sim.subscribe(oneByOne);
+        sim.run();
+
+        for (RecordingSubscriber subscriber : new RecordingSubscriber[]{unbounded, oneByOne}) {
+            Assertions.assertTrue(subscriber.done.await(60, TimeUnit.SECONDS));
+            Assertions.assertTrue(subscriber.completed);
+            Assertions.assertEquals(parameters.nbSteps, subscriber.nbSteps);
+            Assertions.assertEquals(expected, subscriber.transactions);
+        }
+    }
+
+    @Test
+    void stepsWaitForDemand() throws Exception {
+        PublishingPaySim sim = new PublishingPaySim(parameters, 1);
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+        sim.subscribe(subscriber);
+        sim.run();
+
+        // Two steps delivered, one in the buffer, and the simulation waiting to add the next one
+        for (int i = 0; i < 600 && subscriber.nbSteps < 2; i++) {
+            Thread.sleep(100);
+        }
+        Thread.sleep(500);
+        Assertions.assertTrue(sim.isRunning());
+        Assertions.assertEquals(2, subscriber.nbSteps);
+        Assertions.assertEquals(3, sim.getCurrentStep());
+
+        subscriber.subscription.cancel();
+        for (int i = 0; i < 600 && sim.isRunning(); i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertFalse(sim.isRunning());
+        Assertions.assertEquals(0, sim.getNbSubscribers());
+    }
+
+    @Test
+    void abortingCompletesTheSubscribers() throws Exception {
+        PublishingPaySim sim = new PublishingPaySim(parameters, 1);
+        RecordingSubscriber subscriber = new RecordingSubscriber(3);
+        sim.subscribe(subscriber);
+        sim.run();
+        for (int i = 0; i < 600 && subscriber.nbSteps < 3; i++) {
+            Thread.sleep(100);
+        }
+        sim.abort();
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        Assertions.assertTrue(subscriber.done.await(60, TimeUnit.SECONDS));
+        Assertions.assertTrue(subscriber.completed);
+        Assertions.assertTrue(subscriber.nbSteps < parameters.nbSteps);
+    }
+
+    @Test
+    void invalidRequestsEndInAnError() throws Exception {
+        PublishingPaySim sim = new PublishingPaySim(parameters);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        sim.subscribe(subscriber);
+        sim.run();
+
+        Assertions.assertTrue(subscriber.done.await(60, TimeUnit.SECONDS));
+        Assertions.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assertions.assertEquals(0, sim.getNbSubscribers());
+    }
+}
@@ -0,0 +1,73 @@
+package org.paysim.identity;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class CreditCardGeneratorTest {
+
+    static boolean isLuhnValid(String ccn) {
+        int sum = 0;
+        for (int i = ccn.length() - 1, n = 0; i >= 0; i--, n++) {
+            int d = ccn.charAt(i) - '0';
+            if (n % 2 == 1) {
+                d *= 2;
+                if (d > 9) {
+                    d -= 9;
+                }
+            }
+            sum += d;
+        }
+        return sum % 10 == 0;
+    }
+
+    @Test
+    void numbersNeverRepeat() {
+        final int max = 1_000_000;
+        CreditCardGenerator generator = new CreditCardGenerator(1);
+        Set<String> ccns = new HashSet<>(max);
+        for (int i = 0; i < max; i++) {
+            String ccn = generator.next();
+            Assertions.assertTrue(ccns.add(ccn), ccn + " was drawn twice");
+        }
+    }
+
+    @Test
+    void numbersAreLuhnValid() {
+        CreditCardGenerator generator = new CreditCardGenerator(1);
+        for (int i = 0; i < 10_000; i++) {
+            String ccn = generator.next();
+            Assertions.assertTrue(ccn.matches("\\d{16}"), ccn);
+            Assertions.assertTrue(isLuhnValid(ccn), ccn + " should pass the Luhn check");
+        }
+    }
+
+    @Test
+    void numbersOnlyDependOnTheSeedAndPosition() {
+        CreditCardGenerator generator = new CreditCardGenerator(1);
+        CreditCardGenerator same = new CreditCardGenerator(1);
+        CreditCardGenerator other = new CreditCardGenerator(2);
+        for (long index = 0; index < 1000; index++) {
+            Assertions.assertEquals(generator.next(), same.cardNumber(index));
+        }
+        Assertions.assertNotEquals(generator.cardNumber(0), other.cardNumber(0));
+
+        // Far positions, such as another thread's share, don't run into the first ones
+        final long far = CreditCardGenerator.capacity() - 1000;
+        for (long index = 0; index < 1000; index++) {
+            Assertions.assertNotEquals(generator.cardNumber(index), generator.cardNumber(far + index));
+        }
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> generator.cardNumber(CreditCardGenerator.capacity()));
+    }
+
+    @Test
+    void reservedNumbersAreSkipped() {
+        CreditCardGenerator generator = new CreditCardGenerator(1);
+        generator.reserve(generator.cardNumber(1));
+        Assertions.assertEquals(generator.cardNumber(0), generator.next());
+        Assertions.assertEquals(generator.cardNumber(2), generator.next());
+    }
+}
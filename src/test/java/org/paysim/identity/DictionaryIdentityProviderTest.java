@@ -0,0 +1,79 @@
+package org.paysim.identity;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DictionaryIdentityProviderTest {
+
+    @Test
+    void sameSeedDrawsTheSameIdentities() {
+        DictionaryIdentityProvider provider1 = new DictionaryIdentityProvider(1);
+        DictionaryIdentityProvider provider2 = new DictionaryIdentityProvider(1);
+        for (int i = 0; i < 100; i++) {
+            ClientIdentity identity1 = provider1.nextPerson();
+            ClientIdentity identity2 = provider2.nextPerson();
+            Assertions.assertEquals(identity1.id, identity2.id);
+            Assertions.assertEquals(identity1.name, identity2.name);
+            Assertions.assertEquals(identity1.email, identity2.email);
+            Assertions.assertEquals(identity1.ssn, identity2.ssn);
+            Assertions.assertEquals(identity1.phoneNumber, identity2.phoneNumber);
+            Assertions.assertEquals(provider1.nextMerchant().name, provider2.nextMerchant().name);
+        }
+        Assertions.assertNotEquals(provider1.nextPerson().id, new DictionaryIdentityProvider(2).nextPerson().id);
+    }
+
+    @Test
+    void identitiesAreWellFormed() {
+        DictionaryIdentityProvider provider = new DictionaryIdentityProvider(1);
+        for (int i = 0; i < 1000; i++) {
+            ClientIdentity identity = provider.nextPerson();
+            Assertions.assertTrue(identity.id.matches("\\d{16}"), identity.id);
+            Assertions.assertTrue(CreditCardGeneratorTest.isLuhnValid(identity.id),
+                    identity.id + " should pass the Luhn check");
+            Assertions.assertTrue(identity.email.matches("[a-z]+\\.[a-z]+\\d{3}@[a-z]+\\.com"), identity.email);
+            Assertions.assertTrue(identity.ssn.matches("\\d{3}-\\d{2}-\\d{4}"), identity.ssn);
+            Assertions.assertTrue(identity.phoneNumber.matches("[2-9]\\d{2}-[2-9]\\d{2}-\\d{4}"),
+                    identity.phoneNumber);
+        }
+    }
+
+    @Test
+    void reservedCreditCardsAreSkipped() {
+        ClientIdentity first = new DictionaryIdentityProvider(1).nextPerson();
+        DictionaryIdentityProvider provider = new DictionaryIdentityProvider(1);
+        provider.reserveCreditCard(first.id);
+        Assertions.assertNotEquals(first.id, provider.nextPerson().id);
+    }
+
+    @Test
+    void concurrentDrawsNeverCollide() throws Exception {
+        final int nbThreads = 4, perThread = 50_000;
+        final DictionaryIdentityProvider provider = new DictionaryIdentityProvider(1);
+        final Set<String> ccns = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < nbThreads; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    ccns.add(provider.nextPerson().id);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(nbThreads * perThread, ccns.size());
+
+        Set<String> vats = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            vats.add(provider.nextMerchant().id);
+        }
+        Assertions.assertTrue(vats.size() > 9_990, "merchant ids should hardly ever repeat");
+    }
+}
@@ -1,11 +1,14 @@
 package org.paysim.identity;
 
+import com.devskiller.jfairy.Bootstrap;
+import com.devskiller.jfairy.Fairy;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
 import java.time.Duration;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class IdentityFactoryTest {
@@ -43,6 +46,13 @@ public class IdentityFactoryTest {
         }
     }
 
+    @Test
+    void cardNumbersOnlyComeFromThePermutationWhenAskedFor() {
+        Fairy fairy = Bootstrap.builder().withRandomSeed(1).withLocale(Locale.US).withLocale(Locale.CANADA).build();
+        Assertions.assertEquals(fairy.creditCard().getCardNumber(), new IdentityFactory(1).getNextCreditCard());
+        Assertions.assertEquals(new CreditCardGenerator(1).next(), new IdentityFactory(1, true).getNextCreditCard());
+    }
+
     @Test
     void collisionTest() {
         System.out.println("Starting collision test...");
@@ -0,0 +1,123 @@
+package org.paysim.output;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.paysim.base.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class SinkPipelineTest {
+    private static final int NB_STEPS = 50;
+
+    private static class RecordingSink implements StepSink {
+        private final long delayMillis;
+        final List<Long> steps = Collections.synchronizedList(new ArrayList<>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean closed = false;
+
+        RecordingSink(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void write(long step, List<Transaction> transactions) throws Exception {
+            Thread.sleep(delayMillis);
+            steps.add(step);
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static List<Long> allSteps() {
+        List<Long> steps = new ArrayList<>();
+        for (long step = 0; step < NB_STEPS; step++) {
+            steps.add(step);
+        }
+        return steps;
+    }
+
+    @Test
+    void everySinkGetsEveryStepInOrder() {
+        RecordingSink fast = new RecordingSink(0);
+        RecordingSink slow = new RecordingSink(2);
+        SinkPipeline pipeline = new SinkPipeline(3);
+        SinkPipeline.Stage fastStage = pipeline.register("fast", fast);
+        SinkPipeline.Stage slowStage = pipeline.register("slow", slow);
+
+        for (long step = 0; step < NB_STEPS; step++) {
+            pipeline.publish(step, new ArrayList<>());
+        }
+        pipeline.close();
+
+        Assertions.assertEquals(allSteps(), fast.steps);
+        Assertions.assertEquals(allSteps(), slow.steps);
+        Assertions.assertTrue(fast.closed && slow.closed);
+        Assertions.assertTrue(fast.threads.stream().allMatch("Sink-fast"::equals));
+
+        // The slow sink never falls more than its buffer behind, the steps being written and published aside
+        Assertions.assertTrue(slowStage.getMaxLag() <= 3 + 2, slowStage.toString());
+        Assertions.assertTrue(slowStage.getBlockedNanos() > 0, slowStage.toString());
+        Assertions.assertEquals(0, slowStage.getLag());
+        Assertions.assertEquals(NB_STEPS, fastStage.getStepsWritten());
+    }
+
+    @Test
+    void failingSinksDoNotHoldTheOthersBack() {
+        RecordingSink sink = new RecordingSink(0);
+        SinkPipeline pipeline = new SinkPipeline(2);
+        SinkPipeline.Stage failing = pipeline.register("failing", (step, transactions) -> {
+            throw new IllegalStateException("disk full");
+        });
+        pipeline.register("recording", sink);
+
+        for (long step = 0; step < NB_STEPS; step++) {
+            pipeline.publish(step, new ArrayList<>());
+        }
+        pipeline.close();
+
+        Assertions.assertEquals(allSteps(), sink.steps);
+        Assertions.assertEquals(NB_STEPS, failing.getFailures());
+        Assertions.assertEquals(NB_STEPS, failing.getStepsWritten());
+    }
+
+    @Test
+    @Timeout(10)
+    void deadSinksFailThePublisherInsteadOfHoldingItBack() {
+        RecordingSink sink = new RecordingSink(0);
+        SinkPipeline pipeline = new SinkPipeline(1);
+        Error death = new OutOfMemoryError("sink buffers");
+        pipeline.register("dying", (step, transactions) -> {
+            throw death;
+        });
+        pipeline.register("recording", sink);
+
+        // Sooner or later the buffer of the dead sink is full, and publishing would wait forever
+        Assertions.assertSame(death, Assertions.assertThrows(Error.class, () -> {
+            for (long step = 0; step < NB_STEPS; step++) {
+                pipeline.publish(step, new ArrayList<>());
+            }
+        }));
+        Assertions.assertSame(death, Assertions.assertThrows(Error.class, pipeline::close));
+        Assertions.assertTrue(sink.closed);
+    }
+
+    @Test
+    void unbufferedSinksWriteOnThePublishingThread() {
+        RecordingSink sink = new RecordingSink(0);
+        SinkPipeline pipeline = new SinkPipeline(0);
+        pipeline.register("inline", sink);
+
+        pipeline.publish(0, new ArrayList<>());
+        Assertions.assertEquals(Collections.singletonList(0L), sink.steps);
+        Assertions.assertEquals(Thread.currentThread().getName(), sink.threads.get(0));
+        pipeline.close();
+        Assertions.assertTrue(sink.closed);
+    }
+}
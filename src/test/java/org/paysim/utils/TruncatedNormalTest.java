@@ -0,0 +1,73 @@
+package org.paysim.utils;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TruncatedNormalTest {
+    private static final int NB_SAMPLES = 200_000;
+
+    @Test
+    void zigguratDrawsStandardNormalValues() {
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        double sum = 0, sumSquares = 0;
+        int beyondTail = 0, aboveTwo = 0;
+        for (int i = 0; i < NB_SAMPLES; i++) {
+            double z = TruncatedNormal.sampleStandard(random);
+            sum += z;
+            sumSquares += z * z;
+            if (Math.abs(z) > 3.442619855899) {
+                beyondTail++;
+            }
+            if (z > 2) {
+                aboveTwo++;
+            }
+        }
+        double mean = sum / NB_SAMPLES;
+        Assertions.assertEquals(0, mean, 0.01);
+        Assertions.assertEquals(1, sumSquares / NB_SAMPLES - mean * mean, 0.02);
+        // P(Z > 2) = 0.02275 and P(|Z| > 3.4426) = 0.000576
+        Assertions.assertEquals(0.02275, (double) aboveTwo / NB_SAMPLES, 0.002);
+        Assertions.assertTrue(beyondTail > 0);
+        Assertions.assertEquals(0.000576, (double) beyondTail / NB_SAMPLES, 0.0003);
+    }
+
+    @Test
+    void bothSamplersDrawTheSameDistribution() {
+        // From means well above 0 down to small and negative ones, where most normal values aren't positive
+        double[][] parameters = {{100, 10}, {10, 20}, {1, 10}, {0.1, 1}, {0, 5}, {-5, 10}, {-15, 10}};
+        for (double[] p : parameters) {
+            TruncatedNormal distribution = new TruncatedNormal(p[0], p[1]);
+            MersenneTwisterFast random = new MersenneTwisterFast(2);
+            double[] ziggurat = new double[3], rejection = new double[3];
+            for (int i = 0; i < NB_SAMPLES; i++) {
+                double fast = AmountSampler.ZIGGURAT.sample(distribution, random);
+                double slow = AmountSampler.REJECTION.sample(distribution, random);
+                Assertions.assertTrue(fast > 0);
+                Assertions.assertTrue(slow > 0);
+                ziggurat[0] += fast;
+                ziggurat[1] += fast * fast;
+                rejection[0] += slow;
+                rejection[1] += slow * slow;
+                // Share of the draws below the standard deviation, for the shape of the distribution near 0
+                ziggurat[2] += fast < p[1] ? 1 : 0;
+                rejection[2] += slow < p[1] ? 1 : 0;
+            }
+            double fastMean = ziggurat[0] / NB_SAMPLES, slowMean = rejection[0] / NB_SAMPLES;
+            double fastStd = Math.sqrt(ziggurat[1] / NB_SAMPLES - fastMean * fastMean);
+            double slowStd = Math.sqrt(rejection[1] / NB_SAMPLES - slowMean * slowMean);
+            Assertions.assertEquals(slowMean, fastMean, slowStd * 0.02, "mean of " + p[0] + ", " + p[1]);
+            Assertions.assertEquals(slowStd, fastStd, slowStd * 0.02, "std of " + p[0] + ", " + p[1]);
+            Assertions.assertEquals(rejection[2] / NB_SAMPLES, ziggurat[2] / NB_SAMPLES, 0.01,
+                    "share below the std of " + p[0] + ", " + p[1]);
+        }
+    }
+
+    @Test
+    void distributionsWithoutSpreadGiveTheirMean() {
+        MersenneTwisterFast random = new MersenneTwisterFast(3);
+        Assertions.assertEquals(5, new TruncatedNormal(5, 0).sample(random));
+        Assertions.assertThrows(IllegalStateException.class, () -> new TruncatedNormal(-5, 0).sample(random));
+        Assertions.assertThrows(IllegalStateException.class, () -> new TruncatedNormal(0, 0).sampleByRejection(random));
+    }
+}